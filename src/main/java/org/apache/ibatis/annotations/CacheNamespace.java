@@ -22,8 +22,12 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.copier.CacheCopier;
+import org.apache.ibatis.cache.copier.SerializingCopier;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.weigher.ObjectSizeWeigher;
+import org.apache.ibatis.cache.weigher.Weigher;
 
 /**
  * @author Clinton Begin
@@ -39,12 +43,43 @@ public @interface CacheNamespace {
 
   long flushInterval() default 0;
 
+  /**
+   * Time in milliseconds after which each entry expires, <code>0</code> means entries do not expire.
+   * @since 3.5.3
+   */
+  long timeToLive() default 0;
+
+  /**
+   * Time in milliseconds during which an expired or flushed entry is still returned while it is loaded again in
+   * the background, <code>0</code> means entries are removed right away.
+   * @since 3.5.3
+   */
+  long staleWhileRevalidate() default 0;
+
   int size() default 1024;
 
+  /**
+   * Maximum estimated size in bytes of the cached entries, <code>0</code> means no limit.
+   * @since 3.5.3
+   */
+  long maxBytes() default 0;
+
+  /**
+   * Weigher used to estimate the size of the entries when {@link #maxBytes()} is set.
+   * @since 3.5.3
+   */
+  Class<? extends Weigher> weigher() default ObjectSizeWeigher.class;
+
   boolean readWrite() default true;
 
   boolean blocking() default false;
 
+  /**
+   * Copy strategy used when {@link #readWrite()} is true.
+   * @since 3.5.3
+   */
+  Class<? extends CacheCopier> copier() default SerializingCopier.class;
+
   /**
    * Property values for a implementation object.
    * @since 3.4.2
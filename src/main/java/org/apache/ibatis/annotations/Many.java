@@ -33,4 +33,12 @@ public @interface Many {
 
   FetchType fetchType() default FetchType.DEFAULT;
 
+  /**
+   * Property of the results of the select matched against the column. When set, the select is run once for the
+   * keys of many rows, passed as a <code>list</code> parameter.
+   *
+   * @since 3.5.3
+   */
+  String batchKey() default "";
+
 }
@@ -63,4 +63,17 @@ public @interface Options {
   String keyColumn() default "";
 
   String resultSets() default "";
+
+  /**
+   * Comma separated tables this statement reads or writes, used when cache dependency tracking is enabled.
+   * When empty the tables are looked up in the sql of static statements.
+   * @since 3.5.3
+   */
+  String tables() default "";
+
+  /**
+   * Whether the select always runs on the primary, even in sessions that send their reads to a replica.
+   * @since 3.5.3
+   */
+  boolean usePrimary() default false;
 }
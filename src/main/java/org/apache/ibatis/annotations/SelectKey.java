@@ -41,4 +41,12 @@ public @interface SelectKey {
   Class<?> resultType();
 
   StatementType statementType() default StatementType.PREPARED;
+
+  /**
+   * Number of keys reserved by each execution of the statement. When greater than 1 the statement either returns
+   * the first of <code>allocationSize</code> consecutive values or returns the keys as several rows.
+   *
+   * @since 3.5.3
+   */
+  int allocationSize() default 1;
 }
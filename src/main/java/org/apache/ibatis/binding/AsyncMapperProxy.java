@@ -0,0 +1,87 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.session.AsyncSqlSession;
+
+/**
+ * Mapper proxy of an {@link AsyncSqlSession}. Each call is run by the mapper of the underlying session, in turn
+ * with the other operations of the asynchronous session.
+ * <p>
+ * Methods returning a {@link CompletableFuture} return at once; {@link MapperMethod} completes the future of the
+ * underlying mapper with the result. Other methods wait for their result, so they can not be called from inside an
+ * operation of the same session.
+ */
+public class AsyncMapperProxy<T> implements InvocationHandler {
+
+  private final AsyncSqlSession asyncSqlSession;
+  private final T mapper;
+
+  public AsyncMapperProxy(AsyncSqlSession asyncSqlSession, T mapper) {
+    this.asyncSqlSession = asyncSqlSession;
+    this.mapper = mapper;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <T> T newInstance(AsyncSqlSession asyncSqlSession, T mapper, Class<T> mapperInterface) {
+    return (T) Proxy.newProxyInstance(mapperInterface.getClassLoader(), new Class[] { mapperInterface },
+        new AsyncMapperProxy<>(asyncSqlSession, mapper));
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    if (Object.class.equals(method.getDeclaringClass())) {
+      return method.invoke(this, args);
+    }
+    boolean returnsFuture = CompletableFuture.class.equals(method.getReturnType());
+    if (!returnsFuture && asyncSqlSession.isInOperation()) {
+      // 在本会话的操作中等待后续操作，后续操作要等当前操作结束才会执行，会永远阻塞
+      throw new IllegalStateException("Mapper method '" + method.getDeclaringClass().getName() + "." + method.getName()
+          + "' waits for its result and can not be called from an operation of the same AsyncSqlSession."
+          + " Use the SqlSession passed to the operation instead.");
+    }
+    CompletableFuture<Object> result = asyncSqlSession.execute(session -> invokeMapper(method, args));
+    if (returnsFuture) {
+      return result.thenCompose(future -> (CompletableFuture<?>) future);
+    }
+    try {
+      return result.join();
+    } catch (CompletionException e) {
+      throw e.getCause();
+    }
+  }
+
+  private Object invokeMapper(Method method, Object[] args) {
+    try {
+      // 直接调用底层 MapperProxy，避免反射调用包级私有的 mapper 接口时的访问检查
+      return Proxy.getInvocationHandler(mapper).invoke(mapper, method, args);
+    } catch (Throwable e) {
+      Throwable cause = ExceptionUtil.unwrapThrowable(e);
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new CompletionException(cause);
+    }
+  }
+
+}
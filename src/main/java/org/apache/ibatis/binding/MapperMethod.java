@@ -23,6 +23,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 import org.apache.ibatis.annotations.Flush;
 import org.apache.ibatis.annotations.MapKey;
@@ -132,6 +134,12 @@ public class MapperMethod {
            * 返回 Cursor 类型 {@link #executeForCursor(SqlSession, Object[])}
            */
           result = executeForCursor(sqlSession, args);
+        } else if (method.returnsStream()) {
+
+          /**
+           * 返回 Stream 类型 {@link #executeForStream(SqlSession, Object[])}
+           */
+          result = executeForStream(sqlSession, args);
         } else {
           Object param = method.convertArgsToSqlCommandParam(args);
           result = sqlSession.selectOne(command.getName(), param);
@@ -151,6 +159,10 @@ public class MapperMethod {
       throw new BindingException("Mapper method '" + command.getName()
           + " attempted to return null from a method with a primitive return type (" + method.getReturnType() + ").");
     }
+    if (method.returnsFuture()) {
+      // 由 AsyncSqlSession 的 Mapper 在后台线程调用，这里已经得到结果
+      return CompletableFuture.completedFuture(result);
+    }
     return result;
   }
 
@@ -233,6 +245,18 @@ public class MapperMethod {
     return result;
   }
 
+  private <T> Stream<T> executeForStream(SqlSession sqlSession, Object[] args) {
+    Stream<T> result;
+    Object param = method.convertArgsToSqlCommandParam(args);
+    if (method.hasRowBounds()) {
+      RowBounds rowBounds = method.extractRowBounds(args);
+      result = sqlSession.selectStream(command.getName(), param, rowBounds);
+    } else {
+      result = sqlSession.selectStream(command.getName(), param);
+    }
+    return result;
+  }
+
   private <E> Object convertToDeclaredCollection(Configuration config, List<E> list) {
     Object collection = config.getObjectFactory().create(method.getReturnType());
     MetaObject metaObject = config.newMetaObject(collection);
@@ -393,7 +417,9 @@ public class MapperMethod {
     private final boolean returnsMap;
     private final boolean returnsVoid;
     private final boolean returnsCursor;
+    private final boolean returnsStream;
     private final boolean returnsOptional;
+    private final boolean returnsFuture;
 
     // 方法返回的具体类型
     private final Class<?> returnType;
@@ -414,22 +440,40 @@ public class MapperMethod {
 
       // 获取方法返回值。
       Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, mapperInterface);
+
+      // 返回 CompletableFuture 类型，按其类型参数确定结果的类型
+      this.returnsFuture = resolvedReturnType instanceof ParameterizedType
+          && CompletableFuture.class.equals(((ParameterizedType) resolvedReturnType).getRawType());
+      if (returnsFuture) {
+        resolvedReturnType = ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0];
+      }
       if (resolvedReturnType instanceof Class<?>) {
         this.returnType = (Class<?>) resolvedReturnType;
       } else if (resolvedReturnType instanceof ParameterizedType) {
         this.returnType = (Class<?>) ((ParameterizedType) resolvedReturnType).getRawType();
       } else {
-        this.returnType = method.getReturnType();
+        this.returnType = returnsFuture ? Object.class : method.getReturnType();
       }
 
       // 返回是 void 类型
-      this.returnsVoid = void.class.equals(this.returnType);
+      this.returnsVoid = void.class.equals(this.returnType) || returnsFuture && Void.class.equals(this.returnType);
 
       // 返回是 集合类型。
       this.returnsMany = configuration.getObjectFactory().isCollection(this.returnType) || this.returnType.isArray();
 
       // 返回 cursor 类型
       this.returnsCursor = Cursor.class.equals(this.returnType);
+      if (returnsFuture && returnsCursor) {
+        throw new BindingException("Mapper method '" + mapperInterface.getName() + "." + method.getName()
+            + "' can not return a Cursor in a CompletableFuture, as cursors must be read by the thread of their session.");
+      }
+
+      // 返回 Stream 类型
+      this.returnsStream = Stream.class.equals(this.returnType);
+      if (returnsFuture && returnsStream) {
+        throw new BindingException("Mapper method '" + mapperInterface.getName() + "." + method.getName()
+            + "' can not return a Stream in a CompletableFuture, as streams must be read by the thread of their session.");
+      }
 
       // 返回 Optional 类型
       this.returnsOptional = Optional.class.equals(this.returnType);
@@ -490,6 +534,15 @@ public class MapperMethod {
       return returnsCursor;
     }
 
+    /**
+     * return whether return type is {@code java.util.stream.Stream}.
+     * @return return {@code true}, if return type is {@code java.util.stream.Stream}
+     * @since 3.5.3
+     */
+    public boolean returnsStream() {
+      return returnsStream;
+    }
+
     /**
      * return whether return type is {@code java.util.Optional}.
      * @return return {@code true}, if return type is {@code java.util.Optional}
@@ -499,6 +552,15 @@ public class MapperMethod {
       return returnsOptional;
     }
 
+    /**
+     * return whether return type is {@code java.util.concurrent.CompletableFuture}.
+     * @return return {@code true}, if return type is {@code java.util.concurrent.CompletableFuture}
+     * @since 3.5.3
+     */
+    public boolean returnsFuture() {
+      return returnsFuture;
+    }
+
     private Integer getUniqueParamIndex(Method method, Class<?> paramType) {
       Integer index = null;
       final Class<?>[] argTypes = method.getParameterTypes();
@@ -516,7 +578,7 @@ public class MapperMethod {
 
     private String getMapKey(Method method) {
       String mapKey = null;
-      if (Map.class.isAssignableFrom(method.getReturnType())) {
+      if (Map.class.isAssignableFrom(returnType)) {
         final MapKey mapKeyAnnotation = method.getAnnotation(MapKey.class);
         if (mapKeyAnnotation != null) {
           mapKey = mapKeyAnnotation.value();
@@ -0,0 +1,173 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Finds the tables a SQL statement reads or writes, for cache dependency tracking.
+ * <p>
+ * This is a lightweight scan, not a SQL parser: it looks for the names that follow FROM (including comma separated
+ * lists), JOIN, INTO, UPDATE, USING and TABLE. Names are lower cased and stripped of quotes and schema. A name found
+ * by mistake only makes invalidation coarser; statements that hide tables behind views or functions should declare
+ * them explicitly.
+ */
+final class TableNameParser {
+
+  private static final Set<String> TABLE_KEYWORDS = new HashSet<>(Arrays.asList(
+      "from", "join", "into", "update", "using", "table"));
+
+  private static final Set<String> CLAUSE_KEYWORDS = new HashSet<>(Arrays.asList(
+      "where", "group", "order", "having", "limit", "offset", "fetch", "union", "intersect", "except", "minus",
+      "join", "inner", "left", "right", "full", "cross", "natural", "outer", "on", "set", "values", "select",
+      "for", "window", "connect", "start", "returning", "lateral"));
+
+  private TableNameParser() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * @param sql The statement
+   * @return The tables found, or null if none could be found
+   */
+  static String[] parse(String sql) {
+    List<String> tokens = tokenize(sql);
+    Set<String> tables = new LinkedHashSet<>();
+    for (int i = 0; i < tokens.size(); i++) {
+      String keyword = tokens.get(i).toLowerCase(Locale.ENGLISH);
+      if (!TABLE_KEYWORDS.contains(keyword) || isLockClause(tokens, i)) {
+        continue;
+      }
+      int j = i + 1;
+      while (j < tokens.size() && isIdentifier(tokens.get(j))
+          && !CLAUSE_KEYWORDS.contains(tokens.get(j).toLowerCase(Locale.ENGLISH))) {
+        tables.add(normalize(tokens.get(j)));
+        if (!"from".equals(keyword)) {
+          break;
+        }
+        // 跳过别名，继续读取逗号分隔的表
+        j++;
+        if (j < tokens.size() && "as".equalsIgnoreCase(tokens.get(j))) {
+          j += 2;
+        } else if (j < tokens.size() && isIdentifier(tokens.get(j))
+            && !CLAUSE_KEYWORDS.contains(tokens.get(j).toLowerCase(Locale.ENGLISH))) {
+          j++;
+        }
+        if (j < tokens.size() && ",".equals(tokens.get(j))) {
+          j++;
+        } else {
+          break;
+        }
+      }
+    }
+    return tables.isEmpty() ? null : tables.toArray(new String[0]);
+  }
+
+  /**
+   * Splits comma separated table names given by the user.
+   */
+  static String[] split(String tables) {
+    Set<String> names = new LinkedHashSet<>();
+    for (String table : tables.split(",")) {
+      if (!table.trim().isEmpty()) {
+        names.add(normalize(table.trim()));
+      }
+    }
+    return names.isEmpty() ? null : names.toArray(new String[0]);
+  }
+
+  private static boolean isLockClause(List<String> tokens, int index) {
+    // SELECT ... FOR UPDATE 以及 ON DUPLICATE KEY UPDATE 中的 UPDATE 后面不是表名
+    if (index == 0 || !"update".equalsIgnoreCase(tokens.get(index))) {
+      return false;
+    }
+    String previous = tokens.get(index - 1);
+    return "for".equalsIgnoreCase(previous) || "key".equalsIgnoreCase(previous);
+  }
+
+  private static String normalize(String name) {
+    String table = name;
+    int dot = table.lastIndexOf('.');
+    if (dot >= 0) {
+      table = table.substring(dot + 1);
+    }
+    StringBuilder sb = new StringBuilder(table.length());
+    for (int i = 0; i < table.length(); i++) {
+      char c = table.charAt(i);
+      if (c != '"' && c != '`' && c != '[' && c != ']') {
+        sb.append(c);
+      }
+    }
+    return sb.toString().toLowerCase(Locale.ENGLISH);
+  }
+
+  private static boolean isIdentifier(String token) {
+    char c = token.charAt(0);
+    return Character.isLetter(c) || c == '_' || c == '"' || c == '`' || c == '[';
+  }
+
+  private static List<String> tokenize(String sql) {
+    List<String> tokens = new ArrayList<>();
+    int length = sql.length();
+    int i = 0;
+    while (i < length) {
+      char c = sql.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '\'') {
+        // 跳过字符串常量
+        i = skipQuoted(sql, i, '\'');
+      } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+        int end = sql.indexOf('\n', i);
+        i = end < 0 ? length : end + 1;
+      } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+        int end = sql.indexOf("*/", i + 2);
+        i = end < 0 ? length : end + 2;
+      } else if (Character.isLetterOrDigit(c) || c == '_' || c == '"' || c == '`' || c == '[') {
+        int start = i;
+        while (i < length) {
+          char d = sql.charAt(i);
+          if (d == '"' || d == '`') {
+            i = skipQuoted(sql, i, d);
+          } else if (d == '[') {
+            i = skipQuoted(sql, i, ']');
+          } else if (Character.isLetterOrDigit(d) || d == '_' || d == '$' || d == '.') {
+            i++;
+          } else {
+            break;
+          }
+        }
+        tokens.add(sql.substring(start, i));
+      } else {
+        tokens.add(String.valueOf(c));
+        i++;
+      }
+    }
+    return tokens;
+  }
+
+  private static int skipQuoted(String sql, int start, char close) {
+    int end = sql.indexOf(close, start + 1);
+    return end < 0 ? sql.length() : end + 1;
+  }
+
+}
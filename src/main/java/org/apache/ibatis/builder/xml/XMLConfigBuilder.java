@@ -17,11 +17,15 @@ package org.apache.ibatis.builder.xml;
 
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Executor;
 import javax.sql.DataSource;
 
 import org.apache.ibatis.builder.BaseBuilder;
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
 import org.apache.ibatis.datasource.DataSourceFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.loader.ProxyFactory;
@@ -44,6 +48,8 @@ import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.LocalCacheScope;
 import org.apache.ibatis.transaction.TransactionFactory;
+import org.apache.ibatis.transaction.routing.LoadBalancer;
+import org.apache.ibatis.transaction.routing.ReplicaPool;
 import org.apache.ibatis.type.JdbcType;
 
 /**
@@ -134,6 +140,7 @@ public class XMLConfigBuilder extends BaseBuilder {
    *    objectFactory 标签
    *    objectWrapperFactory 标签
    *    reflectorFactory 标签
+   *    cacheInvalidationBus 标签
    *    environments 标签
    *    databaseIdProvider 标签
    *    typeHandlers 标签
@@ -173,6 +180,8 @@ public class XMLConfigBuilder extends BaseBuilder {
       reflectorFactoryElement(root.evalNode("reflectorFactory"));
       settingsElement(settings);
       // read it after objectFactory and objectWrapperFactory issue #631
+      // 在 settings 之后解析，覆盖 cacheInvalidationBus 设置
+      cacheInvalidationBusElement(root.evalNode("cacheInvalidationBus"));
 
       /**
        * 处理<environments>标签 {@link #environmentsElement(XNode)}
@@ -333,6 +342,18 @@ public class XMLConfigBuilder extends BaseBuilder {
     }
   }
 
+  private void cacheInvalidationBusElement(XNode context) {
+    if (context != null) {
+      // 获取<cacheInvalidationBus>标签的type属性，例如 FILE_BUS、IN_JVM_BUS
+      String type = context.getStringAttribute("type");
+      CacheInvalidationBus bus = (CacheInvalidationBus) createInstance(type);
+
+      // 例如文件总线的 file、进程内总线的 channel，避免不相关的配置共用默认的文件或频道
+      bus.setProperties(context.getChildrenAsProperties());
+      configuration.setCacheInvalidationBus(bus);
+    }
+  }
+
   /**
    *  核心逻辑，解析 mybatis-config.xml 配置文件 <properties></properties> 标签
    *
@@ -371,6 +392,19 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setAutoMappingBehavior(AutoMappingBehavior.valueOf(props.getProperty("autoMappingBehavior", "PARTIAL")));
     configuration.setAutoMappingUnknownColumnBehavior(AutoMappingUnknownColumnBehavior.valueOf(props.getProperty("autoMappingUnknownColumnBehavior", "NONE")));
     configuration.setCacheEnabled(booleanValueOf(props.getProperty("cacheEnabled"), true));
+    configuration.setCacheDependencyTracking(booleanValueOf(props.getProperty("cacheDependencyTracking"), false));
+    configuration.setCacheStatisticsEnabled(booleanValueOf(props.getProperty("cacheStatisticsEnabled"), false));
+    configuration.setCacheInvalidationBus((CacheInvalidationBus) createInstance(props.getProperty("cacheInvalidationBus")));
+    configuration.setCacheSnapshotFile(props.getProperty("cacheSnapshotFile"));
+    configuration.setCacheSpoolLimit(integerValueOf(props.getProperty("cacheSpoolLimit"), null));
+    configuration.setBatchFlushSize(integerValueOf(props.getProperty("batchFlushSize"), null));
+    configuration.setReplicaReadsInTransactions(booleanValueOf(props.getProperty("replicaReadsInTransactions"), true));
+    configuration.setRewriteBatchedInserts(booleanValueOf(props.getProperty("rewriteBatchedInserts"), false));
+    configuration.setBatchInsertMaxParameters(integerValueOf(props.getProperty("batchInsertMaxParameters"), null));
+    configuration.setNestedSelectBatchSize(integerValueOf(props.getProperty("nestedSelectBatchSize"), null));
+    configuration.setAdaptiveFetchSize(booleanValueOf(props.getProperty("adaptiveFetchSize"), false));
+    configuration.setMaxAdaptiveFetchSize(integerValueOf(props.getProperty("maxAdaptiveFetchSize"), null));
+    configuration.setAsyncExecutor((Executor) createInstance(props.getProperty("asyncExecutor")));
     configuration.setProxyFactory((ProxyFactory) createInstance(props.getProperty("proxyFactory")));
     configuration.setLazyLoadingEnabled(booleanValueOf(props.getProperty("lazyLoadingEnabled"), false));
     configuration.setAggressiveLazyLoading(booleanValueOf(props.getProperty("aggressiveLazyLoading"), false));
@@ -384,6 +418,8 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setMapUnderscoreToCamelCase(booleanValueOf(props.getProperty("mapUnderscoreToCamelCase"), false));
     configuration.setSafeRowBoundsEnabled(booleanValueOf(props.getProperty("safeRowBoundsEnabled"), false));
     configuration.setLocalCacheScope(LocalCacheScope.valueOf(props.getProperty("localCacheScope", "SESSION")));
+    configuration.setLocalCacheSize(integerValueOf(props.getProperty("localCacheSize"), null));
+    configuration.setLocalCacheMaxBytes(longValueOf(props.getProperty("localCacheMaxBytes"), null));
     configuration.setJdbcTypeForNull(JdbcType.valueOf(props.getProperty("jdbcTypeForNull", "OTHER")));
     configuration.setLazyLoadTriggerMethods(stringSetValueOf(props.getProperty("lazyLoadTriggerMethods"), "equals,clone,hashCode,toString"));
     configuration.setSafeResultHandlerEnabled(booleanValueOf(props.getProperty("safeResultHandlerEnabled"), true));
@@ -422,7 +458,8 @@ public class XMLConfigBuilder extends BaseBuilder {
           // 创建Environment对象，并关联创建好的TransactionFactory和DataSource
           Environment.Builder environmentBuilder = new Environment.Builder(id)
               .transactionFactory(txFactory)
-              .dataSource(dataSource);
+              .dataSource(dataSource)
+              .replicaPool(replicasElement(child.evalNode("replicas")));
 
           // 将Environment对象记录到Configuration中，等待后续使用
           configuration.setEnvironment(environmentBuilder.build());
@@ -431,6 +468,22 @@ public class XMLConfigBuilder extends BaseBuilder {
     }
   }
 
+  /**
+   * 处理<replicas>标签，创建读写分离使用的从库
+   */
+  private ReplicaPool replicasElement(XNode context) throws Exception {
+    if (context == null) {
+      return null;
+    }
+    List<DataSource> dataSources = new ArrayList<>();
+    for (XNode dataSourceNode : context.evalNodes("dataSource")) {
+      dataSources.add(dataSourceElement(dataSourceNode).getDataSource());
+    }
+    String type = context.getStringAttribute("loadBalancer", "ROUND_ROBIN");
+    LoadBalancer loadBalancer = (LoadBalancer) resolveClass(type).getDeclaredConstructor().newInstance();
+    return new ReplicaPool(dataSources, loadBalancer);
+  }
+
   /**
    * 处理<databaseIdProvider>标签
    * @param context
@@ -33,6 +33,8 @@ import org.apache.ibatis.builder.IncompleteElementException;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
 import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.copier.CacheCopier;
+import org.apache.ibatis.cache.weigher.Weigher;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.Discriminator;
@@ -270,15 +272,30 @@ public class XMLMapperBuilder extends BaseBuilder {
       String eviction = context.getStringAttribute("eviction", "LRU");
       Class<? extends Cache> evictionClass = typeAliasRegistry.resolveAlias(eviction);
       Long flushInterval = context.getLongAttribute("flushInterval");
+
+      // 每个缓存项的存活时间，提前刷新通过 refreshAhead 属性设置
+      Long timeToLive = context.getLongAttribute("timeToLive");
+
+      // 缓存项过期或被清空后继续返回旧值的宽限期，期间在后台重新查询
+      Long staleWhileRevalidate = context.getLongAttribute("staleWhileRevalidate");
       Integer size = context.getIntAttribute("size");
+
+      // 按内存估算大小限制缓存，weigher 默认使用 ObjectSizeWeigher
+      Long maxBytes = context.getLongAttribute("maxBytes");
+      String weigher = context.getStringAttribute("weigher");
+      Class<? extends Weigher> weigherClass = typeAliasRegistry.resolveAlias(weigher);
       boolean readWrite = !context.getBooleanAttribute("readOnly", false);
       boolean blocking = context.getBooleanAttribute("blocking", false);
+
+      // 读写缓存的对象复制策略，默认使用 Java 序列化
+      String copier = context.getStringAttribute("copier");
+      Class<? extends CacheCopier> copierClass = typeAliasRegistry.resolveAlias(copier);
       Properties props = context.getChildrenAsProperties();
 
       /**
-       * 创建二级缓存实例 {@link MapperBuilderAssistant#useNewCache(Class, Class, Long, Integer, boolean, boolean, Properties)}
+       * 创建二级缓存实例 {@link MapperBuilderAssistant#useNewCache(Class, Class, Long, Long, Long, Integer, Long, Class, boolean, boolean, Class, Properties)}
        */
-      builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, props);
+      builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, timeToLive, staleWhileRevalidate, size, maxBytes, weigherClass, readWrite, blocking, copierClass, props);
     }
   }
 
@@ -485,10 +502,11 @@ public class XMLMapperBuilder extends BaseBuilder {
     String resultSet = context.getStringAttribute("resultSet");
     String foreignColumn = context.getStringAttribute("foreignColumn");
     boolean lazy = "lazy".equals(context.getStringAttribute("fetchType", configuration.isLazyLoadingEnabled() ? "lazy" : "eager"));
+    String batchKey = context.getStringAttribute("batchKey");
     Class<?> javaTypeClass = resolveClass(javaType);
     Class<? extends TypeHandler<?>> typeHandlerClass = resolveClass(typeHandler);
     JdbcType jdbcTypeEnum = resolveJdbcType(jdbcType);
-    return builderAssistant.buildResultMapping(resultType, property, column, javaTypeClass, jdbcTypeEnum, nestedSelect, nestedResultMap, notNullColumn, columnPrefix, typeHandlerClass, flags, resultSet, foreignColumn, lazy);
+    return builderAssistant.buildResultMapping(resultType, property, column, javaTypeClass, jdbcTypeEnum, nestedSelect, nestedResultMap, notNullColumn, columnPrefix, typeHandlerClass, flags, resultSet, foreignColumn, lazy, batchKey);
   }
 
   private String processNestedResultMappings(XNode context, List<ResultMapping> resultMappings, Class<?> enclosingType) throws Exception {
@@ -153,13 +153,18 @@ public class XMLStatementBuilder extends BaseBuilder {
     String keyColumn = context.getStringAttribute("keyColumn");
     String resultSets = context.getStringAttribute("resultSets");
 
+    // 语句读写的表，开启 cacheDependencyTracking 时用于按表失效二级缓存
+    String tables = context.getStringAttribute("tables");
+    // 读写分离时，是否强制在主库上查询
+    boolean usePrimary = context.getBooleanAttribute("usePrimary", false);
+
     /**
-     * 封装成 MappedStatement {@link MapperBuilderAssistant#addMappedStatement(String, SqlSource, StatementType, SqlCommandType, Integer, Integer, String, Class, String, Class, ResultSetType, boolean, boolean, boolean, KeyGenerator, String, String, String, LanguageDriver, String)}
+     * 封装成 MappedStatement {@link MapperBuilderAssistant#addMappedStatement(String, SqlSource, StatementType, SqlCommandType, Integer, Integer, String, Class, String, Class, ResultSetType, boolean, boolean, boolean, KeyGenerator, String, String, String, LanguageDriver, String, String, boolean)}
      */
     builderAssistant.addMappedStatement(id, sqlSource, statementType, sqlCommandType,
         fetchSize, timeout, parameterMap, parameterTypeClass, resultMap, resultTypeClass,
         resultSetTypeEnum, flushCache, useCache, resultOrdered,
-        keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets);
+        keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets, tables, usePrimary);
   }
 
   /**
@@ -194,6 +199,7 @@ public class XMLStatementBuilder extends BaseBuilder {
     String keyProperty = nodeToHandle.getStringAttribute("keyProperty");
     String keyColumn = nodeToHandle.getStringAttribute("keyColumn");
     boolean executeBefore = "BEFORE".equals(nodeToHandle.getStringAttribute("order", "AFTER"));
+    int allocationSize = nodeToHandle.getIntAttribute("allocationSize", 1);
 
     //defaults
     boolean useCache = false;
@@ -220,7 +226,7 @@ public class XMLStatementBuilder extends BaseBuilder {
 
     // 创建<selectKey>标签对应的KeyGenerator对象，这个KeyGenerator对象会添加到Configuration.keyGenerators集合中
     MappedStatement keyStatement = configuration.getMappedStatement(id, false);
-    configuration.addKeyGenerator(id, new SelectKeyGenerator(keyStatement, executeBefore));
+    configuration.addKeyGenerator(id, builderAssistant.buildSelectKeyGenerator(keyStatement, executeBefore, allocationSize));
   }
 
   private void removeSelectKeyNodes(List<XNode> selectKeyNodes) {
@@ -15,6 +15,11 @@
  */
 package org.apache.ibatis.cache;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
 
 /**
@@ -84,6 +89,140 @@ public interface Cache {
    */
   Object removeObject(Object key);
 
+  /**
+   * Adds several entries at once. Decorators that take a lock or do some work per call should override it
+   * so that the whole batch is handled in a single pass.
+   *
+   * @param entries Keys and values to add, a value may be null to release a blocking key
+   * @since 3.5.3
+   *
+   *  批量添加缓存，事务提交时使用。
+   */
+  default void putAll(Map<?, ?> entries) {
+    for (Map.Entry<?, ?> entry : entries.entrySet()) {
+      putObject(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * @param keys The keys to look up
+   * @return The entries found in the cache, keys that are not cached are left out
+   * @since 3.5.3
+   *
+   *  批量查询缓存
+   */
+  default Map<Object, Object> getAll(Collection<?> keys) {
+    Map<Object, Object> entries = new HashMap<>();
+    for (Object key : keys) {
+      Object value = getObject(key);
+      if (value != null) {
+        entries.put(key, value);
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Same as calling {@link #removeObject(Object)} for every key.
+   *
+   * @param keys The keys to remove
+   * @since 3.5.3
+   *
+   *  批量删除缓存
+   */
+  default void removeAll(Collection<?> keys) {
+    for (Object key : keys) {
+      removeObject(key);
+    }
+  }
+
+  /**
+   * Removes the entries that depend on any of the given tags, usually table names. Entries are tagged through
+   * {@link CacheKey#getTags()}. Caches that do not index their entries by tag must remove everything, which is
+   * what the default implementation does, and decorators must pass the call on to their delegate.
+   *
+   * @param tags The tags that changed
+   * @since 3.5.3
+   *
+   *  按标签（表名）删除缓存
+   */
+  default void removeTagged(Collection<String> tags) {
+    clear();
+  }
+
+  /**
+   * Optional. Used to save the content of the cache, see {@link org.apache.ibatis.cache.snapshot.CacheSnapshot}.
+   * Same as {@link #getObject(Object)} without its side effects: no statistics, no change to the eviction order,
+   * no lock and no background refresh. The default implementation calls {@link #getObject(Object)}, decorators must
+   * pass the call on to their delegate.
+   *
+   * @param key The key
+   * @return The object stored in the cache, or null
+   * @since 3.5.3
+   *
+   *  读取缓存项，不影响命中率统计、淘汰顺序等
+   */
+  default Object peekObject(Object key) {
+    return getObject(key);
+  }
+
+  /**
+   * Optional. Used to save the content of the cache, see {@link org.apache.ibatis.cache.snapshot.CacheSnapshot}.
+   * Caches that do not expire their entries return -1, which is what the default implementation does, and
+   * decorators that can be placed above an expiring cache must pass the call on to their delegate.
+   *
+   * @param key The key
+   * @return The milliseconds the entry has left to live, or -1 if it does not expire
+   * @since 3.5.3
+   *
+   *  缓存项的剩余存活时间
+   */
+  default long getTimeToLive(Object key) {
+    return -1;
+  }
+
+  /**
+   * Optional. Used to restore the content of the cache, see {@link org.apache.ibatis.cache.snapshot.CacheSnapshot}.
+   * Same as {@link #putObject(Object, Object)}, except that the entry expires after the given time instead of the
+   * time to live of the cache. The default implementation ignores the time, decorators that can be placed above an
+   * expiring cache must pass the call on to their delegate.
+   *
+   * @param key Can be any object but usually it is a {@link CacheKey}
+   * @param value The result of a select.
+   * @param timeToLive The milliseconds the entry has left to live
+   * @since 3.5.3
+   */
+  default void putObject(Object key, Object value, long timeToLive) {
+    putObject(key, value);
+  }
+
+  /**
+   * Optional. Whether the {@link CacheKey} of the entries put in this cache should carry the {@link CacheLoader}
+   * that reloads them, for instance to refresh them in the background. Loaders keep the parameter object of the
+   * query reachable, so they are only attached when needed. Decorators that can be placed above an expiring cache
+   * must pass the call on to their delegate.
+   *
+   * @return true if the cache reloads entries through their loader
+   * @since 3.5.3
+   */
+  default boolean usesLoaders() {
+    return false;
+  }
+
+  /**
+   * Optional. Used to save the content of the cache, see {@link org.apache.ibatis.cache.snapshot.CacheSnapshot}.
+   * Caches that cannot list their keys return an empty set, which is what the default implementation does, and
+   * decorators must pass the call on to their delegate.
+   *
+   * @return A copy of the keys currently stored, some of which may already be expired
+   * @since 3.5.3
+   *
+   *  获取缓存中所有的 key
+   */
+  default Set<Object> getKeys() {
+    return Collections.emptySet();
+  }
+
   /**
    * Clears this cache instance.
    */
@@ -15,6 +15,8 @@
  */
 package org.apache.ibatis.cache;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -33,6 +35,7 @@ public class CacheKey implements Cloneable, Serializable {
 
   private static final int DEFAULT_MULTIPLYER = 37;
   private static final int DEFAULT_HASHCODE = 17;
+  private static final long CHECKSUM_MULTIPLIER = 0x9E3779B97F4A7C15L;
 
   private final int multiplier;
   private int hashcode;
@@ -40,6 +43,10 @@ public class CacheKey implements Cloneable, Serializable {
   private int count;
   // 8/21/2017 - Sonarlint flags this as needing to be marked transient.  While true if content is not serializable, this is not always true and thus should not be marked transient.
   private List<Object> updateList;
+  // 重新加载缓存项所需的信息，不参与 equals/hashCode，也不序列化
+  private transient CacheLoader loader;
+  // 缓存项依赖的表，用于按表失效
+  private transient String[] tags;
 
   public CacheKey() {
     this.hashcode = DEFAULT_HASHCODE;
@@ -48,8 +55,32 @@ public class CacheKey implements Cloneable, Serializable {
     this.updateList = new ArrayList<>();
   }
 
+  /**
+   * Creates an empty key with room for the given number of components, so that building it does not need
+   * to grow its storage.
+   */
+  public CacheKey(int expectedUpdateCount) {
+    this.hashcode = DEFAULT_HASHCODE;
+    this.multiplier = DEFAULT_MULTIPLYER;
+    this.count = 0;
+    this.updateList = new ArrayList<>(expectedUpdateCount);
+  }
+
+  /**
+   * Creates a key that starts with the components of <code>prefix</code>, reusing its precomputed hashes.
+   * The result is equal to a key built by updating the same components one by one.
+   */
+  public CacheKey(CacheKey prefix, int expectedUpdateCount) {
+    this.hashcode = prefix.hashcode;
+    this.multiplier = prefix.multiplier;
+    this.checksum = prefix.checksum;
+    this.count = prefix.count;
+    this.updateList = new ArrayList<>(Math.max(expectedUpdateCount, prefix.updateList.size()));
+    this.updateList.addAll(prefix.updateList);
+  }
+
   public CacheKey(Object[] objects) {
-    this();
+    this(objects.length);
     updateAll(objects);
   }
 
@@ -58,15 +89,30 @@ public class CacheKey implements Cloneable, Serializable {
   }
 
   public void update(Object object) {
+    hash(object);
+    updateList.add(object);
+  }
+
+  private void hash(Object object) {
     int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object);
 
     count++;
-    checksum += baseHashCode;
+    // 64 位混合校验值，与 hashcode 一起使用，减少 equals 时逐个比较元素的次数
+    checksum = mix(checksum * CHECKSUM_MULTIPLIER + baseHashCode);
     baseHashCode *= count;
 
     hashcode = multiplier * hashcode + baseHashCode;
+  }
 
-    updateList.add(object);
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    // 枚举等对象的 hashCode 在每个 JVM 中都不同，反序列化后重新计算
+    hashcode = DEFAULT_HASHCODE;
+    checksum = 0;
+    count = 0;
+    for (Object object : updateList) {
+      hash(object);
+    }
   }
 
   public void updateAll(Object[] objects) {
@@ -75,6 +121,28 @@ public class CacheKey implements Cloneable, Serializable {
     }
   }
 
+  /**
+   * @return The loader able to rebuild the value cached under this key, or null if there is none
+   */
+  public CacheLoader getLoader() {
+    return loader;
+  }
+
+  public void setLoader(CacheLoader loader) {
+    this.loader = loader;
+  }
+
+  /**
+   * @return The tags (table names) the value cached under this key depends on, or null if they are unknown
+   */
+  public String[] getTags() {
+    return tags;
+  }
+
+  public void setTags(String[] tags) {
+    this.tags = tags;
+  }
+
   @Override
   public boolean equals(Object object) {
     if (this == object) {
@@ -111,6 +179,15 @@ public class CacheKey implements Cloneable, Serializable {
     return hashcode;
   }
 
+  private static long mix(long value) {
+    value ^= value >>> 33;
+    value *= 0xFF51AFD7ED558CCDL;
+    value ^= value >>> 33;
+    value *= 0xC4CEB9FE1A85EC53L;
+    value ^= value >>> 33;
+    return value;
+  }
+
   @Override
   public String toString() {
     StringJoiner returnValue = new StringJoiner(":");
@@ -0,0 +1,35 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Loads again the value of a cache entry from its source, for example by executing the statement that produced it.
+ * <p>
+ * Loaders travel with the {@link CacheKey} they belong to, so that cache decorators can refresh an entry without
+ * knowing how it was built.
+ *
+ * @see CacheKey#getLoader()
+ */
+@FunctionalInterface
+public interface CacheLoader {
+
+  /**
+   * @return The fresh value, or null if the entry can not be loaded again
+   * @throws Exception if the source could not be read
+   */
+  Object load() throws Exception;
+
+}
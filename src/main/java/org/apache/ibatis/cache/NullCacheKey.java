@@ -35,4 +35,14 @@ public final class NullCacheKey extends CacheKey {
   public void updateAll(Object[] objects) {
     throw new CacheException("Not allowed to update a NullCacheKey instance.");
   }
+
+  @Override
+  public void setTags(String[] tags) {
+    throw new CacheException("Not allowed to update a NullCacheKey instance.");
+  }
+
+  @Override
+  public void setLoader(CacheLoader loader) {
+    throw new CacheException("Not allowed to update a NullCacheKey instance.");
+  }
 }
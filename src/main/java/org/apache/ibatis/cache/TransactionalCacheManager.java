@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.cache;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -34,6 +35,10 @@ public class TransactionalCacheManager {
     getTransactionalCache(cache).clear();
   }
 
+  public void removeTagged(Cache cache, Collection<String> tags) {
+    getTransactionalCache(cache).removeTagged(tags);
+  }
+
   public Object getObject(Cache cache, CacheKey key) {
 
     /**
@@ -0,0 +1,121 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.copier;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.executor.loader.WriteReplaceInterface;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * Copy plan of a java bean, built once per class from its {@link Reflector}: the default constructor and the
+ * properties that can be both read and written.
+ */
+final class BeanPlan {
+
+  private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.asList(
+      String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+      Float.class, Double.class, BigDecimal.class, BigInteger.class, Class.class, java.util.UUID.class,
+      java.util.Locale.class, java.util.Currency.class));
+
+  private final Constructor<?> constructor;
+  private final Invoker[] getters;
+  private final Invoker[] setters;
+
+  private BeanPlan(Constructor<?> constructor, Invoker[] getters, Invoker[] setters) {
+    this.constructor = constructor;
+    this.getters = getters;
+    this.setters = setters;
+  }
+
+  /**
+   * @return the plan, or null when the class has no default constructor
+   */
+  static BeanPlan forReflector(Reflector reflector) {
+    if (!reflector.hasDefaultConstructor()) {
+      return null;
+    }
+    String[] names = reflector.getGetablePropertyNames().clone();
+    // 固定属性顺序，写入和读取时保持一致
+    Arrays.sort(names);
+    List<Invoker> getters = new ArrayList<>();
+    List<Invoker> setters = new ArrayList<>();
+    for (String name : names) {
+      if (reflector.hasSetter(name)) {
+        getters.add(reflector.getGetInvoker(name));
+        setters.add(reflector.getSetInvoker(name));
+      }
+    }
+    return new BeanPlan(reflector.getDefaultConstructor(), getters.toArray(new Invoker[0]),
+        setters.toArray(new Invoker[0]));
+  }
+
+  static boolean isImmutable(Class<?> type) {
+    return type.isPrimitive() || IMMUTABLE_TYPES.contains(type) || type.isEnum()
+        || (type.getSuperclass() != null && type.getSuperclass().isEnum())
+        || type.getName().startsWith("java.time.");
+  }
+
+  /**
+   * Lazy loading proxies and dynamic proxies can only be copied safely through their serialization hooks.
+   */
+  static boolean requiresSerialization(Class<?> type) {
+    return WriteReplaceInterface.class.isAssignableFrom(type) || Proxy.isProxyClass(type);
+  }
+
+  int size() {
+    return getters.length;
+  }
+
+  Object newInstance() {
+    try {
+      return constructor.newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Error instantiating " + constructor.getDeclaringClass() + " for copying.  Cause: " + e, e);
+    }
+  }
+
+  Object get(Object bean, int property) {
+    try {
+      return getters[property].invoke(bean, null);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new CacheException("Error reading a property of " + bean.getClass() + " for copying.  Cause: "
+          + ExceptionUtil.unwrapThrowable(e), e);
+    }
+  }
+
+  void set(Object bean, int property, Object value) {
+    try {
+      setters[property].invoke(bean, new Object[] { value });
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new CacheException("Error writing a property of " + bean.getClass() + " for copying.  Cause: "
+          + ExceptionUtil.unwrapThrowable(e), e);
+    }
+  }
+
+}
@@ -0,0 +1,449 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.copier;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.ReflectorFactory;
+
+/**
+ * Stores values in a compact binary form instead of java serialization.
+ * <p>
+ * Common JDBC types, collections, maps and arrays are written with a one byte tag, beans are written as their
+ * class followed by their property values (see {@link org.apache.ibatis.reflection.Reflector}), class names are
+ * written once per value and repeated references are written as back references. Anything else falls back to java
+ * serialization.
+ */
+public class BinaryCopier implements CacheCopier {
+
+  private static final int NULL = 0;
+  private static final int REFERENCE = 1;
+  private static final int STRING = 2;
+  private static final int INTEGER = 3;
+  private static final int LONG = 4;
+  private static final int SHORT = 5;
+  private static final int BYTE = 6;
+  private static final int BOOLEAN = 7;
+  private static final int CHARACTER = 8;
+  private static final int FLOAT = 9;
+  private static final int DOUBLE = 10;
+  private static final int BIG_DECIMAL = 11;
+  private static final int BIG_INTEGER = 12;
+  private static final int DATE = 13;
+  private static final int ENUM = 14;
+  private static final int BYTES = 15;
+  private static final int ARRAY = 16;
+  private static final int COLLECTION = 17;
+  private static final int MAP = 18;
+  private static final int BEAN = 19;
+  private static final int SERIALIZED = 20;
+
+  private static final Map<String, Class<?>> PRIMITIVE_TYPES = new HashMap<>();
+
+  static {
+    for (Class<?> type : new Class<?>[] { boolean.class, byte.class, char.class, short.class, int.class, long.class,
+        float.class, double.class }) {
+      PRIMITIVE_TYPES.put(type.getName(), type);
+    }
+  }
+
+  private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+  private final Map<Class<?>, Optional<BeanPlan>> beanPlans = new ConcurrentHashMap<>();
+  private final SerializingCopier serializingCopier = new SerializingCopier();
+
+  @Override
+  public Object copyForCache(Object value) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      new Writer(new DataOutputStream(bytes)).write(value);
+    } catch (IOException e) {
+      throw new CacheException("Error encoding object.  Cause: " + e, e);
+    }
+    return bytes.toByteArray();
+  }
+
+  @Override
+  public Object copyFromCache(Object cached) {
+    try {
+      return new Reader(new DataInputStream(new ByteArrayInputStream((byte[]) cached))).read();
+    } catch (IOException | ClassNotFoundException e) {
+      throw new CacheException("Error decoding object.  Cause: " + e, e);
+    }
+  }
+
+  private BeanPlan beanPlan(Class<?> type) {
+    return beanPlans.computeIfAbsent(type,
+        t -> Optional.ofNullable(BeanPlan.forReflector(reflectorFactory.findForClass(t)))).orElse(null);
+  }
+
+  /**
+   * @return the class to instantiate when decoding the container, or null if it can not be rebuilt from its elements
+   */
+  private static Class<?> containerType(Object container) {
+    if (container instanceof SortedSet && ((SortedSet<?>) container).comparator() != null
+        || container instanceof SortedMap && ((SortedMap<?, ?>) container).comparator() != null) {
+      return null;
+    }
+    try {
+      container.getClass().getConstructor();
+      return container.getClass();
+    } catch (NoSuchMethodException e) {
+      if (container instanceof Set) {
+        return LinkedHashSet.class;
+      } else if (container instanceof Map) {
+        return LinkedHashMap.class;
+      } else {
+        return ArrayList.class;
+      }
+    }
+  }
+
+  private final class Writer {
+    private final DataOutputStream out;
+    private final Map<Object, Integer> references = new IdentityHashMap<>();
+    private final Map<Class<?>, Integer> classes = new HashMap<>();
+
+    Writer(DataOutputStream out) {
+      this.out = out;
+    }
+
+    void write(Object value) throws IOException {
+      if (value == null) {
+        out.writeByte(NULL);
+      } else if (value instanceof String) {
+        out.writeByte(STRING);
+        writeString((String) value);
+      } else if (value instanceof Integer) {
+        out.writeByte(INTEGER);
+        out.writeInt((Integer) value);
+      } else if (value instanceof Long) {
+        out.writeByte(LONG);
+        out.writeLong((Long) value);
+      } else if (value instanceof Short) {
+        out.writeByte(SHORT);
+        out.writeShort((Short) value);
+      } else if (value instanceof Byte) {
+        out.writeByte(BYTE);
+        out.writeByte((Byte) value);
+      } else if (value instanceof Boolean) {
+        out.writeByte(BOOLEAN);
+        out.writeBoolean((Boolean) value);
+      } else if (value instanceof Character) {
+        out.writeByte(CHARACTER);
+        out.writeChar((Character) value);
+      } else if (value instanceof Float) {
+        out.writeByte(FLOAT);
+        out.writeFloat((Float) value);
+      } else if (value instanceof Double) {
+        out.writeByte(DOUBLE);
+        out.writeDouble((Double) value);
+      } else if (value.getClass() == BigDecimal.class) {
+        out.writeByte(BIG_DECIMAL);
+        writeBytes(((BigDecimal) value).unscaledValue().toByteArray());
+        writeVarInt(((BigDecimal) value).scale());
+      } else if (value.getClass() == BigInteger.class) {
+        out.writeByte(BIG_INTEGER);
+        writeBytes(((BigInteger) value).toByteArray());
+      } else if (isStandardDate(value.getClass())) {
+        out.writeByte(DATE);
+        writeClass(value.getClass());
+        out.writeLong(((Date) value).getTime());
+        if (value instanceof Timestamp) {
+          writeVarInt(((Timestamp) value).getNanos());
+        }
+      } else if (value instanceof Enum) {
+        out.writeByte(ENUM);
+        writeClass(((Enum<?>) value).getDeclaringClass());
+        writeString(((Enum<?>) value).name());
+      } else if (!writeReference(value)) {
+        writeObject(value);
+      }
+    }
+
+    private boolean writeReference(Object value) throws IOException {
+      Integer reference = references.get(value);
+      if (reference != null) {
+        out.writeByte(REFERENCE);
+        writeVarInt(reference);
+        return true;
+      }
+      // 在写入子元素之前登记，读取时以相同顺序登记，从而支持循环引用
+      references.put(value, references.size());
+      return false;
+    }
+
+    private void writeObject(Object value) throws IOException {
+      Class<?> type = value.getClass();
+      if (type == byte[].class) {
+        out.writeByte(BYTES);
+        writeBytes((byte[]) value);
+      } else if (type.isArray()) {
+        out.writeByte(ARRAY);
+        writeClass(type.getComponentType());
+        int length = Array.getLength(value);
+        writeVarInt(length);
+        for (int i = 0; i < length; i++) {
+          write(Array.get(value, i));
+        }
+      } else if (value instanceof Collection && containerType(value) != null) {
+        out.writeByte(COLLECTION);
+        writeClass(containerType(value));
+        writeVarInt(((Collection<?>) value).size());
+        for (Object element : (Collection<?>) value) {
+          write(element);
+        }
+      } else if (value instanceof Map && containerType(value) != null) {
+        out.writeByte(MAP);
+        writeClass(containerType(value));
+        writeVarInt(((Map<?, ?>) value).size());
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          write(entry.getKey());
+          write(entry.getValue());
+        }
+      } else if (isBean(value) && beanPlan(type) != null) {
+        BeanPlan plan = beanPlan(type);
+        out.writeByte(BEAN);
+        writeClass(type);
+        for (int i = 0; i < plan.size(); i++) {
+          write(plan.get(value, i));
+        }
+      } else if (value instanceof Serializable) {
+        out.writeByte(SERIALIZED);
+        writeBytes(serializingCopier.serialize((Serializable) value));
+      } else {
+        throw new CacheException("BinaryCopier failed to encode " + type
+            + ". It has no default constructor and is not serializable.");
+      }
+    }
+
+    private void writeClass(Class<?> type) throws IOException {
+      Integer index = classes.get(type);
+      if (index != null) {
+        writeVarInt(index + 1);
+      } else {
+        classes.put(type, classes.size());
+        writeVarInt(0);
+        writeString(type.getName());
+      }
+    }
+
+    private void writeString(String value) throws IOException {
+      writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeBytes(byte[] value) throws IOException {
+      writeVarInt(value.length);
+      out.write(value);
+    }
+
+    private void writeVarInt(int value) throws IOException {
+      while ((value & ~0x7F) != 0) {
+        out.writeByte((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      out.writeByte(value);
+    }
+  }
+
+  private final class Reader {
+    private final DataInputStream in;
+    private final List<Object> references = new ArrayList<>();
+    private final List<Class<?>> classes = new ArrayList<>();
+
+    Reader(DataInputStream in) {
+      this.in = in;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    Object read() throws IOException, ClassNotFoundException {
+      int tag = in.readUnsignedByte();
+      switch (tag) {
+        case NULL:
+          return null;
+        case REFERENCE:
+          return references.get(readVarInt());
+        case STRING:
+          return readString();
+        case INTEGER:
+          return in.readInt();
+        case LONG:
+          return in.readLong();
+        case SHORT:
+          return in.readShort();
+        case BYTE:
+          return in.readByte();
+        case BOOLEAN:
+          return in.readBoolean();
+        case CHARACTER:
+          return in.readChar();
+        case FLOAT:
+          return in.readFloat();
+        case DOUBLE:
+          return in.readDouble();
+        case BIG_DECIMAL:
+          return new BigDecimal(new BigInteger(readBytes()), readVarInt());
+        case BIG_INTEGER:
+          return new BigInteger(readBytes());
+        case DATE:
+          return readDate(readClass());
+        case ENUM:
+          return Enum.valueOf((Class<Enum>) readClass(), readString());
+        case BYTES:
+          return register(readBytes());
+        case ARRAY: {
+          Class<?> componentType = readClass();
+          int length = readVarInt();
+          Object array = register(Array.newInstance(componentType, length));
+          for (int i = 0; i < length; i++) {
+            Array.set(array, i, read());
+          }
+          return array;
+        }
+        case COLLECTION: {
+          Collection<Object> collection = (Collection<Object>) register(newInstance(readClass()));
+          int size = readVarInt();
+          for (int i = 0; i < size; i++) {
+            collection.add(read());
+          }
+          return collection;
+        }
+        case MAP: {
+          Map<Object, Object> map = (Map<Object, Object>) register(newInstance(readClass()));
+          int size = readVarInt();
+          for (int i = 0; i < size; i++) {
+            map.put(read(), read());
+          }
+          return map;
+        }
+        case BEAN: {
+          BeanPlan plan = beanPlan(readClass());
+          Object bean = register(plan.newInstance());
+          for (int i = 0; i < plan.size(); i++) {
+            plan.set(bean, i, read());
+          }
+          return bean;
+        }
+        case SERIALIZED:
+          return register(serializingCopier.deserialize(readBytes()));
+        default:
+          throw new CacheException("Unknown tag " + tag + " in encoded cache value.");
+      }
+    }
+
+    private Object register(Object value) {
+      references.add(value);
+      return value;
+    }
+
+    private Date readDate(Class<?> type) throws IOException {
+      long time = in.readLong();
+      if (type == Timestamp.class) {
+        Timestamp timestamp = new Timestamp(time);
+        timestamp.setNanos(readVarInt());
+        return timestamp;
+      } else if (type == java.sql.Date.class) {
+        return new java.sql.Date(time);
+      } else if (type == Time.class) {
+        return new Time(time);
+      } else {
+        return new Date(time);
+      }
+    }
+
+    private Object newInstance(Class<?> type) {
+      try {
+        return type.getConstructor().newInstance();
+      } catch (Exception e) {
+        throw new CacheException("Error instantiating " + type + " while decoding.  Cause: " + e, e);
+      }
+    }
+
+    private Class<?> readClass() throws IOException, ClassNotFoundException {
+      int index = readVarInt();
+      if (index > 0) {
+        return classes.get(index - 1);
+      }
+      String name = readString();
+      Class<?> type = PRIMITIVE_TYPES.get(name);
+      if (type == null) {
+        type = Resources.classForName(name);
+      }
+      classes.add(type);
+      return type;
+    }
+
+    private String readString() throws IOException {
+      return new String(readBytes(), StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes() throws IOException {
+      byte[] value = new byte[readVarInt()];
+      in.readFully(value);
+      return value;
+    }
+
+    private int readVarInt() throws IOException {
+      int value = 0;
+      int shift = 0;
+      int b;
+      do {
+        b = in.readUnsignedByte();
+        value |= (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+  }
+
+  private static boolean isBean(Object value) {
+    Class<?> type = value.getClass();
+    return !(value instanceof Collection) && !(value instanceof Map) && !(value instanceof Date)
+        && !BeanPlan.isImmutable(type) && !BeanPlan.requiresSerialization(type);
+  }
+
+  private static boolean isStandardDate(Class<?> type) {
+    return type == Date.class || type == java.sql.Date.class || type == Time.class || type == Timestamp.class;
+  }
+
+}
@@ -0,0 +1,39 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.copier;
+
+/**
+ * Copy strategy used by read-write caches so that callers never share the instances kept in the cache.
+ * <p>
+ * Implementations must be thread safe and have a no-argument constructor.
+ *
+ * @see org.apache.ibatis.cache.decorators.CopyingCache
+ */
+public interface CacheCopier {
+
+  /**
+   * @param value The result of a select, never null
+   * @return The representation to be stored in the cache
+   */
+  Object copyForCache(Object value);
+
+  /**
+   * @param cached The representation stored in the cache, never null
+   * @return A copy the caller is free to modify
+   */
+  Object copyFromCache(Object cached);
+
+}
@@ -0,0 +1,193 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.copier;
+
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.ReflectorFactory;
+
+/**
+ * Deep copies values property by property, using the {@link org.apache.ibatis.reflection.Reflector} metadata of
+ * each class. How a class is copied is decided once and kept in a per-class plan.
+ * <p>
+ * Immutable values (strings, numbers, enums, java.time types...) are shared, arrays, collections, maps and dates are
+ * copied, and beans are created with their default constructor and filled through their setters. Shared references
+ * and cycles are preserved. Classes without default constructor and lazy loading proxies fall back to java
+ * serialization.
+ */
+public class ReflectiveCopier implements CacheCopier {
+
+  private static final CopyPlan IMMUTABLE = (source, copies) -> source;
+
+  private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+  private final Map<Class<?>, CopyPlan> plans = new ConcurrentHashMap<>();
+  private final SerializingCopier serializingCopier = new SerializingCopier();
+
+  @Override
+  public Object copyForCache(Object value) {
+    return copy(value, new IdentityHashMap<>());
+  }
+
+  @Override
+  public Object copyFromCache(Object cached) {
+    return copy(cached, new IdentityHashMap<>());
+  }
+
+  private Object copy(Object value, Map<Object, Object> copies) {
+    if (value == null) {
+      return null;
+    }
+    CopyPlan plan = plans.computeIfAbsent(value.getClass(), this::createPlan);
+    if (plan == IMMUTABLE) {
+      return value;
+    }
+    Object copy = copies.get(value);
+    if (copy == null) {
+      copy = plan.copy(value, copies);
+    }
+    return copy;
+  }
+
+  private CopyPlan createPlan(Class<?> type) {
+    if (BeanPlan.isImmutable(type)) {
+      return IMMUTABLE;
+    }
+    if (BeanPlan.requiresSerialization(type)) {
+      return this::serializationCopy;
+    }
+    if (type.isArray()) {
+      return type.getComponentType().isPrimitive() ? ReflectiveCopier::primitiveArrayCopy : this::arrayCopy;
+    }
+    if (Date.class.isAssignableFrom(type)) {
+      return (source, copies) -> ((Date) source).clone();
+    }
+    if (Collection.class.isAssignableFrom(type)) {
+      return this::collectionCopy;
+    }
+    if (Map.class.isAssignableFrom(type)) {
+      return this::mapCopy;
+    }
+    BeanPlan beanPlan = BeanPlan.forReflector(reflectorFactory.findForClass(type));
+    if (beanPlan == null) {
+      return this::serializationCopy;
+    }
+    return (source, copies) -> {
+      Object target = beanPlan.newInstance();
+      copies.put(source, target);
+      for (int i = 0; i < beanPlan.size(); i++) {
+        beanPlan.set(target, i, copy(beanPlan.get(source, i), copies));
+      }
+      return target;
+    };
+  }
+
+  private Object serializationCopy(Object source, Map<Object, Object> copies) {
+    if (!(source instanceof Serializable)) {
+      throw new CacheException("ReflectiveCopier failed to make a copy of " + source.getClass()
+          + ". It has no default constructor and is not serializable.");
+    }
+    Object target = serializingCopier.deserialize(serializingCopier.serialize((Serializable) source));
+    copies.put(source, target);
+    return target;
+  }
+
+  private static Object primitiveArrayCopy(Object source, Map<Object, Object> copies) {
+    int length = Array.getLength(source);
+    Object target = Array.newInstance(source.getClass().getComponentType(), length);
+    System.arraycopy(source, 0, target, 0, length);
+    copies.put(source, target);
+    return target;
+  }
+
+  private Object arrayCopy(Object source, Map<Object, Object> copies) {
+    Object[] array = (Object[]) source;
+    Object[] target = (Object[]) Array.newInstance(source.getClass().getComponentType(), array.length);
+    copies.put(source, target);
+    for (int i = 0; i < array.length; i++) {
+      target[i] = copy(array[i], copies);
+    }
+    return target;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object collectionCopy(Object source, Map<Object, Object> copies) {
+    Collection<Object> target = (Collection<Object>) newContainer(source);
+    copies.put(source, target);
+    for (Object element : (Collection<Object>) source) {
+      target.add(copy(element, copies));
+    }
+    return target;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object mapCopy(Object source, Map<Object, Object> copies) {
+    Map<Object, Object> target = (Map<Object, Object>) newContainer(source);
+    copies.put(source, target);
+    for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) source).entrySet()) {
+      target.put(copy(entry.getKey(), copies), copy(entry.getValue(), copies));
+    }
+    return target;
+  }
+
+  /**
+   * Creates an empty container of the same class when possible, otherwise the closest standard implementation.
+   */
+  static Object newContainer(Object source) {
+    if (source instanceof SortedSet) {
+      return new TreeSet<>(((SortedSet<?>) source).comparator());
+    }
+    if (source instanceof SortedMap) {
+      return new TreeMap<>(((SortedMap<?, ?>) source).comparator());
+    }
+    try {
+      return source.getClass().getConstructor().newInstance();
+    } catch (Exception e) {
+      // e.g. Arrays.asList() or unmodifiable collections
+      if (source instanceof List) {
+        return new ArrayList<>();
+      } else if (source instanceof Set) {
+        return new LinkedHashSet<>();
+      } else if (source instanceof Map) {
+        return new LinkedHashMap<>();
+      } else {
+        return new ArrayList<>();
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface CopyPlan {
+    Object copy(Object source, Map<Object, Object> copies);
+  }
+
+}
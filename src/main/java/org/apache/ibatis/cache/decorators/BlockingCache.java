@@ -15,10 +15,15 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
@@ -26,25 +31,59 @@ import org.apache.ibatis.cache.CacheException;
 /**
  * Simple blocking decorator
  *
- * Simple and inefficient version of EhCache's BlockingCache decorator.
- * It sets a lock over a cache key when the element is not found in cache.
- * This way, other threads will wait until this element is filled instead of hitting the database.
+ * Single-flight version of EhCache's BlockingCache decorator.
+ * The first thread that misses a key becomes responsible for loading it. Other threads asking for the
+ * same key wait for that load and get its result handed over when it is put in the cache, instead of
+ * hitting the database or queueing behind a lock one after another.
+ * If the loading thread rolls back, waiting threads wake up and one of them takes over the load.
+ * Loads belong to the thread that started them, or to the owner passed to {@link #runAs(Object, Runnable)}, so that
+ * the operations of a session can start and finish a load on different threads.
  *
  * @author Eduardo Macarron
  *
  *
- *  阻塞版本的，缓存装饰器。能保证，同一时间只有一个线程到缓存，查找指定 key 对应的数据。
+ *  阻塞版本的，缓存装饰器。能保证，同一时间只有一个线程到数据库，查找指定 key 对应的数据。
  *
  */
 public class BlockingCache implements Cache {
 
+  // 异步会话的操作由线程池中的任意线程执行，这时以会话而不是线程作为加载的所有者
+  private static final ThreadLocal<Object> OWNER = new ThreadLocal<>();
+
   private long timeout;
+  private boolean copyOnHandOff;
   private final Cache delegate;
-  private final ConcurrentHashMap<Object, ReentrantLock> locks;
+
+  // 正在加载中的 key，value 为负责加载的线程及其结果
+  private final ConcurrentHashMap<Object, Flight> flights;
+  private final LongAdder coalesced = new LongAdder();
+  private final LongAdder waits = new LongAdder();
+  private final LongAdder waitTime = new LongAdder();
+
+  /**
+   * Runs a task on behalf of an owner instead of the current thread. The loads it starts belong to that owner and
+   * are completed or released by any other task run for the same owner, whatever thread runs it.
+   *
+   * @param owner The owner, for instance an asynchronous session
+   * @param task The task
+   */
+  public static void runAs(Object owner, Runnable task) {
+    Object previous = OWNER.get();
+    OWNER.set(owner);
+    try {
+      task.run();
+    } finally {
+      if (previous == null) {
+        OWNER.remove();
+      } else {
+        OWNER.set(previous);
+      }
+    }
+  }
 
   public BlockingCache(Cache delegate) {
     this.delegate = delegate;
-    this.locks = new ConcurrentHashMap<>();
+    this.flights = new ConcurrentHashMap<>();
   }
 
   @Override
@@ -62,67 +101,162 @@ public class BlockingCache implements Cache {
     try {
       delegate.putObject(key, value);
     } finally {
-      releaseLock(key);
+      Flight flight = flights.remove(key);
+      if (flight != null) {
+        flight.complete(value);
+      }
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value, long timeToLive) {
+    try {
+      delegate.putObject(key, value, timeToLive);
+    } finally {
+      Flight flight = flights.remove(key);
+      if (flight != null) {
+        flight.complete(value);
+      }
+    }
+  }
+
+  @Override
+  public long getTimeToLive(Object key) {
+    return delegate.getTimeToLive(key);
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    try {
+      delegate.putAll(entries);
+    } finally {
+      for (Map.Entry<?, ?> entry : entries.entrySet()) {
+        Flight flight = flights.remove(entry.getKey());
+        if (flight != null) {
+          flight.complete(entry.getValue());
+        }
+      }
+    }
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    Map<Object, Object> entries = delegate.getAll(keys);
+    if (entries.size() < keys.size()) {
+      // 未命中的 key 逐个走单飞加载流程
+      for (Object key : keys) {
+        if (!entries.containsKey(key)) {
+          Object value = getObject(key);
+          if (value != null) {
+            entries.put(key, value);
+          }
+        }
+      }
     }
+    return entries;
   }
 
   @Override
   public Object getObject(Object key) {
+    for (;;) {
+      Object value = delegate.getObject(key);
+      if (value != null) {
+        return value;
+      }
+      Flight flight = new Flight();
+      Flight current = flights.putIfAbsent(key, flight);
+      if (current == null) {
+        // 当前线程负责加载。再查一次，避免刚完成的加载被重复执行
+        value = delegate.getObject(key);
+        if (value != null) {
+          flights.remove(key, flight);
+          flight.complete(value);
+        }
+        return value;
+      }
+      if (current.isOwnedByCaller()) {
+        return null;
+      }
 
-    /**
-     * 获取锁{@link #acquireLock(Object)}
-     */
-    acquireLock(key);
-    Object value = delegate.getObject(key);
-    if (value != null) {
-      releaseLock(key);
+      /**
+       *  等待负责加载的线程 {@link #await(Object, Flight)}
+       */
+      value = await(key, current);
+      if (value != null) {
+        coalesced.increment();
+        if (!copyOnHandOff) {
+          return value;
+        }
+        value = delegate.getObject(key);
+        if (value != null) {
+          return value;
+        }
+      }
+      // 加载线程回滚或者结果已被清除，重新竞争加载
     }
-    return value;
   }
 
   @Override
   public Object removeObject(Object key) {
     // despite of its name, this method is called only to release locks
-    releaseLock(key);
+    Flight flight = flights.get(key);
+    if (flight != null && flight.isOwnedByCaller() && flights.remove(key, flight)) {
+      flight.complete(null);
+    }
     return null;
   }
 
   @Override
-  public void clear() {
-    delegate.clear();
+  public void removeAll(Collection<?> keys) {
+    for (Object key : keys) {
+      removeObject(key);
+    }
   }
 
-  private ReentrantLock getLockForKey(Object key) {
-    return locks.computeIfAbsent(key, k -> new ReentrantLock());
+  @Override
+  public void removeTagged(Collection<String> tags) {
+    delegate.removeTagged(tags);
   }
 
-  private void acquireLock(Object key) {
+  @Override
+  public Object peekObject(Object key) {
+    return delegate.peekObject(key);
+  }
 
-    /**
-     *  从 `locks` 中获取锁
-     */
-    Lock lock = getLockForKey(key);
-    if (timeout > 0) {
-      try {
-        // 根据 timeout 的值，决定则塞超时时间
-        boolean acquired = lock.tryLock(timeout, TimeUnit.MILLISECONDS);
+  @Override
+  public boolean usesLoaders() {
+    return delegate.usesLoaders();
+  }
 
-        // 超时未获取到锁，则抛出异常。
-        if (!acquired) {
-          throw new CacheException("Couldn't get a lock in " + timeout + " for the key " +  key + " at the cache " + delegate.getId());
-        }
-      } catch (InterruptedException e) {
-        throw new CacheException("Got interrupted while trying to acquire lock for key " + key, e);
-      }
-    } else {
-      lock.lock();
-    }
+  @Override
+  public Set<Object> getKeys() {
+    return delegate.getKeys();
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
   }
 
-  private void releaseLock(Object key) {
-    ReentrantLock lock = locks.get(key);
-    if (lock.isHeldByCurrentThread()) {
-      lock.unlock();
+  private Object await(Object key, Flight flight) {
+    long start = System.nanoTime();
+    try {
+      if (timeout > 0) {
+        // 根据 timeout 的值，决定阻塞超时时间
+        return flight.result.get(timeout, TimeUnit.MILLISECONDS);
+      }
+      return flight.result.get();
+    } catch (TimeoutException e) {
+      // 超时未等到结果，则抛出异常。
+      throw new CacheException("Couldn't get a lock in " + timeout + " for the key " +  key + " at the cache " + delegate.getId());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CacheException("Got interrupted while trying to acquire lock for key " + key, e);
+    } catch (ExecutionException e) {
+      throw new CacheException("Error while waiting for key " + key + " at the cache " + delegate.getId(), e);
+    } finally {
+      waits.increment();
+      waitTime.add(System.nanoTime() - start);
     }
   }
 
@@ -133,4 +267,55 @@ public class BlockingCache implements Cache {
   public void setTimeout(long timeout) {
     this.timeout = timeout;
   }
+
+  public boolean isCopyOnHandOff() {
+    return copyOnHandOff;
+  }
+
+  /**
+   * When enabled, waiting threads read the value back from the delegate instead of sharing the instance
+   * that was loaded. Required when the delegate hands out copies, e.g. with {@link SerializedCache}.
+   */
+  public void setCopyOnHandOff(boolean copyOnHandOff) {
+    this.copyOnHandOff = copyOnHandOff;
+  }
+
+  /**
+   * @return number of lookups that were answered by another thread's load instead of going to the database
+   */
+  public long getCoalescedCount() {
+    return coalesced.sum();
+  }
+
+  /**
+   * @return number of times a thread waited for another thread's load
+   */
+  public long getWaitCount() {
+    return waits.sum();
+  }
+
+  /**
+   * @return total time in nanoseconds threads spent waiting for another thread's load
+   */
+  public long getWaitTime() {
+    return waitTime.sum();
+  }
+
+  private static class Flight {
+    private final Object owner = currentOwner();
+    private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+    boolean isOwnedByCaller() {
+      return owner == currentOwner();
+    }
+
+    private static Object currentOwner() {
+      Object owner = OWNER.get();
+      return owner == null ? Thread.currentThread() : owner;
+    }
+
+    void complete(Object value) {
+      result.complete(value);
+    }
+  }
 }
@@ -0,0 +1,145 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.invalidation.CacheInvalidation;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
+
+/**
+ * Publishes the flushes of a cache to the other nodes through a {@link CacheInvalidationBus}, and applies the
+ * flushes they publish.
+ * <p>
+ * Only {@link #clear()} and {@link #removeTagged(Collection)} are published: they are what
+ * {@link org.apache.ibatis.cache.TransactionalCache} calls once a transaction that wrote to the database has been
+ * committed. Entries removed by the decorators below (eviction, expiry, flush interval) stay local.
+ */
+public class BroadcastingCache implements Cache {
+
+  private final Cache delegate;
+  private final CacheInvalidationBus bus;
+
+  public BroadcastingCache(Cache delegate, CacheInvalidationBus bus) {
+    this.delegate = delegate;
+    this.bus = bus;
+    bus.subscribe(delegate.getId(), this::apply);
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate.putObject(key, value);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    delegate.putAll(entries);
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    return delegate.getAll(keys);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    delegate.removeAll(keys);
+  }
+
+  @Override
+  public void removeTagged(Collection<String> tags) {
+    delegate.removeTagged(tags);
+    bus.publish(CacheInvalidation.tags(getId(), tags));
+  }
+
+  @Override
+  public Object peekObject(Object key) {
+    return delegate.peekObject(key);
+  }
+
+  @Override
+  public long getTimeToLive(Object key) {
+    return delegate.getTimeToLive(key);
+  }
+
+  @Override
+  public void putObject(Object key, Object value, long timeToLive) {
+    delegate.putObject(key, value, timeToLive);
+  }
+
+  @Override
+  public boolean usesLoaders() {
+    return delegate.usesLoaders();
+  }
+
+  @Override
+  public Set<Object> getKeys() {
+    return delegate.getKeys();
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    bus.publish(CacheInvalidation.clear(getId()));
+  }
+
+  public CacheInvalidationBus getBus() {
+    return bus;
+  }
+
+  private void apply(CacheInvalidation invalidation) {
+    // 其他节点发布的失效只作用于本地缓存，不再发布
+    if (invalidation.isClear()) {
+      delegate.clear();
+    } else {
+      delegate.removeTagged(invalidation.getTags());
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+}
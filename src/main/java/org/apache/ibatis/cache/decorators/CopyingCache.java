@@ -0,0 +1,100 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.Set;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.copier.CacheCopier;
+
+/**
+ * Read-write cache decorator that hands out copies made by a pluggable {@link CacheCopier}.
+ *
+ * @see SerializedCache
+ */
+public class CopyingCache implements Cache {
+
+  private final Cache delegate;
+  private final CacheCopier copier;
+
+  public CopyingCache(Cache delegate, CacheCopier copier) {
+    this.delegate = delegate;
+    this.copier = copier;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object object) {
+    delegate.putObject(key, object == null ? null : copier.copyForCache(object));
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object object = delegate.getObject(key);
+    return object == null ? null : copier.copyFromCache(object);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void removeTagged(Collection<String> tags) {
+    delegate.removeTagged(tags);
+  }
+
+  @Override
+  public Object peekObject(Object key) {
+    Object object = delegate.peekObject(key);
+    return object == null ? null : copier.copyFromCache(object);
+  }
+
+  @Override
+  public Set<Object> getKeys() {
+    return delegate.getKeys();
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+  }
+
+  public CacheCopier getCopier() {
+    return copier;
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+}
@@ -0,0 +1,136 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.stats.EvictionCounting;
+
+/**
+ * Wraps the base cache of a namespace and counts the entries the decorators above remove by themselves
+ * (LRU or FIFO eviction, memory bound, expiry, flush interval...). Removals asked for by the executor are
+ * not counted: {@link StatisticsCache} marks them while they go down the decorator chain.
+ */
+public class EvictionCountingCache implements Cache, EvictionCounting {
+
+  private final Cache delegate;
+  private final LongAdder evictions = new LongAdder();
+
+  // 当前线程正在执行的是外部请求的删除，而不是淘汰
+  private final ThreadLocal<Boolean> requested = new ThreadLocal<>();
+
+  public EvictionCountingCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate.putObject(key, value);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    delegate.putAll(entries);
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    return delegate.getAll(keys);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Object value = delegate.removeObject(key);
+    if (value != null && !isRequested()) {
+      evictions.increment();
+    }
+    return value;
+  }
+
+  @Override
+  public void removeTagged(Collection<String> tags) {
+    delegate.removeTagged(tags);
+  }
+
+  @Override
+  public Object peekObject(Object key) {
+    return delegate.peekObject(key);
+  }
+
+  @Override
+  public Set<Object> getKeys() {
+    return delegate.getKeys();
+  }
+
+  @Override
+  public void clear() {
+    if (!isRequested()) {
+      evictions.add(delegate.getSize());
+    }
+    delegate.clear();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    long count = evictions.sum();
+    if (delegate instanceof EvictionCounting) {
+      count += ((EvictionCounting) delegate).getEvictionCount();
+    }
+    return count;
+  }
+
+  void beginRequestedRemoval() {
+    requested.set(Boolean.TRUE);
+  }
+
+  void endRequestedRemoval() {
+    requested.remove();
+  }
+
+  private boolean isRequested() {
+    return requested.get() != null;
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+}
@@ -0,0 +1,442 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CacheLoader;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Cache decorator that expires each entry <code>timeToLive</code> milliseconds after it was put, instead of clearing
+ * the whole cache at once as {@link ScheduledCache} does.
+ * <p>
+ * Expiration times are kept in a hierarchical timer wheel that is advanced on every call, so expired entries are
+ * removed from the delegate in small steps. A get always checks the exact expiration time of the entry.
+ * <p>
+ * When <code>refreshAhead</code> is set, a hit on an entry that expires within that many milliseconds starts a
+ * background reload through the {@link CacheLoader} carried by its {@link CacheKey}, while the current value is
+ * still returned. The reloaded value is dropped if the cache was cleared or the entry removed in the meantime.
+ * <p>
+ * When <code>staleWhileRevalidate</code> is set, an entry that has a loader is kept that many milliseconds longer:
+ * a hit on an expired entry returns the previous value and starts a single background reload. Entries removed by
+ * {@link #clear()} or {@link #removeTagged(Collection)} are kept the same way, so a write keeps serving the previous
+ * results for up to that grace period, even to the session that made it once it committed. A <code>timeToLive</code>
+ * of zero or less means that entries only become stale when they are flushed.
+ */
+public class ExpiringCache implements Cache {
+
+  private static final Log log = LogFactory.getLog(ExpiringCache.class);
+
+  private final Cache delegate;
+  private final Map<Object, Node> entries = new HashMap<>();
+  private final TimerWheel wheel;
+  private long timeToLive = 60 * 60 * 1000; // 1 hour
+  private long refreshAhead;
+  private long staleWhileRevalidate;
+
+  // 每次 clear() 加一，用来丢弃清空之前发起的刷新
+  private int generation;
+
+  public ExpiringCache(Cache delegate) {
+    this.delegate = delegate;
+    this.wheel = new TimerWheel(System.currentTimeMillis());
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public synchronized int getSize() {
+    expire(System.currentTimeMillis());
+    return delegate.getSize();
+  }
+
+  public long getTimeToLive() {
+    return timeToLive;
+  }
+
+  public void setTimeToLive(long timeToLive) {
+    this.timeToLive = timeToLive;
+  }
+
+  public long getRefreshAhead() {
+    return refreshAhead;
+  }
+
+  public void setRefreshAhead(long refreshAhead) {
+    this.refreshAhead = refreshAhead;
+  }
+
+  public long getStaleWhileRevalidate() {
+    return staleWhileRevalidate;
+  }
+
+  public void setStaleWhileRevalidate(long staleWhileRevalidate) {
+    this.staleWhileRevalidate = staleWhileRevalidate;
+  }
+
+  @Override
+  public synchronized void putObject(Object key, Object value) {
+    long now = System.currentTimeMillis();
+    expire(now);
+    delegate.putObject(key, value);
+    schedule(key, value, now, timeToLive);
+  }
+
+  @Override
+  public synchronized void putObject(Object key, Object value, long timeToLive) {
+    long now = System.currentTimeMillis();
+    expire(now);
+    delegate.putObject(key, value);
+    schedule(key, value, now, timeToLive);
+  }
+
+  @Override
+  public synchronized Object getObject(Object key) {
+    long now = System.currentTimeMillis();
+    expire(now);
+    Node node = entries.get(key);
+    if (node != null && node.expireAt <= now && (node.removeAt <= now || loaderOf(node.key) == null)) {
+      unschedule(key);
+      delegate.removeObject(key);
+      return null;
+    }
+    Object value = delegate.getObject(key);
+    if (node != null && value != null
+        && (node.expireAt <= now || refreshAhead > 0 && now >= node.expireAt - refreshAhead)) {
+      // 已过期但仍在宽限期内的缓存项同样返回旧值并在后台刷新
+      refresh(node);
+    }
+    return value;
+  }
+
+  @Override
+  public synchronized Object removeObject(Object key) {
+    unschedule(key);
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public synchronized void removeTagged(Collection<String> tags) {
+    // 丢弃正在进行的刷新，避免把失效前读到的数据写回缓存
+    generation++;
+    Map<Node, Object> stale = retainStale(tags);
+    delegate.removeTagged(tags);
+    restoreStale(stale);
+  }
+
+  @Override
+  public synchronized Object peekObject(Object key) {
+    Node node = entries.get(key);
+    if (node != null && node.expireAt <= System.currentTimeMillis()) {
+      return null;
+    }
+    return delegate.peekObject(key);
+  }
+
+  @Override
+  public synchronized long getTimeToLive(Object key) {
+    Node node = entries.get(key);
+    if (node == null || node.expireAt == Long.MAX_VALUE) {
+      return -1;
+    }
+    return Math.max(0, node.expireAt - System.currentTimeMillis());
+  }
+
+  @Override
+  public boolean usesLoaders() {
+    return refreshAhead > 0 || staleWhileRevalidate > 0;
+  }
+
+  @Override
+  public synchronized Set<Object> getKeys() {
+    return delegate.getKeys();
+  }
+
+  @Override
+  public synchronized void clear() {
+    generation++;
+    Map<Node, Object> stale = retainStale(null);
+    entries.clear();
+    wheel.clear();
+    delegate.clear();
+    restoreStale(stale);
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+  private void expire(long now) {
+    wheel.advance(now, node -> {
+      entries.remove(node.key);
+      delegate.removeObject(node.key);
+    });
+  }
+
+  private void schedule(Object key, Object value, long now, long timeToLive) {
+    unschedule(key);
+    if (value != null) {
+      // TransactionalCache 为未命中的 key 写入的 null 不需要过期
+      Node node = timeToLive > 0
+          ? new Node(key, now + timeToLive, now + timeToLive + staleWhileRevalidate)
+          : new Node(key, Long.MAX_VALUE, Long.MAX_VALUE);
+      entries.put(key, node);
+      if (node.removeAt != Long.MAX_VALUE) {
+        wheel.schedule(node);
+      }
+    }
+  }
+
+  /**
+   * Reads the entries that can be served stale once removed: the ones with a loader that depend on the tags, or all
+   * of them when tags is null.
+   *
+   * @return the stale nodes that will replace the current ones, with their values
+   */
+  private Map<Node, Object> retainStale(Collection<String> tags) {
+    Map<Node, Object> stale = new LinkedHashMap<>();
+    if (staleWhileRevalidate <= 0) {
+      return stale;
+    }
+    long now = System.currentTimeMillis();
+    expire(now);
+    for (Node node : entries.values()) {
+      if (loaderOf(node.key) != null && (tags == null || TaggedCache.dependsOn(node.key, tags))) {
+        Object value = delegate.getObject(node.key);
+        if (value != null) {
+          // 立即过期，宽限期不超过原来的删除时间
+          stale.put(new Node(node.key, now, Math.min(node.removeAt, now + staleWhileRevalidate)), value);
+        }
+      }
+    }
+    return stale;
+  }
+
+  private void restoreStale(Map<Node, Object> stale) {
+    for (Map.Entry<Node, Object> entry : stale.entrySet()) {
+      Node node = entry.getKey();
+      unschedule(node.key);
+      delegate.putObject(node.key, entry.getValue());
+      entries.put(node.key, node);
+      wheel.schedule(node);
+    }
+  }
+
+  private void unschedule(Object key) {
+    Node node = entries.remove(key);
+    if (node != null) {
+      wheel.unschedule(node);
+    }
+  }
+
+  private static CacheLoader loaderOf(Object key) {
+    return key instanceof CacheKey ? ((CacheKey) key).getLoader() : null;
+  }
+
+  private void refresh(Node node) {
+    CacheLoader loader = loaderOf(node.key);
+    if (loader == null || node.refreshing) {
+      return;
+    }
+    node.refreshing = true;
+    int expectedGeneration = generation;
+    try {
+      RefreshExecutor.INSTANCE.execute(() -> reload(node, loader, expectedGeneration));
+    } catch (RejectedExecutionException e) {
+      // 刷新队列已满，等下一次命中再刷新
+      node.refreshing = false;
+    }
+  }
+
+  private void reload(Node node, CacheLoader loader, int expectedGeneration) {
+    Object value = null;
+    try {
+      value = loader.load();
+    } catch (Exception e) {
+      log.warn("Could not refresh an entry of cache " + getId() + ". Cause: " + e);
+    }
+    synchronized (this) {
+      node.refreshing = false;
+      if (value != null && generation == expectedGeneration && entries.get(node.key) == node) {
+        delegate.putObject(node.key, value);
+        schedule(node.key, value, System.currentTimeMillis(), timeToLive);
+      }
+    }
+  }
+
+  static final class Node {
+    final Object key;
+    // 过期时间，之后的命中会触发刷新
+    final long expireAt;
+    // 从缓存中删除的时间，没有宽限期时与过期时间相同
+    final long removeAt;
+    boolean refreshing;
+    Node prev;
+    Node next;
+
+    Node(Object key, long expireAt, long removeAt) {
+      this.key = key;
+      this.expireAt = expireAt;
+      this.removeAt = removeAt;
+    }
+  }
+
+  /**
+   * Hierarchical timer wheel with four levels of 64 buckets, each bucket spanning about 1 second, 1 minute,
+   * 70 minutes and 3 days. Entries are placed on the finest level that covers their delay and are moved down
+   * to finer levels as time goes by, so advancing the wheel only touches the buckets whose time has passed.
+   */
+  static final class TimerWheel {
+
+    private static final int BUCKETS = 64;
+    private static final int[] SHIFT = {10, 16, 22, 28};
+
+    private final Node[][] buckets = new Node[SHIFT.length][BUCKETS];
+    private long time;
+
+    TimerWheel(long time) {
+      this.time = time;
+      for (Node[] level : buckets) {
+        for (int i = 0; i < BUCKETS; i++) {
+          level[i] = new Node(null, 0, 0);
+        }
+      }
+      clear();
+    }
+
+    void schedule(Node node) {
+      Node sentinel = bucketFor(node.removeAt);
+      node.prev = sentinel.prev;
+      node.next = sentinel;
+      sentinel.prev.next = node;
+      sentinel.prev = node;
+    }
+
+    void unschedule(Node node) {
+      if (node.next != null) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+      }
+    }
+
+    /**
+     * Moves the wheel to <code>now</code>, passing every node that expired to <code>expired</code>.
+     */
+    void advance(long now, Consumer<Node> expired) {
+      long previous = time;
+      time = now;
+      for (int level = 0; level < SHIFT.length; level++) {
+        long previousTicks = previous >>> SHIFT[level];
+        long currentTicks = now >>> SHIFT[level];
+        if (currentTicks <= previousTicks) {
+          // 这一层没有转动，更高的层也不会转动
+          break;
+        }
+        long count = Math.min(currentTicks - previousTicks + 1, BUCKETS);
+        for (long tick = previousTicks; tick < previousTicks + count; tick++) {
+          Node sentinel = buckets[level][(int) (tick & (BUCKETS - 1))];
+          Node node = sentinel.next;
+          sentinel.prev = sentinel;
+          sentinel.next = sentinel;
+          while (node != sentinel) {
+            Node next = node.next;
+            node.prev = null;
+            node.next = null;
+            if (node.removeAt <= now) {
+              expired.accept(node);
+            } else {
+              // 还没有过期，放回更精细的一层
+              schedule(node);
+            }
+            node = next;
+          }
+        }
+      }
+    }
+
+    void clear() {
+      for (Node[] level : buckets) {
+        for (Node sentinel : level) {
+          sentinel.prev = sentinel;
+          sentinel.next = sentinel;
+        }
+      }
+    }
+
+    private Node bucketFor(long removeAt) {
+      long when = Math.max(removeAt, time);
+      long delay = when - time;
+      int level = 0;
+      while (level < SHIFT.length - 1 && delay >= 1L << SHIFT[level + 1]) {
+        level++;
+      }
+      return buckets[level][(int) ((when >>> SHIFT[level]) & (BUCKETS - 1))];
+    }
+  }
+
+  /**
+   * Shared daemon threads running the background refreshes of all caches. Refreshes that do not fit in the queue
+   * are skipped.
+   */
+  private static final class RefreshExecutor {
+
+    private static final ExecutorService INSTANCE;
+
+    static {
+      AtomicInteger count = new AtomicInteger();
+      int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+          new ArrayBlockingQueue<>(1024), runnable -> {
+            Thread thread = new Thread(runnable, "mybatis-cache-refresh-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          });
+      executor.allowCoreThreadTimeOut(true);
+      INSTANCE = executor;
+    }
+
+    private RefreshExecutor() {
+      // Prevent Instantiation of Static Class
+    }
+  }
+
+}
@@ -15,8 +15,10 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collection;
 import java.util.Deque;
 import java.util.LinkedList;
+import java.util.Set;
 
 import org.apache.ibatis.cache.Cache;
 
@@ -71,6 +73,23 @@ public class FifoCache implements Cache {
     return delegate.removeObject(key);
   }
 
+  @Override
+  public void removeTagged(Collection<String> tags) {
+    delegate.removeTagged(tags);
+    // 已删除的 key 不再占用 FIFO 队列的位置
+    keyList.removeIf(key -> TaggedCache.dependsOn(key, tags));
+  }
+
+  @Override
+  public Object peekObject(Object key) {
+    return delegate.peekObject(key);
+  }
+
+  @Override
+  public Set<Object> getKeys() {
+    return delegate.getKeys();
+  }
+
   @Override
   public void clear() {
     delegate.clear();
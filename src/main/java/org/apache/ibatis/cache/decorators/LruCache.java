@@ -15,8 +15,10 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.ibatis.cache.Cache;
 
@@ -84,11 +86,49 @@ public class LruCache implements Cache {
     return delegate.getObject(key);
   }
 
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    delegate.putAll(entries);
+    for (Object key : entries.keySet()) {
+      cycleKeyList(key);
+    }
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    for (Object key : keys) {
+      keyMap.get(key); //touch
+    }
+    return delegate.getAll(keys);
+  }
+
   @Override
   public Object removeObject(Object key) {
     return delegate.removeObject(key);
   }
 
+  @Override
+  public void removeAll(Collection<?> keys) {
+    delegate.removeAll(keys);
+  }
+
+  @Override
+  public void removeTagged(Collection<String> tags) {
+    delegate.removeTagged(tags);
+    // 已删除的 key 不再占用 LRU 的位置
+    keyMap.keySet().removeIf(key -> TaggedCache.dependsOn(key, tags));
+  }
+
+  @Override
+  public Object peekObject(Object key) {
+    return delegate.peekObject(key);
+  }
+
+  @Override
+  public Set<Object> getKeys() {
+    return delegate.getKeys();
+  }
+
   @Override
   public void clear() {
     delegate.clear();
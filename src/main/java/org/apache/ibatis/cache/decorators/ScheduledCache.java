@@ -15,21 +15,27 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.apache.ibatis.cache.Cache;
 
 /**
  * @author Clinton Begin
+ *
+ * 定时清空的判断是线程安全的，并发调用时只有一个线程执行清空
  */
 public class ScheduledCache implements Cache {
 
   private final Cache delegate;
   protected long clearInterval;
-  protected long lastClear;
+  private final AtomicLong lastClear;
 
   public ScheduledCache(Cache delegate) {
     this.delegate = delegate;
     this.clearInterval = 60 * 60 * 1000; // 1 hour
-    this.lastClear = System.currentTimeMillis();
+    this.lastClear = new AtomicLong(System.currentTimeMillis());
   }
 
   public void setClearInterval(long clearInterval) {
@@ -64,9 +70,26 @@ public class ScheduledCache implements Cache {
     return delegate.removeObject(key);
   }
 
+  @Override
+  public void removeTagged(Collection<String> tags) {
+    if (!clearWhenStale()) {
+      delegate.removeTagged(tags);
+    }
+  }
+
+  @Override
+  public Object peekObject(Object key) {
+    return delegate.peekObject(key);
+  }
+
+  @Override
+  public Set<Object> getKeys() {
+    return delegate.getKeys();
+  }
+
   @Override
   public void clear() {
-    lastClear = System.currentTimeMillis();
+    lastClear.set(System.currentTimeMillis());
     delegate.clear();
   }
 
@@ -81,8 +104,10 @@ public class ScheduledCache implements Cache {
   }
 
   private boolean clearWhenStale() {
-    if (System.currentTimeMillis() - lastClear > clearInterval) {
-      clear();
+    long last = lastClear.get();
+    long now = System.currentTimeMillis();
+    if (now - last > clearInterval && lastClear.compareAndSet(last, now)) {
+      delegate.clear();
       return true;
     }
     return false;
@@ -23,6 +23,8 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Set;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
@@ -69,6 +71,22 @@ public class SerializedCache implements Cache {
     return delegate.removeObject(key);
   }
 
+  @Override
+  public void removeTagged(Collection<String> tags) {
+    delegate.removeTagged(tags);
+  }
+
+  @Override
+  public Object peekObject(Object key) {
+    Object object = delegate.peekObject(key);
+    return object == null ? null : deserialize((byte[]) object);
+  }
+
+  @Override
+  public Set<Object> getKeys() {
+    return delegate.getKeys();
+  }
+
   @Override
   public void clear() {
     delegate.clear();
@@ -17,8 +17,10 @@ package org.apache.ibatis.cache.decorators;
 
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
+import java.util.Collection;
 import java.util.Deque;
 import java.util.LinkedList;
+import java.util.Set;
 
 import org.apache.ibatis.cache.Cache;
 
@@ -91,6 +93,23 @@ public class SoftCache implements Cache {
     return delegate.removeObject(key);
   }
 
+  @Override
+  public void removeTagged(Collection<String> tags) {
+    delegate.removeTagged(tags);
+  }
+
+  @Override
+  public Object peekObject(Object key) {
+    @SuppressWarnings("unchecked") // assumed delegate cache is totally managed by this cache
+    SoftReference<Object> softReference = (SoftReference<Object>) delegate.peekObject(key);
+    return softReference == null ? null : softReference.get();
+  }
+
+  @Override
+  public Set<Object> getKeys() {
+    return delegate.getKeys();
+  }
+
   @Override
   public void clear() {
     synchronized (hardLinksToAvoidGarbageCollection) {
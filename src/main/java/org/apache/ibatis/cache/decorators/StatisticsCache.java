@@ -0,0 +1,214 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.stats.CacheStatistics;
+import org.apache.ibatis.cache.stats.EvictionCounting;
+
+/**
+ * Outermost decorator of a namespace cache that counts hits, misses, puts and the time spent loading missed
+ * entries. Evictions are read from the {@link EvictionCounting} set with {@link #setEvictionCounting}, and the
+ * time threads spent waiting for each other from the {@link BlockingCache} set with {@link #setBlockingCache}.
+ * <p>
+ * Counters are {@link LongAdder}s so that they do not become a point of contention between threads.
+ *
+ * @see org.apache.ibatis.cache.stats.CacheStatisticsRegistry
+ */
+public class StatisticsCache implements Cache {
+
+  private final Cache delegate;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder puts = new LongAdder();
+  private final LongAdder loads = new LongAdder();
+  private final LongAdder loadTime = new LongAdder();
+  private EvictionCounting evictionCounting;
+  private BlockingCache blockingCache;
+
+  public StatisticsCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  public void setEvictionCounting(EvictionCounting evictionCounting) {
+    this.evictionCounting = evictionCounting;
+  }
+
+  public void setBlockingCache(BlockingCache blockingCache) {
+    this.blockingCache = blockingCache;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate.putObject(key, value);
+    if (value != null) {
+      // TransactionalCache 为未命中的 key 写入的 null 不算
+      puts.increment();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = delegate.getObject(key);
+    if (value == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return value;
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    delegate.putAll(entries);
+    int count = 0;
+    for (Object value : entries.values()) {
+      if (value != null) {
+        count++;
+      }
+    }
+    puts.add(count);
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    Map<Object, Object> entries = delegate.getAll(keys);
+    hits.add(entries.size());
+    misses.add(keys.size() - entries.size());
+    return entries;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    beginRequestedRemoval();
+    try {
+      return delegate.removeObject(key);
+    } finally {
+      endRequestedRemoval();
+    }
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    beginRequestedRemoval();
+    try {
+      delegate.removeAll(keys);
+    } finally {
+      endRequestedRemoval();
+    }
+  }
+
+  @Override
+  public void removeTagged(Collection<String> tags) {
+    beginRequestedRemoval();
+    try {
+      delegate.removeTagged(tags);
+    } finally {
+      endRequestedRemoval();
+    }
+  }
+
+  @Override
+  public Object peekObject(Object key) {
+    return delegate.peekObject(key);
+  }
+
+  @Override
+  public long getTimeToLive(Object key) {
+    return delegate.getTimeToLive(key);
+  }
+
+  @Override
+  public void putObject(Object key, Object value, long timeToLive) {
+    delegate.putObject(key, value, timeToLive);
+  }
+
+  @Override
+  public boolean usesLoaders() {
+    return delegate.usesLoaders();
+  }
+
+  @Override
+  public Set<Object> getKeys() {
+    return delegate.getKeys();
+  }
+
+  @Override
+  public void clear() {
+    beginRequestedRemoval();
+    try {
+      delegate.clear();
+    } finally {
+      endRequestedRemoval();
+    }
+  }
+
+  /**
+   * Records the execution of a query after a miss.
+   *
+   * @param nanos time the query took
+   */
+  public void recordLoad(long nanos) {
+    loads.increment();
+    loadTime.add(nanos);
+  }
+
+  public CacheStatistics getStatistics() {
+    long evictions = evictionCounting == null ? 0 : evictionCounting.getEvictionCount();
+    long waits = blockingCache == null ? 0 : blockingCache.getWaitCount();
+    long waitTime = blockingCache == null ? 0 : blockingCache.getWaitTime();
+    return new CacheStatistics(getId(), hits.sum(), misses.sum(), puts.sum(), evictions, getSize(), loads.sum(),
+        loadTime.sum(), waits, waitTime);
+  }
+
+  private void beginRequestedRemoval() {
+    if (evictionCounting instanceof EvictionCountingCache) {
+      ((EvictionCountingCache) evictionCounting).beginRequestedRemoval();
+    }
+  }
+
+  private void endRequestedRemoval() {
+    if (evictionCounting instanceof EvictionCountingCache) {
+      ((EvictionCountingCache) evictionCounting).endRequestedRemoval();
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+}
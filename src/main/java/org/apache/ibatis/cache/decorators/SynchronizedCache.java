@@ -15,6 +15,10 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
 import org.apache.ibatis.cache.Cache;
 
 /**
@@ -53,6 +57,51 @@ public class SynchronizedCache implements Cache {
     return delegate.removeObject(key);
   }
 
+  @Override
+  public synchronized void putAll(Map<?, ?> entries) {
+    delegate.putAll(entries);
+  }
+
+  @Override
+  public synchronized Map<Object, Object> getAll(Collection<?> keys) {
+    return delegate.getAll(keys);
+  }
+
+  @Override
+  public synchronized void removeAll(Collection<?> keys) {
+    delegate.removeAll(keys);
+  }
+
+  @Override
+  public synchronized void removeTagged(Collection<String> tags) {
+    delegate.removeTagged(tags);
+  }
+
+  @Override
+  public synchronized Object peekObject(Object key) {
+    return delegate.peekObject(key);
+  }
+
+  @Override
+  public synchronized long getTimeToLive(Object key) {
+    return delegate.getTimeToLive(key);
+  }
+
+  @Override
+  public synchronized void putObject(Object key, Object value, long timeToLive) {
+    delegate.putObject(key, value, timeToLive);
+  }
+
+  @Override
+  public boolean usesLoaders() {
+    return delegate.usesLoaders();
+  }
+
+  @Override
+  public synchronized Set<Object> getKeys() {
+    return delegate.getKeys();
+  }
+
   @Override
   public synchronized void clear() {
     delegate.clear();
@@ -0,0 +1,177 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
+
+/**
+ * Cache decorator that indexes entries by the tags (table names) of their {@link CacheKey}, so that
+ * {@link #removeTagged(Collection)} only removes the entries that depend on the changed tables.
+ * <p>
+ * Entries whose tags are unknown depend on everything and are removed by any call. {@link org.apache.ibatis.mapping.CacheBuilder}
+ * places this decorator right on the base cache, so that removals made by the eviction decorators keep the index up
+ * to date. Decorators above it that track keys of their own drop the keys for which {@link #dependsOn(Object, Collection)}
+ * holds.
+ */
+public class TaggedCache implements Cache {
+
+  private final Cache delegate;
+  private final Map<String, Set<Object>> keysByTag = new HashMap<>();
+  private final Map<Object, String[]> tagsByKey = new HashMap<>();
+  private final Set<Object> untaggedKeys = new HashSet<>();
+
+  public TaggedCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate.putObject(key, value);
+    untrack(key);
+    if (value != null) {
+      track(key);
+      pruneIfNeeded();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    untrack(key);
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void removeTagged(Collection<String> tags) {
+    Set<Object> keys = new HashSet<>(untaggedKeys);
+    for (String tag : tags) {
+      Set<Object> tagged = keysByTag.get(tag);
+      if (tagged != null) {
+        keys.addAll(tagged);
+      }
+    }
+    for (Object key : keys) {
+      removeObject(key);
+    }
+  }
+
+  @Override
+  public Object peekObject(Object key) {
+    return delegate.peekObject(key);
+  }
+
+  @Override
+  public Set<Object> getKeys() {
+    return delegate.getKeys();
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    keysByTag.clear();
+    tagsByKey.clear();
+    untaggedKeys.clear();
+  }
+
+  /**
+   * @return The tags of a key, or null if the entry depends on every table
+   */
+  static String[] tagsOf(Object key) {
+    return key instanceof CacheKey ? ((CacheKey) key).getTags() : null;
+  }
+
+  /**
+   * @return true if the entry cached under the key must be removed when any of the tags change
+   */
+  static boolean dependsOn(Object key, Collection<String> tags) {
+    String[] keyTags = tagsOf(key);
+    if (keyTags == null) {
+      return true;
+    }
+    for (String tag : keyTags) {
+      if (tags.contains(tag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void track(Object key) {
+    String[] tags = tagsOf(key);
+    if (tags == null) {
+      untaggedKeys.add(key);
+      return;
+    }
+    tagsByKey.put(key, tags);
+    for (String tag : tags) {
+      keysByTag.computeIfAbsent(tag, k -> new HashSet<>()).add(key);
+    }
+  }
+
+  private void untrack(Object key) {
+    if (untaggedKeys.remove(key)) {
+      return;
+    }
+    String[] tags = tagsByKey.remove(key);
+    if (tags != null) {
+      for (String tag : tags) {
+        Set<Object> keys = keysByTag.get(tag);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+          keysByTag.remove(tag);
+        }
+      }
+    }
+  }
+
+  private void pruneIfNeeded() {
+    // 基础缓存自己淘汰的 key（例如 ConcurrentLfuCache）不会经过这里，索引过大时清理一次
+    int indexed = tagsByKey.size() + untaggedKeys.size();
+    if (indexed <= 2 * delegate.getSize() + 1024) {
+      return;
+    }
+    List<Object> keys = new ArrayList<>(tagsByKey.keySet());
+    keys.addAll(untaggedKeys);
+    for (Object key : keys) {
+      if (delegate.getObject(key) == null) {
+        untrack(key);
+      }
+    }
+  }
+
+}
@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -46,11 +47,15 @@ public class TransactionalCache implements Cache {
   private final Map<Object, Object> entriesToAddOnCommit;
   private final Set<Object> entriesMissedInCache;
 
+  // 当前事务中修改过的表，提交时只删除依赖这些表的缓存项
+  private final Set<String> tagsToRemoveOnCommit;
+
   public TransactionalCache(Cache delegate) {
     this.delegate = delegate;
     this.clearOnCommit = false;
     this.entriesToAddOnCommit = new HashMap<>();
     this.entriesMissedInCache = new HashSet<>();
+    this.tagsToRemoveOnCommit = new HashSet<>();
   }
 
   @Override
@@ -71,7 +76,7 @@ public class TransactionalCache implements Cache {
       entriesMissedInCache.add(key);
     }
     // issue #146
-    if (clearOnCommit) {
+    if (clearOnCommit || (!tagsToRemoveOnCommit.isEmpty() && TaggedCache.dependsOn(key, tagsToRemoveOnCommit))) {
       return null;
     } else {
       return object;
@@ -96,9 +101,30 @@ public class TransactionalCache implements Cache {
     entriesToAddOnCommit.clear();
   }
 
+  @Override
+  public void removeTagged(Collection<String> tags) {
+    if (clearOnCommit) {
+      return;
+    }
+    tagsToRemoveOnCommit.addAll(tags);
+    entriesToAddOnCommit.keySet().removeIf(key -> TaggedCache.dependsOn(key, tags));
+  }
+
+  @Override
+  public Object peekObject(Object key) {
+    return delegate.peekObject(key);
+  }
+
+  @Override
+  public Set<Object> getKeys() {
+    return delegate.getKeys();
+  }
+
   public void commit() {
     if (clearOnCommit) {
       delegate.clear();
+    } else if (!tagsToRemoveOnCommit.isEmpty()) {
+      delegate.removeTagged(tagsToRemoveOnCommit);
     }
 
     /**
@@ -123,31 +149,35 @@ public class TransactionalCache implements Cache {
     clearOnCommit = false;
     entriesToAddOnCommit.clear();
     entriesMissedInCache.clear();
+    tagsToRemoveOnCommit.clear();
   }
 
   private void flushPendingEntries() {
-    for (Map.Entry<Object, Object> entry : entriesToAddOnCommit.entrySet()) {
-
-      // 将entriesToAddOnCommit集合中的数据添加到二级缓存
-      delegate.putObject(entry.getKey(), entry.getValue());
+    if (entriesToAddOnCommit.isEmpty() && entriesMissedInCache.isEmpty()) {
+      return;
     }
+    Map<Object, Object> entries = new HashMap<>(entriesToAddOnCommit);
     for (Object entry : entriesMissedInCache) {
       if (!entriesToAddOnCommit.containsKey(entry)) {
-        delegate.putObject(entry, null);
+        entries.put(entry, null);
       }
     }
+
+    // 将entriesToAddOnCommit集合中的数据一次性添加到二级缓存
+    delegate.putAll(entries);
   }
 
   private void unlockMissedEntries() {
-    for (Object entry : entriesMissedInCache) {
-      try {
+    if (entriesMissedInCache.isEmpty()) {
+      return;
+    }
+    try {
 
-        // 对于回滚操作，清除缓存。
-        delegate.removeObject(entry);
-      } catch (Exception e) {
-        log.warn("Unexpected exception while notifiying a rollback to the cache adapter."
-            + "Consider upgrading your cache adapter to the latest version.  Cause: " + e);
-      }
+      // 对于回滚操作，清除缓存。
+      delegate.removeAll(entriesMissedInCache);
+    } catch (Exception e) {
+      log.warn("Unexpected exception while notifiying a rollback to the cache adapter."
+          + "Consider upgrading your cache adapter to the latest version.  Cause: " + e);
     }
   }
 
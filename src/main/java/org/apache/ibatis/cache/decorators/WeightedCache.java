@@ -0,0 +1,209 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.weigher.ObjectSizeWeigher;
+import org.apache.ibatis.cache.weigher.Weigher;
+
+/**
+ * Cache decorator that bounds the total weight of the entries, by default their estimated size in bytes.
+ * <p>
+ * Every put is weighed with the configured {@link Weigher}. When the total goes over <code>maxBytes</code> the least
+ * recently used entries are removed until it fits again; an entry heavier than the whole budget is not kept at all.
+ * When used on top of {@link SerializedCache} values are byte arrays and the weight is exact.
+ * <p>
+ * {@link org.apache.ibatis.mapping.CacheBuilder} places this decorator below the eviction decorators, so that the
+ * entries they remove release their weight. Entries that the cache below removes on its own (for example
+ * {@link org.apache.ibatis.cache.impl.ConcurrentLfuCache}) are untracked when they are found missing.
+ */
+public class WeightedCache implements Cache {
+
+  private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+  private final Cache delegate;
+
+  // key -> 权重，按访问顺序排列，用于 LRU 淘汰
+  private final Map<Object, Long> weights = new LinkedHashMap<>(16, .75F, true);
+  private Weigher weigher = new ObjectSizeWeigher();
+  private long maxBytes = DEFAULT_MAX_BYTES;
+  private long weightedSize;
+
+  public WeightedCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  /**
+   * @return sum of the weights of the entries currently tracked
+   */
+  public long getWeightedSize() {
+    return weightedSize;
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public void setMaxBytes(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  public Weigher getWeigher() {
+    return weigher;
+  }
+
+  public void setWeigher(Weigher weigher) {
+    this.weigher = weigher;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate.putObject(key, value);
+    track(key, value);
+    evict();
+    pruneIfNeeded();
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = delegate.getObject(key);
+    if (value == null) {
+      untrack(key);
+    } else {
+      weights.get(key); //touch
+    }
+    return value;
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    delegate.putAll(entries);
+    for (Map.Entry<?, ?> entry : entries.entrySet()) {
+      track(entry.getKey(), entry.getValue());
+    }
+    evict();
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    for (Object key : keys) {
+      weights.get(key); //touch
+    }
+    return delegate.getAll(keys);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    untrack(key);
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    for (Object key : keys) {
+      untrack(key);
+    }
+    delegate.removeAll(keys);
+  }
+
+  @Override
+  public void removeTagged(Collection<String> tags) {
+    delegate.removeTagged(tags);
+    Iterator<Map.Entry<Object, Long>> entries = weights.entrySet().iterator();
+    while (entries.hasNext()) {
+      Map.Entry<Object, Long> entry = entries.next();
+      if (TaggedCache.dependsOn(entry.getKey(), tags)) {
+        entries.remove();
+        weightedSize -= entry.getValue();
+      }
+    }
+  }
+
+  @Override
+  public Object peekObject(Object key) {
+    return delegate.peekObject(key);
+  }
+
+  @Override
+  public Set<Object> getKeys() {
+    return delegate.getKeys();
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    weights.clear();
+    weightedSize = 0;
+  }
+
+  private void track(Object key, Object value) {
+    if (value == null) {
+      // TransactionalCache 为未命中的 key 写入的 null 不占用预算
+      untrack(key);
+      return;
+    }
+    long weight = Math.max(0, weigher.weigh(key, value));
+    Long previous = weights.put(key, weight);
+    weightedSize += weight - (previous == null ? 0 : previous);
+  }
+
+  private void untrack(Object key) {
+    Long previous = weights.remove(key);
+    if (previous != null) {
+      weightedSize -= previous;
+    }
+  }
+
+  private void pruneIfNeeded() {
+    // 下层缓存自己淘汰的 key 不会经过这里，记录的 key 明显多于缓存项时清理一次
+    if (weights.size() <= 2 * delegate.getSize() + 1024) {
+      return;
+    }
+    for (Object key : new ArrayList<>(weights.keySet())) {
+      if (delegate.getObject(key) == null) {
+        untrack(key);
+      }
+    }
+  }
+
+  private void evict() {
+    Iterator<Map.Entry<Object, Long>> eldest = weights.entrySet().iterator();
+    while (weightedSize > maxBytes && eldest.hasNext()) {
+      Map.Entry<Object, Long> entry = eldest.next();
+      eldest.remove();
+      weightedSize -= entry.getValue();
+      delegate.removeObject(entry.getKey());
+    }
+  }
+
+}
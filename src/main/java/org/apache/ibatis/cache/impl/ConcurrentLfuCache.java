@@ -0,0 +1,318 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.stats.EvictionCounting;
+
+/**
+ * Thread safe, bounded cache with a TinyLFU style admission policy.
+ * <p>
+ * Reads never lock. Writes only lock when the cache is over its size and an entry has to be evicted.
+ * Access frequencies are kept in an approximate count-min sketch; when the cache is full the least
+ * frequently used of a small sample of the oldest entries is evicted, unless the new entry is used
+ * less often than that victim, in which case the new entry is the one that gets dropped.
+ * <p>
+ * As this cache is safe for concurrent use and evicts by itself, {@link org.apache.ibatis.mapping.CacheBuilder}
+ * does not wrap it with {@link org.apache.ibatis.cache.decorators.SynchronizedCache} nor with the
+ * {@link org.apache.ibatis.cache.decorators.LruCache} and {@link org.apache.ibatis.cache.decorators.FifoCache}
+ * eviction decorators. The logging and scheduled clear decorators it gets are thread safe too. Dependency tracking,
+ * <code>maxBytes</code> and custom decorators bring the synchronized decorator back, and <code>timeToLive</code> or
+ * <code>staleWhileRevalidate</code> wrap the cache with {@link org.apache.ibatis.cache.decorators.ExpiringCache},
+ * which serializes all the accesses on a single lock as well.
+ */
+public class ConcurrentLfuCache implements Cache, EvictionCounting {
+
+  private static final int DEFAULT_SIZE = 1024;
+
+  private final String id;
+
+  private final Map<Object, Object> cache = new ConcurrentHashMap<>();
+
+  // 按插入顺序保存 key，淘汰时从队首取样。已删除的 key 会在取样时被跳过
+  private final ConcurrentLinkedQueue<Object> keyQueue = new ConcurrentLinkedQueue<>();
+  // keyQueue 中已有的 key，保证同一个 key 在队列中只出现一次
+  private final Set<Object> queuedKeys = ConcurrentHashMap.newKeySet();
+
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final LongAdder evictions = new LongAdder();
+
+  private volatile int size;
+  private volatile FrequencySketch sketch;
+  private int sampleSize = 8;
+
+  public ConcurrentLfuCache(String id) {
+    this.id = id;
+    setSize(DEFAULT_SIZE);
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public int getSize() {
+    return cache.size();
+  }
+
+  public void setSize(int size) {
+    if (size <= 0) {
+      throw new CacheException("Cache size must be greater than zero but was " + size + " for cache " + id);
+    }
+    this.size = size;
+    this.sketch = new FrequencySketch(size);
+  }
+
+  public int getSampleSize() {
+    return sampleSize;
+  }
+
+  public void setSampleSize(int sampleSize) {
+    this.sampleSize = Math.max(1, sampleSize);
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    if (value == null) {
+      // TransactionalCache 提交时会为未命中的 key 写入 null，ConcurrentHashMap 不支持 null 值
+      cache.remove(key);
+      return;
+    }
+    sketch.increment(key);
+    cache.put(key, value);
+    // 先写入 cache 再入队，与 evict 中先出队再检查 cache 的顺序配合，存活的 key 不会丢失队列位置
+    enqueue(key);
+    if (cache.size() > size) {
+      evict(key);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    sketch.increment(key);
+    return cache.get(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Object value = cache.remove(key);
+    if (queuedKeys.size() > 2L * size && evictionLock.tryLock()) {
+      // 大量删除后队列中残留的 key 超过容量时，清理一次，避免队列无限增长
+      try {
+        purgeRemovedKeys();
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+    return value;
+  }
+
+  @Override
+  public Object peekObject(Object key) {
+    return cache.get(key);
+  }
+
+  @Override
+  public Set<Object> getKeys() {
+    return new HashSet<>(cache.keySet());
+  }
+
+  @Override
+  public void clear() {
+    evictionLock.lock();
+    try {
+      cache.clear();
+      keyQueue.clear();
+      queuedKeys.clear();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void evict(Object candidate) {
+    evictionLock.lock();
+    try {
+      List<Object> sample = new ArrayList<>(sampleSize);
+      while (cache.size() > size) {
+        sample.clear();
+        Object victim = null;
+        int victimFrequency = Integer.MAX_VALUE;
+        Object key;
+        while (sample.size() < sampleSize && (key = keyQueue.poll()) != null) {
+          queuedKeys.remove(key);
+          if (!cache.containsKey(key)) {
+            // 已删除的 key 直接丢弃
+            continue;
+          }
+          sample.add(key);
+          if (!key.equals(candidate)) {
+            int frequency = sketch.frequency(key);
+            if (frequency < victimFrequency) {
+              victim = key;
+              victimFrequency = frequency;
+            }
+          }
+        }
+        if (candidate != null && (victim == null || sketch.frequency(candidate) < victimFrequency)) {
+          // 准入策略：新 key 的访问频率低于淘汰者时，放弃新 key
+          victim = candidate;
+          candidate = null;
+        }
+        if (victim == null) {
+          sample.forEach(this::enqueue);
+          return;
+        }
+        sample.remove(victim);
+        if (cache.remove(victim) != null) {
+          evictions.increment();
+        }
+        sample.forEach(this::enqueue);
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void enqueue(Object key) {
+    if (queuedKeys.add(key)) {
+      keyQueue.offer(key);
+    }
+  }
+
+  private void purgeRemovedKeys() {
+    for (int i = queuedKeys.size(); i > 0; i--) {
+      Object key = keyQueue.poll();
+      if (key == null) {
+        return;
+      }
+      queuedKeys.remove(key);
+      if (cache.containsKey(key)) {
+        enqueue(key);
+      }
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  /**
+   * Count-min sketch with four rows of saturating counters. Counters are halved once the number of
+   * increments reaches ten times the cache size so that old popularity fades away.
+   * <p>
+   * Updates are not atomic on purpose: a lost increment only makes the estimate slightly lower.
+   */
+  static final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final int[] table;
+    private final int mask;
+    private final int resetThreshold;
+    private int additions;
+
+    FrequencySketch(int maximumSize) {
+      int width = Integer.highestOneBit(Math.max(16, Math.min(maximumSize, 1 << 24)) - 1) << 1;
+      this.table = new int[width * DEPTH];
+      this.mask = width - 1;
+      this.resetThreshold = (int) Math.min(Integer.MAX_VALUE, 10L * maximumSize);
+    }
+
+    int frequency(Object key) {
+      int hash = spread(key.hashCode());
+      int frequency = MAX_COUNT;
+      for (int i = 0; i < DEPTH; i++) {
+        frequency = Math.min(frequency, table[indexOf(hash, i)]);
+      }
+      return frequency;
+    }
+
+    void increment(Object key) {
+      int hash = spread(key.hashCode());
+      boolean added = false;
+      for (int i = 0; i < DEPTH; i++) {
+        int index = indexOf(hash, i);
+        if (table[index] < MAX_COUNT) {
+          table[index]++;
+          added = true;
+        }
+      }
+      if (added && ++additions >= resetThreshold) {
+        reset();
+      }
+    }
+
+    private void reset() {
+      additions = 0;
+      for (int i = 0; i < table.length; i++) {
+        table[i] >>>= 1;
+      }
+    }
+
+    private int indexOf(int hash, int row) {
+      int h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+      h ^= h >>> 16;
+      return row * (mask + 1) + (h & mask);
+    }
+
+    private static int spread(int hash) {
+      hash ^= hash >>> 17;
+      hash *= 0xED5AD4BB;
+      hash ^= hash >>> 11;
+      return hash;
+    }
+  }
+
+}
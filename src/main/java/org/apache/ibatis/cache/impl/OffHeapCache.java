@@ -0,0 +1,373 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.builder.InitializingObject;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.stats.EvictionCounting;
+
+/**
+ * Cache that keeps serialized values outside of the java heap.
+ * <p>
+ * Values are stored in fixed size blocks carved out of direct {@link ByteBuffer} slabs, or out of a memory-mapped
+ * file when <code>file</code> is set. The cache is bounded by <code>maxBytes</code>; when there are not enough free
+ * blocks for a new value the least recently used entries are evicted. Only the keys and the block tables stay on heap.
+ * <p>
+ * Every get deserializes the stored bytes, so callers always get their own copy (as with a read-write cache).
+ * The cache is thread safe and can be selected with <code>&lt;cache type="OFF_HEAP"&gt;</code> or
+ * <code>@CacheNamespace(implementation = OffHeapCache.class)</code>, using properties to configure it:
+ * <ul>
+ *   <li><code>maxBytes</code>: capacity in bytes (default 64MB)</li>
+ *   <li><code>blockSize</code>: allocation unit in bytes (default 1KB)</li>
+ *   <li><code>slabSize</code>: size in bytes of each buffer allocated (default 16MB)</li>
+ *   <li><code>file</code>: optional file to map the slabs from</li>
+ * </ul>
+ */
+public class OffHeapCache implements Cache, InitializingObject, EvictionCounting {
+
+  private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+  private static final int DEFAULT_BLOCK_SIZE = 1024;
+  private static final int DEFAULT_SLAB_SIZE = 16 * 1024 * 1024;
+
+  private final String id;
+
+  private long maxBytes = DEFAULT_MAX_BYTES;
+  private int blockSize = DEFAULT_BLOCK_SIZE;
+  private int slabSize = DEFAULT_SLAB_SIZE;
+  private String file;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  // key -> {数据长度, 块编号...}，按访问顺序排列，用于 LRU 淘汰
+  private final Map<Object, int[]> index = new LinkedHashMap<>(16, .75F, true);
+  private ByteBuffer[] slabs;
+  private FileChannel channel;
+  private int blocksPerSlab;
+  private int totalBlocks;
+  private int[] freeBlocks;
+  private int freeCount;
+  private long usedBytes;
+  private long evictions;
+
+  public OffHeapCache(String id) {
+    this.id = id;
+  }
+
+  @Override
+  public void initialize() {
+    lock.lock();
+    try {
+      if (blockSize <= 0 || slabSize < blockSize || maxBytes < blockSize) {
+        throw new CacheException("Invalid off-heap cache settings for " + id + ": maxBytes=" + maxBytes
+            + ", slabSize=" + slabSize + ", blockSize=" + blockSize);
+      }
+      blocksPerSlab = slabSize / blockSize;
+      totalBlocks = (int) Math.min(maxBytes / blockSize, Integer.MAX_VALUE);
+      slabs = new ByteBuffer[(totalBlocks + blocksPerSlab - 1) / blocksPerSlab];
+      freeBlocks = new int[totalBlocks];
+      resetBlocks();
+      if (file != null) {
+        channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+      }
+    } catch (IOException e) {
+      throw new CacheException("Could not open file " + file + " for cache " + id + ". Cause: " + e, e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public int getSize() {
+    lock.lock();
+    try {
+      return index.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return number of bytes taken by the serialized values currently stored
+   */
+  public long getUsedBytes() {
+    lock.lock();
+    try {
+      return usedBytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    if (value == null) {
+      removeObject(key);
+      return;
+    }
+    if (!(value instanceof Serializable)) {
+      throw new CacheException("OffHeapCache failed to store a non-serializable object: " + value);
+    }
+    byte[] data = serialize((Serializable) value);
+    int blocksNeeded = (data.length + blockSize - 1) / blockSize;
+    lock.lock();
+    try {
+      ensureInitialized();
+      release(index.remove(key));
+      if (blocksNeeded > totalBlocks) {
+        // 超过整个缓存容量的数据不缓存
+        return;
+      }
+      Iterator<int[]> eldest = index.values().iterator();
+      while (freeCount < blocksNeeded) {
+        int[] evicted = eldest.next();
+        eldest.remove();
+        release(evicted);
+        evictions++;
+      }
+      int[] entry = new int[blocksNeeded + 1];
+      entry[0] = data.length;
+      for (int i = 1; i <= blocksNeeded; i++) {
+        int block = freeBlocks[--freeCount];
+        entry[i] = block;
+        int offset = (i - 1) * blockSize;
+        ByteBuffer slab = slabFor(block);
+        ((Buffer) slab).position(offsetInSlab(block));
+        slab.put(data, offset, Math.min(blockSize, data.length - offset));
+      }
+      usedBytes += data.length;
+      index.put(key, entry);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    byte[] data;
+    lock.lock();
+    try {
+      int[] entry = index.get(key);
+      if (entry == null) {
+        return null;
+      }
+      data = new byte[entry[0]];
+      for (int i = 1; i < entry.length; i++) {
+        int offset = (i - 1) * blockSize;
+        ByteBuffer slab = slabs[entry[i] / blocksPerSlab];
+        ((Buffer) slab).position(offsetInSlab(entry[i]));
+        slab.get(data, offset, Math.min(blockSize, data.length - offset));
+      }
+    } finally {
+      lock.unlock();
+    }
+    return deserialize(data);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    lock.lock();
+    try {
+      release(index.remove(key));
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Set<Object> getKeys() {
+    lock.lock();
+    try {
+      return new HashSet<>(index.keySet());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      index.clear();
+      if (freeBlocks != null) {
+        resetBlocks();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public long getEvictionCount() {
+    lock.lock();
+    try {
+      return evictions;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public void setMaxBytes(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  public void setBlockSize(int blockSize) {
+    this.blockSize = blockSize;
+  }
+
+  public int getSlabSize() {
+    return slabSize;
+  }
+
+  public void setSlabSize(int slabSize) {
+    this.slabSize = slabSize;
+  }
+
+  public String getFile() {
+    return file;
+  }
+
+  public void setFile(String file) {
+    this.file = file;
+  }
+
+  private void ensureInitialized() {
+    if (freeBlocks == null) {
+      initialize();
+    }
+  }
+
+  private void resetBlocks() {
+    // 倒序放入空闲栈，保证低编号的块（以及对应的 slab）优先被使用
+    for (int i = 0; i < totalBlocks; i++) {
+      freeBlocks[i] = totalBlocks - 1 - i;
+    }
+    freeCount = totalBlocks;
+    usedBytes = 0;
+  }
+
+  private void release(int[] entry) {
+    if (entry != null) {
+      for (int i = 1; i < entry.length; i++) {
+        freeBlocks[freeCount++] = entry[i];
+      }
+      usedBytes -= entry[0];
+    }
+  }
+
+  private ByteBuffer slabFor(int block) {
+    int slabIndex = block / blocksPerSlab;
+    ByteBuffer slab = slabs[slabIndex];
+    if (slab == null) {
+      // slab 按需分配
+      int size = blocksPerSlab * blockSize;
+      if (channel == null) {
+        slab = ByteBuffer.allocateDirect(size);
+      } else {
+        try {
+          slab = channel.map(FileChannel.MapMode.READ_WRITE, (long) slabIndex * size, size);
+        } catch (IOException e) {
+          throw new CacheException("Could not map file " + file + " for cache " + id + ". Cause: " + e, e);
+        }
+      }
+      slabs[slabIndex] = slab;
+    }
+    return slab;
+  }
+
+  private int offsetInSlab(int block) {
+    return (block % blocksPerSlab) * blockSize;
+  }
+
+  private byte[] serialize(Serializable value) {
+    try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
+         ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(value);
+      oos.flush();
+      return bos.toByteArray();
+    } catch (Exception e) {
+      throw new CacheException("Error serializing object.  Cause: " + e, e);
+    }
+  }
+
+  private Serializable deserialize(byte[] value) {
+    try (ByteArrayInputStream bis = new ByteArrayInputStream(value);
+         ObjectInputStream ois = new SerializedCache.CustomObjectInputStream(bis)) {
+      return (Serializable) ois.readObject();
+    } catch (Exception e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+}
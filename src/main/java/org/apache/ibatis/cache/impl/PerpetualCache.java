@@ -15,8 +15,11 @@
  */
 package org.apache.ibatis.cache.impl;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
@@ -59,6 +62,35 @@ public class PerpetualCache implements Cache {
     return cache.remove(key);
   }
 
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    cache.putAll(entries);
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    Map<Object, Object> entries = new HashMap<>();
+    for (Object key : keys) {
+      Object value = cache.get(key);
+      if (value != null) {
+        entries.put(key, value);
+      }
+    }
+    return entries;
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    for (Object key : keys) {
+      cache.remove(key);
+    }
+  }
+
+  @Override
+  public Set<Object> getKeys() {
+    return new HashSet<>(cache.keySet());
+  }
+
   @Override
   public void clear() {
     cache.clear();
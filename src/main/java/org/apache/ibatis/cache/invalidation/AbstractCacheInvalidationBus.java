@@ -0,0 +1,67 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Base class for buses: gives every instance a node id, stamps published invalidations with it and dispatches
+ * received invalidations to the listeners of their cache, skipping the ones this node published itself.
+ */
+public abstract class AbstractCacheInvalidationBus implements CacheInvalidationBus {
+
+  private final String nodeId = UUID.randomUUID().toString();
+
+  private final Map<String, List<CacheInvalidationListener>> listeners = new ConcurrentHashMap<>();
+
+  public String getNodeId() {
+    return nodeId;
+  }
+
+  @Override
+  public void subscribe(String cacheId, CacheInvalidationListener listener) {
+    listeners.computeIfAbsent(cacheId, k -> new CopyOnWriteArrayList<>()).add(listener);
+  }
+
+  @Override
+  public void publish(CacheInvalidation invalidation) {
+    send(invalidation.withOrigin(nodeId));
+  }
+
+  /**
+   * Sends the invalidation, already stamped with the id of this node, to the other nodes.
+   */
+  protected abstract void send(CacheInvalidation invalidation);
+
+  /**
+   * Applies an invalidation received from the transport.
+   */
+  protected void receive(CacheInvalidation invalidation) {
+    if (nodeId.equals(invalidation.getOrigin())) {
+      return;
+    }
+    for (CacheInvalidationListener listener : listeners.getOrDefault(invalidation.getCacheId(),
+        Collections.emptyList())) {
+      listener.onInvalidation(invalidation);
+    }
+  }
+
+}
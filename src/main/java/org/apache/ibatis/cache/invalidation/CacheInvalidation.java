@@ -0,0 +1,87 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An invalidation of a second level cache published to the other nodes: either the whole cache is cleared, or
+ * only the entries that depend on some tags (tables) are removed.
+ */
+public final class CacheInvalidation implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String origin;
+  private final String cacheId;
+
+  // 为 null 时表示清空整个缓存
+  private final List<String> tags;
+
+  private CacheInvalidation(String origin, String cacheId, List<String> tags) {
+    this.origin = origin;
+    this.cacheId = cacheId;
+    this.tags = tags;
+  }
+
+  public static CacheInvalidation clear(String cacheId) {
+    return new CacheInvalidation(null, cacheId, null);
+  }
+
+  public static CacheInvalidation tags(String cacheId, Collection<String> tags) {
+    return new CacheInvalidation(null, cacheId, Collections.unmodifiableList(new ArrayList<>(tags)));
+  }
+
+  /**
+   * @return A copy of this invalidation sent by the given node
+   */
+  public CacheInvalidation withOrigin(String origin) {
+    return new CacheInvalidation(origin, cacheId, tags);
+  }
+
+  /**
+   * @return The id of the node that published this invalidation, null until it is published
+   */
+  public String getOrigin() {
+    return origin;
+  }
+
+  public String getCacheId() {
+    return cacheId;
+  }
+
+  public boolean isClear() {
+    return tags == null;
+  }
+
+  /**
+   * @return The tags whose entries must be removed, null when the whole cache must be cleared
+   */
+  public List<String> getTags() {
+    return tags;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheInvalidation{cacheId=" + cacheId + (isClear() ? ", clear" : ", tags=" + tags) + ", origin="
+        + origin + "}";
+  }
+
+}
@@ -0,0 +1,66 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.util.Properties;
+
+/**
+ * Propagates second level cache invalidations between the nodes (JVMs, or configurations in a JVM) that share a
+ * database, so that a write committed on one node does not leave the caches of the other nodes stale.
+ * <p>
+ * Set with the <code>cacheInvalidationBus</code> setting, the <code>&lt;cacheInvalidationBus&gt;</code> element (which
+ * passes its properties to {@link #setProperties(Properties)}) or
+ * {@link org.apache.ibatis.session.Configuration#setCacheInvalidationBus}.
+ * Every namespace cache then publishes the flushes done when a transaction commits and applies the ones published
+ * by the other nodes. Implementations must not deliver an invalidation back to the node that published it, and
+ * are usually based on {@link AbstractCacheInvalidationBus}.
+ *
+ * @see org.apache.ibatis.cache.decorators.BroadcastingCache
+ */
+public interface CacheInvalidationBus {
+
+  /**
+   * Registers the listener that applies the invalidations received for a cache.
+   *
+   * @param cacheId The cache id, that is the namespace
+   * @param listener The listener
+   */
+  void subscribe(String cacheId, CacheInvalidationListener listener);
+
+  /**
+   * Sends an invalidation to the other nodes. Called after the transaction that caused it has been committed.
+   *
+   * @param invalidation The invalidation
+   */
+  void publish(CacheInvalidation invalidation);
+
+  /**
+   * Configures the bus with the properties of the <code>&lt;cacheInvalidationBus&gt;</code> element.
+   *
+   * @param properties The properties
+   */
+  default void setProperties(Properties properties) {
+    // NOP
+  }
+
+  /**
+   * Releases the resources held by this bus. Invalidations are neither sent nor received any more.
+   */
+  default void close() {
+    // NOP
+  }
+
+}
@@ -0,0 +1,397 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.lang.ref.WeakReference;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Bus that appends invalidations to a shared file and polls it for the ones written by other nodes. Meant for
+ * tests and for several JVMs on one host.
+ * <p>
+ * Each line holds the origin, the cache id and optionally the comma separated tags, URL encoded and separated by
+ * tabs. Writers take a file lock, and a lock shared by the buses of this JVM that use the same file, as a JVM
+ * can not hold two file locks on one file; readers keep the file open and only consume complete lines, starting at the end
+ * of the file as it was when the bus subscribed.
+ * <p>
+ * Once the file reaches <code>maxFileSize</code> bytes, the writer that finds it full appends a rotation mark, moves
+ * it to <code>file.1</code> (replacing the previous one) and starts a new file. Readers finish the old file through
+ * their open handle and continue with the new one when they reach the mark, so a reader only misses invalidations
+ * if the file is rotated twice between two of its polls.
+ * <p>
+ * The <code>file</code>, <code>pollInterval</code> and <code>maxFileSize</code> properties can be set with the
+ * <code>&lt;cacheInvalidationBus&gt;</code> element. Configurations that keep the default file share it with every
+ * other one on the host. The poller only holds the bus weakly and stops once a bus that was not closed is garbage
+ * collected.
+ */
+public class FileCacheInvalidationBus extends AbstractCacheInvalidationBus {
+
+  private static final Log log = LogFactory.getLog(FileCacheInvalidationBus.class);
+
+  private static final String DEFAULT_FILE = Paths.get(System.getProperty("java.io.tmpdir"),
+      "mybatis-cache-invalidation.log").toString();
+
+  // 轮转标记，正常的行至少包含一个制表符
+  private static final String ROTATED = "rotated";
+
+  // 同一个 JVM 不能对一个文件重复加文件锁（会抛出 OverlappingFileLockException），写入前先按文件路径串行化
+  private static final Map<Path, Object> WRITE_LOCKS = new ConcurrentHashMap<>();
+
+  private String file;
+  private long pollInterval = 100;
+  private long maxFileSize = 1024 * 1024;
+  private long position = -1;
+  private FileChannel reader;
+  private ScheduledExecutorService poller;
+
+  public FileCacheInvalidationBus() {
+    this(DEFAULT_FILE);
+  }
+
+  public FileCacheInvalidationBus(String file) {
+    this.file = file;
+  }
+
+  public String getFile() {
+    return file;
+  }
+
+  public synchronized void setFile(String file) {
+    closeReader();
+    this.file = file;
+    this.position = -1;
+  }
+
+  public long getPollInterval() {
+    return pollInterval;
+  }
+
+  /**
+   * @param pollInterval Milliseconds between two reads of the file
+   */
+  public void setPollInterval(long pollInterval) {
+    this.pollInterval = pollInterval;
+  }
+
+  public long getMaxFileSize() {
+    return maxFileSize;
+  }
+
+  /**
+   * @param maxFileSize Size in bytes from which the file is rotated
+   */
+  public void setMaxFileSize(long maxFileSize) {
+    this.maxFileSize = maxFileSize;
+  }
+
+  @Override
+  public void setProperties(Properties properties) {
+    String file = properties.getProperty("file");
+    if (file != null) {
+      setFile(file);
+    }
+    String pollInterval = properties.getProperty("pollInterval");
+    if (pollInterval != null) {
+      setPollInterval(Long.parseLong(pollInterval));
+    }
+    String maxFileSize = properties.getProperty("maxFileSize");
+    if (maxFileSize != null) {
+      setMaxFileSize(Long.parseLong(maxFileSize));
+    }
+  }
+
+  @Override
+  public synchronized void subscribe(String cacheId, CacheInvalidationListener listener) {
+    super.subscribe(cacheId, listener);
+    if (position < 0) {
+      skipToEnd();
+    }
+    if (poller == null) {
+      poller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "mybatis-cache-invalidation-poller");
+        thread.setDaemon(true);
+        return thread;
+      });
+      poller.scheduleWithFixedDelay(new PollTask(this, poller), pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Override
+  protected void send(CacheInvalidation invalidation) {
+    StringBuilder line = new StringBuilder();
+    line.append(encode(invalidation.getOrigin())).append('\t').append(encode(invalidation.getCacheId()));
+    if (!invalidation.isClear()) {
+      line.append('\t').append(encode(String.join(",", invalidation.getTags())));
+    }
+    line.append('\n');
+    Path path = canonicalPath(file);
+    synchronized (WRITE_LOCKS.computeIfAbsent(path, k -> new Object())) {
+      write(path, line.toString().getBytes(StandardCharsets.UTF_8), invalidation);
+    }
+  }
+
+  private void write(Path path, byte[] line, CacheInvalidation invalidation) {
+    try {
+      for (;;) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+          // 关闭 channel 时释放锁
+          channel.lock();
+          if (isRotated(channel)) {
+            // 等待锁的时候文件被其他节点轮转了，写入新文件
+            continue;
+          }
+          if (channel.size() >= maxFileSize) {
+            append(channel, (ROTATED + "\n").getBytes(StandardCharsets.UTF_8));
+            Files.move(path, path.resolveSibling(path.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            continue;
+          }
+          append(channel, line);
+          return;
+        }
+      }
+    } catch (IOException e) {
+      throw new CacheException("Could not publish " + invalidation + " to " + file + ". Cause: " + e, e);
+    }
+  }
+
+  /**
+   * Reads and applies the invalidations written since the last call. Called periodically once a cache subscribed.
+   */
+  public void poll() {
+    List<CacheInvalidation> received = new ArrayList<>();
+    synchronized (this) {
+      if (position < 0) {
+        skipToEnd();
+        return;
+      }
+      try {
+        while (openReader() && readLines(received)) {
+          // 读到了轮转标记，继续读取新文件
+          closeReader();
+          position = 0;
+        }
+      } catch (IOException e) {
+        closeReader();
+        throw new CacheException("Could not read invalidations from " + file + ". Cause: " + e, e);
+      }
+    }
+    for (CacheInvalidation invalidation : received) {
+      receive(invalidation);
+    }
+  }
+
+  /**
+   * Stops polling and closes the file.
+   */
+  @Override
+  public synchronized void close() {
+    if (poller != null) {
+      poller.shutdownNow();
+      poller = null;
+    }
+    closeReader();
+  }
+
+  private void pollQuietly() {
+    try {
+      poll();
+    } catch (RuntimeException e) {
+      log.warn("Failed to apply cache invalidations from " + file + ". Cause: " + e);
+    }
+  }
+
+  /**
+   * Polls the bus as long as it is reachable, so that the poller thread does not keep a discarded bus, and the
+   * caches that subscribed to it, alive.
+   */
+  private static final class PollTask implements Runnable {
+
+    private final WeakReference<FileCacheInvalidationBus> bus;
+    private final ScheduledExecutorService poller;
+
+    PollTask(FileCacheInvalidationBus bus, ScheduledExecutorService poller) {
+      this.bus = new WeakReference<>(bus);
+      this.poller = poller;
+    }
+
+    @Override
+    public void run() {
+      FileCacheInvalidationBus bus = this.bus.get();
+      if (bus == null) {
+        poller.shutdown();
+      } else {
+        bus.pollQuietly();
+      }
+    }
+  }
+
+  private void skipToEnd() {
+    try {
+      while (openReader() && isRotated(reader)) {
+        // 打开的是刚被轮转的文件
+        closeReader();
+      }
+      position = reader == null ? 0 : reader.size();
+    } catch (IOException e) {
+      closeReader();
+      position = 0;
+    }
+  }
+
+  /**
+   * @return false if the file does not exist yet
+   */
+  private boolean openReader() throws IOException {
+    if (reader == null) {
+      try {
+        reader = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+      } catch (NoSuchFileException e) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reads the complete lines written after the current position.
+   *
+   * @return true if the file was rotated and the new one must be read
+   */
+  private boolean readLines(List<CacheInvalidation> received) throws IOException {
+    long length = reader.size();
+    if (length < position) {
+      // 文件被截断
+      position = 0;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate((int) (length - position));
+    while (buffer.hasRemaining() && reader.read(buffer, position + buffer.position()) >= 0) {
+      // 读取到 length 为止
+    }
+    byte[] data = buffer.array();
+    int start = 0;
+    for (int i = 0; i < buffer.position(); i++) {
+      if (data[i] == '\n') {
+        String line = new String(data, start, i - start, StandardCharsets.UTF_8);
+        start = i + 1;
+        if (ROTATED.equals(line)) {
+          return true;
+        }
+        received.add(parse(line));
+      }
+    }
+    // 只消费完整的行，写了一半的行留到下次读取
+    position += start;
+    return false;
+  }
+
+  private void closeReader() {
+    if (reader != null) {
+      try {
+        reader.close();
+      } catch (IOException e) {
+        // ignore
+      }
+      reader = null;
+    }
+  }
+
+  private static void append(FileChannel channel, byte[] data) throws IOException {
+    // 持有文件锁，直接写到文件末尾
+    ByteBuffer buffer = ByteBuffer.wrap(data);
+    long position = channel.size();
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+
+  private static Path canonicalPath(String file) {
+    try {
+      return new File(file).getCanonicalFile().toPath();
+    } catch (IOException e) {
+      return Paths.get(file).toAbsolutePath().normalize();
+    }
+  }
+
+  private static boolean isRotated(FileChannel channel) throws IOException {
+    byte[] mark = (ROTATED + "\n").getBytes(StandardCharsets.UTF_8);
+    long size = channel.size();
+    if (size < mark.length) {
+      return false;
+    }
+    ByteBuffer tail = ByteBuffer.allocate(mark.length);
+    while (tail.hasRemaining() && channel.read(tail, size - mark.length + tail.position()) >= 0) {
+      // 读取文件末尾
+    }
+    return Arrays.equals(mark, tail.array());
+  }
+
+  private static CacheInvalidation parse(String line) {
+    String[] fields = line.split("\t", -1);
+    CacheInvalidation invalidation;
+    if (fields.length > 2) {
+      String tags = decode(fields[2]);
+      invalidation = CacheInvalidation.tags(decode(fields[1]),
+          tags.isEmpty() ? new ArrayList<>() : Arrays.asList(tags.split(",")));
+    } else {
+      invalidation = CacheInvalidation.clear(decode(fields[1]));
+    }
+    return invalidation.withOrigin(decode(fields[0]));
+  }
+
+  private static String encode(String value) {
+    try {
+      return URLEncoder.encode(value, "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new CacheException(e);
+    }
+  }
+
+  private static String decode(String value) {
+    try {
+      return URLDecoder.decode(value, "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new CacheException(e);
+    }
+  }
+
+}
@@ -0,0 +1,100 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bus between the configurations of a single JVM, for instance several <code>SqlSessionFactory</code> instances
+ * on the same database, or tests that simulate several nodes. Buses on the same <code>channel</code> (default
+ * <code>default</code>) see each other's invalidations, which are applied synchronously by the publishing thread.
+ * <p>
+ * Configurations that do not set a channel, e.g. with a <code>channel</code> property of the
+ * <code>&lt;cacheInvalidationBus&gt;</code> element, all share the default one. A bus that is discarded without
+ * being closed leaves its channel once it is garbage collected.
+ */
+public class InJvmCacheInvalidationBus extends AbstractCacheInvalidationBus {
+
+  // 弱引用保存各个总线，没有关闭就被丢弃的 Configuration 不会一直留在频道中
+  private static final Map<String, Set<InJvmCacheInvalidationBus>> CHANNELS = new ConcurrentHashMap<>();
+
+  private String channel;
+
+  public InJvmCacheInvalidationBus() {
+    this("default");
+  }
+
+  public InJvmCacheInvalidationBus(String channel) {
+    join(channel);
+  }
+
+  public String getChannel() {
+    return channel;
+  }
+
+  public synchronized void setChannel(String channel) {
+    leave();
+    join(channel);
+  }
+
+  @Override
+  public void setProperties(Properties properties) {
+    String channel = properties.getProperty("channel");
+    if (channel != null) {
+      setChannel(channel);
+    }
+  }
+
+  @Override
+  protected void send(CacheInvalidation invalidation) {
+    Set<InJvmCacheInvalidationBus> buses = CHANNELS.getOrDefault(channel, Collections.emptySet());
+    List<InJvmCacheInvalidationBus> receivers;
+    synchronized (buses) {
+      receivers = new ArrayList<>(buses);
+    }
+    for (InJvmCacheInvalidationBus bus : receivers) {
+      if (bus != this) {
+        bus.receive(invalidation);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    leave();
+  }
+
+  private void join(String channel) {
+    this.channel = channel;
+    CHANNELS.computeIfAbsent(channel, k -> Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>())))
+        .add(this);
+  }
+
+  private void leave() {
+    Set<InJvmCacheInvalidationBus> buses = CHANNELS.get(channel);
+    if (buses != null) {
+      buses.remove(this);
+    }
+  }
+
+}
@@ -0,0 +1,246 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Saves the entries of the second level caches of a configuration to a file, and puts them back into the caches
+ * of a later run, so that a restarted application does not start with cold caches.
+ * <p>
+ * Every namespace is saved with a {@link StatementFingerprint fingerprint} of the statements using its cache; it
+ * is only restored if the statements did not change since. Keys and values must be serializable, entries that
+ * cannot be written or read back (for instance because their class changed) are skipped. Caches that cannot list
+ * their keys ({@link Cache#getKeys()}) are not saved. Entries are read with {@link Cache#peekObject(Object)}, so
+ * saving does not count as cache hits nor start refreshes, and keep the time they had left to live.
+ * <p>
+ * When the <code>cacheSnapshotFile</code> setting is set, {@link org.apache.ibatis.session.SqlSessionFactoryBuilder}
+ * restores the snapshot when the factory is built and saves it again when the JVM shuts down. Only the last factory
+ * built for a file is saved.
+ */
+public class CacheSnapshot {
+
+  private static final Log log = LogFactory.getLog(CacheSnapshot.class);
+
+  private static final String MAGIC = "MyBatis cache snapshot";
+  private static final int VERSION = 2;
+  private static final int END_OF_CACHE = -1;
+
+  // 每个文件只注册一个关闭钩子，保存最后一次为该文件构建的配置
+  private static final Map<Path, CacheSnapshot> savedOnShutdown = new ConcurrentHashMap<>();
+
+  private final Configuration configuration;
+  private final Path file;
+
+  public CacheSnapshot(Configuration configuration, String file) {
+    this.configuration = configuration;
+    this.file = Paths.get(file);
+  }
+
+  /**
+   * Writes the entries of all the caches. The file is replaced only once it has been completely written.
+   *
+   * @return The number of entries written
+   */
+  public int save() {
+    Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+    int count = 0;
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+      out.writeUTF(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(System.currentTimeMillis());
+      for (Cache cache : distinctCaches()) {
+        Set<Object> keys = cache.getKeys();
+        if (keys.isEmpty()) {
+          continue;
+        }
+        out.writeBoolean(true);
+        out.writeUTF(cache.getId());
+        out.writeUTF(StatementFingerprint.of(configuration, cache));
+        for (Object key : keys) {
+          Object value = cache.peekObject(key);
+          long timeToLive = cache.getTimeToLive(key);
+          if (value == null || timeToLive == 0) {
+            continue;
+          }
+          byte[] entry = serializeEntry(key, value);
+          if (entry != null) {
+            out.writeInt(entry.length);
+            out.write(entry);
+            out.writeLong(timeToLive);
+            count++;
+          }
+        }
+        out.writeInt(END_OF_CACHE);
+      }
+      out.writeBoolean(false);
+    } catch (IOException e) {
+      throw new CacheException("Error writing cache snapshot " + file + ". Cause: " + e, e);
+    }
+    try {
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new CacheException("Error writing cache snapshot " + file + ". Cause: " + e, e);
+    }
+    return count;
+  }
+
+  /**
+   * Puts the saved entries back into the caches whose statements did not change. Does nothing if there is no
+   * snapshot file.
+   *
+   * @return The number of entries restored
+   */
+  public int load() {
+    if (!Files.exists(file)) {
+      return 0;
+    }
+    int count = 0;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (!MAGIC.equals(in.readUTF()) || in.readInt() != VERSION) {
+        log.warn("Ignoring cache snapshot " + file + " written by another version.");
+        return 0;
+      }
+      long elapsed = Math.max(0, System.currentTimeMillis() - in.readLong());
+      while (in.readBoolean()) {
+        String id = in.readUTF();
+        String fingerprint = in.readUTF();
+        Cache cache = configuration.hasCache(id) ? configuration.getCache(id) : null;
+        boolean valid = cache != null && fingerprint.equals(StatementFingerprint.of(configuration, cache));
+        if (!valid && log.isDebugEnabled()) {
+          log.debug("Discarding the snapshot of cache " + id + " as its statements changed.");
+        }
+        int length;
+        while ((length = in.readInt()) != END_OF_CACHE) {
+          byte[] entry = new byte[length];
+          in.readFully(entry);
+          long timeToLive = in.readLong();
+          // 保存之后已经过期的缓存项不再恢复
+          boolean expired = timeToLive >= 0 && timeToLive <= elapsed;
+          if (valid && !expired && restoreEntry(cache, entry, timeToLive < 0 ? -1 : timeToLive - elapsed)) {
+            count++;
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new CacheException("Error reading cache snapshot " + file + ". Cause: " + e, e);
+    }
+    return count;
+  }
+
+  /**
+   * Restores the snapshot now and saves it when the JVM shuts down. Failures are logged, as a snapshot only
+   * saves work. Calling this again for the same file replaces the snapshot saved on shutdown.
+   */
+  public void loadAndSaveOnShutdown() {
+    try {
+      int count = load();
+      if (log.isDebugEnabled()) {
+        log.debug("Restored " + count + " cache entries from " + file);
+      }
+    } catch (CacheException e) {
+      log.warn("Could not restore cache snapshot. Cause: " + e);
+    }
+    Path path = file.toAbsolutePath().normalize();
+    if (savedOnShutdown.put(path, this) == null) {
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          savedOnShutdown.get(path).save();
+        } catch (CacheException e) {
+          log.warn("Could not save cache snapshot. Cause: " + e);
+        }
+      }, "mybatis-cache-snapshot"));
+    }
+  }
+
+  private Set<Cache> distinctCaches() {
+    // caches 中的缓存还会以短名称保存一次，短名称冲突时保存的是 Ambiguity 对象
+    Set<Cache> caches = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Object value : configuration.getCaches()) {
+      if (value instanceof Cache) {
+        caches.add((Cache) value);
+      }
+    }
+    return caches;
+  }
+
+  private byte[] serializeEntry(Object key, Object value) {
+    try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
+         ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(key);
+      // tags 不随 CacheKey 序列化
+      oos.writeObject(key instanceof CacheKey ? ((CacheKey) key).getTags() : null);
+      oos.writeObject(value);
+      oos.flush();
+      return bos.toByteArray();
+    } catch (IOException e) {
+      if (log.isDebugEnabled()) {
+        log.debug("Skipping cache entry that cannot be serialized. Cause: " + e);
+      }
+      return null;
+    }
+  }
+
+  private boolean restoreEntry(Cache cache, byte[] entry, long timeToLive) {
+    Object key;
+    Object value;
+    try (ObjectInputStream ois = new SerializedCache.CustomObjectInputStream(new ByteArrayInputStream(entry))) {
+      key = ois.readObject();
+      String[] tags = (String[]) ois.readObject();
+      if (key instanceof CacheKey && tags != null) {
+        ((CacheKey) key).setTags(tags);
+      }
+      value = ois.readObject();
+    } catch (IOException | ClassNotFoundException e) {
+      if (log.isDebugEnabled()) {
+        log.debug("Skipping cache entry that cannot be deserialized. Cause: " + e);
+      }
+      return false;
+    }
+    if (timeToLive < 0) {
+      cache.putObject(key, value);
+    } else {
+      cache.putObject(key, value, timeToLive);
+    }
+    return true;
+  }
+
+}
@@ -0,0 +1,172 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.snapshot;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+
+/**
+ * Digest of the statements that use a cache: their ids, sql sources and result maps. Cached entries are only
+ * restored when the digest did not change, so that results of an older sql or with another shape are discarded.
+ * <p>
+ * Sql sources and result maps are described by walking their fields, which covers dynamic sql trees and providers
+ * without each of them having to describe itself.
+ */
+final class StatementFingerprint {
+
+  private static final int MAX_DEPTH = 32;
+
+  private StatementFingerprint() {
+    // Prevent Instantiation of Static Class
+  }
+
+  static String of(Configuration configuration, Cache cache) {
+    // mappedStatements 中同一语句还会以短名称保存一次，短名称冲突时保存的是 Ambiguity 对象
+    Map<String, MappedStatement> statements = new TreeMap<>();
+    for (Object value : configuration.getMappedStatements()) {
+      if (value instanceof MappedStatement && ((MappedStatement) value).getCache() == cache) {
+        statements.put(((MappedStatement) value).getId(), (MappedStatement) value);
+      }
+    }
+    StringBuilder description = new StringBuilder();
+    for (MappedStatement ms : statements.values()) {
+      description.append(ms.getId()).append(';').append(ms.getStatementType()).append(';')
+          .append(ms.getSqlCommandType()).append(';');
+      describe(ms.getSqlSource(), description, new IdentityHashMap<>(), 0);
+      describe(ms.getResultMaps(), description, new IdentityHashMap<>(), 0);
+    }
+    return digest(description.toString());
+  }
+
+  private static void describe(Object value, StringBuilder out, Map<Object, Object> seen, int depth) {
+    if (value == null) {
+      out.append("null;");
+      return;
+    }
+    if (value instanceof Configuration || value instanceof TypeHandlerRegistry || value instanceof Log) {
+      // 全局共享的对象，不属于语句本身
+      return;
+    }
+    if (value instanceof CharSequence || value instanceof Number || value instanceof Boolean
+        || value instanceof Character || value instanceof Enum) {
+      out.append(value).append(';');
+      return;
+    }
+    if (value instanceof Class) {
+      out.append(((Class<?>) value).getName()).append(';');
+      return;
+    }
+    if (value instanceof Member || value instanceof Pattern) {
+      out.append(value).append(';');
+      return;
+    }
+    if (depth > MAX_DEPTH || seen.put(value, value) != null) {
+      out.append("^;");
+      return;
+    }
+    Class<?> type = value.getClass();
+    if (type.isArray()) {
+      out.append('[');
+      for (int i = 0; i < Array.getLength(value); i++) {
+        describe(Array.get(value, i), out, seen, depth + 1);
+      }
+      out.append(']');
+    } else if (value instanceof List) {
+      out.append('[');
+      for (Object element : (List<?>) value) {
+        describe(element, out, seen, depth + 1);
+      }
+      out.append(']');
+    } else if (value instanceof Collection) {
+      // 其他集合的迭代顺序不固定，排序后再拼接
+      List<String> elements = new ArrayList<>();
+      for (Object element : (Collection<?>) value) {
+        StringBuilder sb = new StringBuilder();
+        describe(element, sb, seen, depth + 1);
+        elements.add(sb.toString());
+      }
+      Collections.sort(elements);
+      out.append('[').append(String.join("", elements)).append(']');
+    } else if (value instanceof Map) {
+      List<String> entries = new ArrayList<>();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        StringBuilder sb = new StringBuilder();
+        describe(entry.getKey(), sb, seen, depth + 1);
+        describe(entry.getValue(), sb, seen, depth + 1);
+        entries.add(sb.toString());
+      }
+      Collections.sort(entries);
+      out.append('{').append(String.join("", entries)).append('}');
+    } else if (type.getName().startsWith("java.")) {
+      out.append(type.getName()).append(':').append(value).append(';');
+    } else {
+      out.append(type.getName()).append('{');
+      for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+        for (Field field : c.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+            continue;
+          }
+          out.append(field.getName()).append('=');
+          describe(readField(field, value), out, seen, depth + 1);
+        }
+      }
+      out.append('}');
+    }
+  }
+
+  private static Object readField(Field field, Object target) {
+    try {
+      field.setAccessible(true);
+      return field.get(target);
+    } catch (Exception e) {
+      return "?";
+    }
+  }
+
+  private static String digest(String description) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(description.getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder();
+      for (byte b : hash) {
+        hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new CacheException("Could not compute the statement fingerprint. Cause: " + e, e);
+    }
+  }
+
+}
@@ -0,0 +1,124 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.stats;
+
+/**
+ * Point in time statistics of a second level cache. Times are in nanoseconds.
+ *
+ * @see org.apache.ibatis.cache.decorators.StatisticsCache
+ * @see CacheStatisticsRegistry
+ */
+public final class CacheStatistics {
+
+  private final String id;
+  private final long hitCount;
+  private final long missCount;
+  private final long putCount;
+  private final long evictionCount;
+  private final int size;
+  private final long loadCount;
+  private final long totalLoadTime;
+  private final long waitCount;
+  private final long totalWaitTime;
+
+  public CacheStatistics(String id, long hitCount, long missCount, long putCount, long evictionCount, int size,
+      long loadCount, long totalLoadTime, long waitCount, long totalWaitTime) {
+    this.id = id;
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.putCount = putCount;
+    this.evictionCount = evictionCount;
+    this.size = size;
+    this.loadCount = loadCount;
+    this.totalLoadTime = totalLoadTime;
+    this.waitCount = waitCount;
+    this.totalWaitTime = totalWaitTime;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public long getRequestCount() {
+    return hitCount + missCount;
+  }
+
+  /**
+   * @return hits divided by requests, or 1 if there was no request yet
+   */
+  public double getHitRatio() {
+    long requests = getRequestCount();
+    return requests == 0 ? 1.0 : (double) hitCount / requests;
+  }
+
+  public long getPutCount() {
+    return putCount;
+  }
+
+  /**
+   * @return entries dropped by the cache itself (size or memory bound, expiry, garbage collection), not the ones
+   *         removed because of a flush
+   */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * @return number of queries executed after a cache miss
+   */
+  public long getLoadCount() {
+    return loadCount;
+  }
+
+  public long getTotalLoadTime() {
+    return totalLoadTime;
+  }
+
+  public double getAverageLoadPenalty() {
+    return loadCount == 0 ? 0.0 : (double) totalLoadTime / loadCount;
+  }
+
+  /**
+   * @return number of times a thread waited for the load of another thread in a blocking cache
+   */
+  public long getWaitCount() {
+    return waitCount;
+  }
+
+  public long getTotalWaitTime() {
+    return totalWaitTime;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStatistics{id=" + id + ", hits=" + hitCount + ", misses=" + missCount + ", puts=" + putCount
+        + ", evictions=" + evictionCount + ", size=" + size + ", loads=" + loadCount + ", loadTime=" + totalLoadTime
+        + ", waits=" + waitCount + ", waitTime=" + totalWaitTime + "}";
+  }
+
+}
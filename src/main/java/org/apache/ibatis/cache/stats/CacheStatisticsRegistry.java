@@ -0,0 +1,205 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.stats;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.decorators.StatisticsCache;
+
+/**
+ * Keeps the caches of a {@link org.apache.ibatis.session.Configuration} that collect statistics, that is all of them
+ * when the <code>cacheStatisticsEnabled</code> setting is on.
+ * <p>
+ * Statistics can be read as snapshots or published as MBeans named
+ * <code>org.apache.ibatis:type=CacheStatistics,registry=&lt;name&gt;,name=&lt;cache id&gt;</code>.
+ */
+public class CacheStatisticsRegistry {
+
+  private static final String DOMAIN = "org.apache.ibatis";
+
+  private final Map<String, StatisticsCache> caches = new ConcurrentHashMap<>();
+
+  // 已注册的 MBean，注册之后添加的缓存也会自动注册
+  private final Map<String, ObjectName> objectNames = new HashMap<>();
+  private MBeanServer server;
+  private String registryName;
+
+  public void register(StatisticsCache cache) {
+    caches.put(cache.getId(), cache);
+    synchronized (this) {
+      if (server != null) {
+        registerMBean(cache);
+      }
+    }
+  }
+
+  public Collection<String> getCacheIds() {
+    return Collections.unmodifiableCollection(new ArrayList<>(caches.keySet()));
+  }
+
+  /**
+   * @return The statistics of the cache, or null if there is no such cache or it does not collect statistics
+   */
+  public CacheStatistics getStatistics(String id) {
+    StatisticsCache cache = caches.get(id);
+    return cache == null ? null : cache.getStatistics();
+  }
+
+  /**
+   * @return The statistics of every cache, sorted by id
+   */
+  public Map<String, CacheStatistics> getAllStatistics() {
+    Map<String, CacheStatistics> statistics = new TreeMap<>();
+    for (StatisticsCache cache : caches.values()) {
+      statistics.put(cache.getId(), cache.getStatistics());
+    }
+    return statistics;
+  }
+
+  /**
+   * Registers one MBean per cache in the platform MBean server, under the registry name <code>default</code>.
+   */
+  public void registerMBeans() {
+    registerMBeans(ManagementFactory.getPlatformMBeanServer(), "default");
+  }
+
+  /**
+   * @param server The server to register to
+   * @param registryName Name that tells this configuration apart when there are several in the same server
+   */
+  public synchronized void registerMBeans(MBeanServer server, String registryName) {
+    unregisterMBeans();
+    this.server = server;
+    this.registryName = registryName;
+    for (StatisticsCache cache : caches.values()) {
+      registerMBean(cache);
+    }
+  }
+
+  public synchronized void unregisterMBeans() {
+    if (server == null) {
+      return;
+    }
+    List<ObjectName> names = new ArrayList<>(objectNames.values());
+    objectNames.clear();
+    for (ObjectName name : names) {
+      try {
+        server.unregisterMBean(name);
+      } catch (JMException e) {
+        throw new CacheException("Could not unregister cache statistics MBean " + name + ". Cause: " + e, e);
+      }
+    }
+    server = null;
+  }
+
+  private void registerMBean(StatisticsCache cache) {
+    try {
+      ObjectName name = new ObjectName(DOMAIN + ":type=CacheStatistics,registry=" + ObjectName.quote(registryName)
+          + ",name=" + ObjectName.quote(cache.getId()));
+      ObjectName previous = objectNames.remove(cache.getId());
+      if (previous != null) {
+        server.unregisterMBean(previous);
+      }
+      server.registerMBean(new StatisticsBean(cache), name);
+      objectNames.put(cache.getId(), name);
+    } catch (JMException e) {
+      throw new CacheException("Could not register cache statistics MBean for " + cache.getId() + ". Cause: " + e, e);
+    }
+  }
+
+  private static class StatisticsBean implements CacheStatisticsMXBean {
+
+    private final StatisticsCache cache;
+
+    StatisticsBean(StatisticsCache cache) {
+      this.cache = cache;
+    }
+
+    @Override
+    public String getId() {
+      return cache.getId();
+    }
+
+    @Override
+    public long getHitCount() {
+      return cache.getStatistics().getHitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+      return cache.getStatistics().getMissCount();
+    }
+
+    @Override
+    public double getHitRatio() {
+      return cache.getStatistics().getHitRatio();
+    }
+
+    @Override
+    public long getPutCount() {
+      return cache.getStatistics().getPutCount();
+    }
+
+    @Override
+    public long getEvictionCount() {
+      return cache.getStatistics().getEvictionCount();
+    }
+
+    @Override
+    public int getSize() {
+      return cache.getSize();
+    }
+
+    @Override
+    public long getLoadCount() {
+      return cache.getStatistics().getLoadCount();
+    }
+
+    @Override
+    public long getTotalLoadTime() {
+      return cache.getStatistics().getTotalLoadTime();
+    }
+
+    @Override
+    public double getAverageLoadPenalty() {
+      return cache.getStatistics().getAverageLoadPenalty();
+    }
+
+    @Override
+    public long getWaitCount() {
+      return cache.getStatistics().getWaitCount();
+    }
+
+    @Override
+    public long getTotalWaitTime() {
+      return cache.getStatistics().getTotalWaitTime();
+    }
+  }
+
+}
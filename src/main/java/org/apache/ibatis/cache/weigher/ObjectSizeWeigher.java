@@ -0,0 +1,196 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.weigher;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.executor.loader.WriteReplaceInterface;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * Estimates the retained heap size of a cached value, assuming a 64 bit JVM with compressed references.
+ * <p>
+ * Beans are walked through the getters listed by their {@link Reflector}, strings, boxed values, dates, arrays,
+ * collections and maps use fixed size formulas. Shared references are counted once. To keep the cost of a put
+ * bounded, only the first {@link #getSampleSize() sampleSize} elements of large collections and arrays are walked
+ * and the result is extrapolated to the whole collection. Lazy loading proxies are not walked so that weighing
+ * never triggers a query.
+ */
+public class ObjectSizeWeigher implements Weigher {
+
+  private static final int OBJECT_HEADER = 12;
+  private static final int ARRAY_HEADER = 16;
+  private static final int REFERENCE = 4;
+  private static final int MAX_DEPTH = 64;
+
+  private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+  private final Map<Class<?>, BeanLayout> layouts = new ConcurrentHashMap<>();
+  private int sampleSize = 32;
+
+  @Override
+  public long weigh(Object key, Object value) {
+    return sizeOf(value, new IdentityHashMap<>(), 0);
+  }
+
+  public int getSampleSize() {
+    return sampleSize;
+  }
+
+  public void setSampleSize(int sampleSize) {
+    this.sampleSize = Math.max(1, sampleSize);
+  }
+
+  private long sizeOf(Object value, Map<Object, Object> visited, int depth) {
+    if (value == null || value instanceof Enum || depth > MAX_DEPTH || visited.put(value, value) != null) {
+      return 0;
+    }
+    Class<?> type = value.getClass();
+    if (value instanceof String) {
+      return align(OBJECT_HEADER + 12) + align(ARRAY_HEADER + 2L * ((String) value).length());
+    } else if (value instanceof Long || value instanceof Double) {
+      return align(OBJECT_HEADER + 8);
+    } else if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+      if (value instanceof BigDecimal) {
+        return align(OBJECT_HEADER + 24) + align(OBJECT_HEADER + 28) + align(ARRAY_HEADER + 8);
+      } else if (value instanceof BigInteger) {
+        return align(OBJECT_HEADER + 28) + align(ARRAY_HEADER + ((BigInteger) value).bitLength() / 8 + 4);
+      }
+      return align(OBJECT_HEADER + 4);
+    } else if (value instanceof Date) {
+      return align(OBJECT_HEADER + 4 + 8 + 4);
+    } else if (type.isArray()) {
+      return arraySize(value, visited, depth);
+    } else if (value instanceof Collection) {
+      Collection<?> collection = (Collection<?>) value;
+      long overhead = value instanceof List ? REFERENCE : 32;
+      return align(OBJECT_HEADER + 28) + align(ARRAY_HEADER + (long) collection.size() * REFERENCE)
+          + collection.size() * overhead + elementsSize(collection.iterator(), collection.size(), visited, depth);
+    } else if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      return align(OBJECT_HEADER + 36) + align(ARRAY_HEADER + (long) map.size() * REFERENCE) + map.size() * 32L
+          + elementsSize(map.keySet().iterator(), map.size(), visited, depth)
+          + elementsSize(map.values().iterator(), map.size(), visited, depth);
+    } else if (WriteReplaceInterface.class.isAssignableFrom(type) || Proxy.isProxyClass(type)) {
+      // 延迟加载代理，调用 getter 会触发查询，只计算对象头
+      return align(OBJECT_HEADER + REFERENCE);
+    }
+    return beanSize(value, visited, depth);
+  }
+
+  private long arraySize(Object array, Map<Object, Object> visited, int depth) {
+    Class<?> componentType = array.getClass().getComponentType();
+    int length = Array.getLength(array);
+    if (componentType.isPrimitive()) {
+      return align(ARRAY_HEADER + (long) length * primitiveSize(componentType));
+    }
+    Object[] elements = (Object[]) array;
+    Iterator<Object> iterator = new Iterator<Object>() {
+      private int index;
+
+      @Override
+      public boolean hasNext() {
+        return index < elements.length;
+      }
+
+      @Override
+      public Object next() {
+        return elements[index++];
+      }
+    };
+    return align(ARRAY_HEADER + (long) length * REFERENCE) + elementsSize(iterator, length, visited, depth);
+  }
+
+  private long elementsSize(Iterator<?> elements, int size, Map<Object, Object> visited, int depth) {
+    long total = 0;
+    int sampled = 0;
+    while (sampled < sampleSize && elements.hasNext()) {
+      total += sizeOf(elements.next(), visited, depth + 1);
+      sampled++;
+    }
+    if (sampled == 0) {
+      return 0;
+    }
+    // 超过取样数量的元素按平均大小估算
+    return sampled < size ? total * size / sampled : total;
+  }
+
+  private long beanSize(Object bean, Map<Object, Object> visited, int depth) {
+    BeanLayout layout = layouts.computeIfAbsent(bean.getClass(), type -> new BeanLayout(reflectorFactory.findForClass(type)));
+    long size = layout.shallowSize;
+    for (Invoker getter : layout.references) {
+      try {
+        size += sizeOf(getter.invoke(bean, null), visited, depth + 1);
+      } catch (IllegalAccessException | InvocationTargetException | RuntimeException e) {
+        // 无法读取的属性忽略，这里只是估算
+      }
+    }
+    return size;
+  }
+
+  private static int primitiveSize(Class<?> type) {
+    if (type == long.class || type == double.class) {
+      return 8;
+    } else if (type == int.class || type == float.class) {
+      return 4;
+    } else if (type == short.class || type == char.class) {
+      return 2;
+    } else {
+      return 1;
+    }
+  }
+
+  private static long align(long size) {
+    return (size + 7) & ~7L;
+  }
+
+  /**
+   * Shallow size and reference properties of a class, computed once from its {@link Reflector}.
+   */
+  private static final class BeanLayout {
+    private final long shallowSize;
+    private final List<Invoker> references = new ArrayList<>();
+
+    BeanLayout(Reflector reflector) {
+      long fields = 0;
+      for (String property : reflector.getGetablePropertyNames()) {
+        Class<?> propertyType = reflector.getGetterType(property);
+        if (propertyType.isPrimitive()) {
+          fields += primitiveSize(propertyType);
+        } else {
+          fields += REFERENCE;
+          references.add(reflector.getGetInvoker(property));
+        }
+      }
+      this.shallowSize = align(OBJECT_HEADER + fields);
+    }
+  }
+
+}
@@ -0,0 +1,34 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.weigher;
+
+/**
+ * Computes the weight of a cache entry, usually its estimated size in bytes.
+ * <p>
+ * Implementations must be thread safe and have a no-argument constructor.
+ *
+ * @see org.apache.ibatis.cache.decorators.WeightedCache
+ */
+public interface Weigher {
+
+  /**
+   * @param key The cache key
+   * @param value The cached value, never null
+   * @return The weight of the entry, must not be negative
+   */
+  long weigh(Object key, Object value);
+
+}
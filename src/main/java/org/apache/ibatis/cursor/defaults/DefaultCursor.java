@@ -19,6 +19,8 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
@@ -103,6 +105,14 @@ public class DefaultCursor<T> implements Cursor<T> {
     return cursorIterator;
   }
 
+  /**
+   * 按结果集顺序返回元素，元素不会为 null（null 表示结果集已读完），总数未知
+   */
+  @Override
+  public Spliterator<T> spliterator() {
+    return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.NONNULL);
+  }
+
   @Override
   public void close() {
     if (isClosed()) {
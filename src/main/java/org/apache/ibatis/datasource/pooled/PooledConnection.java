@@ -36,6 +36,7 @@ import org.apache.ibatis.reflection.ExceptionUtil;
 class PooledConnection implements InvocationHandler {
 
   private static final String CLOSE = "close";
+  private static final String PREPARE_STATEMENT = "prepareStatement";
   private static final Class<?>[] IFACES = new Class<?>[] { Connection.class };
 
   private final int hashCode;
@@ -64,6 +65,9 @@ class PooledConnection implements InvocationHandler {
   // 用于标识 PooledConnection 对象是否有效
   private boolean valid;
 
+  // 底层连接的 PreparedStatement 缓存，未开启时为 null
+  private PooledStatementCache statementCache;
+
   /**
    * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in.
    *
@@ -78,13 +82,33 @@ class PooledConnection implements InvocationHandler {
     this.lastUsedTimestamp = System.currentTimeMillis();
     this.valid = true;
     this.proxyConnection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), IFACES, this);
+    int statementCacheSize = dataSource.getPoolPreparedStatementCacheSize();
+    if (statementCacheSize > 0) {
+      this.statementCache = new PooledStatementCache(connection, statementCacheSize);
+    }
   }
 
   /**
-   * Invalidates the connection.
+   * Invalidates the connection and closes the statements it caches.
    */
   public void invalidate() {
     valid = false;
+    if (statementCache != null) {
+      statementCache.close();
+      statementCache = null;
+    }
+  }
+
+  /**
+   * Takes over the statement cache of the connection previously wrapping the same real connection.
+   *
+   * @param previous - the former wrapper, that is about to be invalidated
+   */
+  void takeStatementCache(PooledConnection previous) {
+    if (statementCache != null && previous.statementCache != null) {
+      statementCache = previous.statementCache;
+      previous.statementCache = null;
+    }
   }
 
   /**
@@ -276,6 +300,11 @@ class PooledConnection implements InvocationHandler {
         checkConnection();
       }
 
+      if (statementCache != null && PREPARE_STATEMENT.equals(methodName)) {
+        // 从底层连接的缓存中获取 PreparedStatement
+        return statementCache.prepare(method, args, proxyConnection);
+      }
+
       // 调用 realConnection 的对应方法。
       return method.invoke(realConnection, args);
     } catch (Throwable t) {
@@ -55,6 +55,7 @@ public class PooledDataSource implements DataSource {
   protected String poolPingQuery = "NO PING QUERY SET";
   protected boolean poolPingEnabled;
   protected int poolPingConnectionsNotUsedFor;
+  protected int poolPreparedStatementCacheSize;
 
   private int expectedConnectionTypeCode;
 
@@ -254,6 +255,19 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /**
+   * The number of prepared statements kept open for each connection of the pool, so that sessions borrowing the
+   * same connection reuse them. Zero (the default) disables the cache.
+   *
+   * @param poolPreparedStatementCacheSize the maximum number of statements cached per connection
+   *
+   * @since 3.5.3
+   */
+  public void setPoolPreparedStatementCacheSize(int poolPreparedStatementCacheSize) {
+    this.poolPreparedStatementCacheSize = poolPreparedStatementCacheSize;
+    forceCloseAll();
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -321,6 +335,10 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  public int getPoolPreparedStatementCacheSize() {
+    return poolPreparedStatementCacheSize;
+  }
+
   /**
    * Closes all active and idle connections in the pool.
    */
@@ -402,6 +420,8 @@ public class PooledDataSource implements DataSource {
 
           // 将底层连接重新封装成 PooledConnection 对象。
           PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
+          // 缓存的 PreparedStatement 属于底层连接，交给新的 PooledConnection
+          newConn.takeStatementCache(conn);
           state.idleConnections.add(newConn);
 
           // 设置新 pooledConnection 对象的创建时间、和最后使用时间
@@ -0,0 +1,240 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * LRU cache of the prepared statements of one physical connection.
+ * <p>
+ * The cache belongs to the real connection, not to the {@link PooledConnection} wrapper, so it is handed over to
+ * the new wrapper when the connection goes back to the pool and statements are reused by the next sessions that
+ * borrow the same connection, whatever executor they use.
+ * <p>
+ * A cached statement is removed from the cache while it is in use. Closing it puts it back instead of closing it;
+ * statements evicted, or returned once the cache has been closed, are really closed.
+ */
+class PooledStatementCache {
+
+  private static final Log log = LogFactory.getLog(PooledStatementCache.class);
+
+  private static final String CLOSE = "close";
+  private static final String IS_CLOSED = "isClosed";
+  private static final String GET_CONNECTION = "getConnection";
+  private static final Class<?>[] IFACES = new Class<?>[] { PreparedStatement.class };
+
+  private final Connection realConnection;
+  private final int size;
+
+  // key -> 空闲的 PreparedStatement，按访问顺序排列
+  private final Map<List<Object>, CachedStatement> statements = new LinkedHashMap<>(16, .75F, true);
+  private boolean closed;
+
+  PooledStatementCache(Connection realConnection, int size) {
+    this.realConnection = realConnection;
+    this.size = size;
+  }
+
+  /**
+   * Returns a statement for one of the <code>prepareStatement</code> methods of {@link Connection}.
+   *
+   * @param method - the <code>prepareStatement</code> method called
+   * @param args - its arguments
+   * @param proxyConnection - the connection the statement is handed out by
+   * @return a proxy of a cached or of a newly prepared statement
+   */
+  PreparedStatement prepare(Method method, Object[] args, Connection proxyConnection) throws Throwable {
+    List<Object> key = keyOf(method, args);
+    CachedStatement statement;
+    synchronized (this) {
+      statement = statements.remove(key);
+    }
+    if (statement == null) {
+      try {
+        statement = new CachedStatement(key, (PreparedStatement) method.invoke(realConnection, args));
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    } else if (log.isDebugEnabled()) {
+      log.debug("Reusing cached statement for: " + key.get(key.size() - args.length));
+    }
+    return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), IFACES,
+        new StatementHandle(statement, proxyConnection));
+  }
+
+  /**
+   * Closes the cached statements. Statements in use are closed when they are returned.
+   */
+  void close() {
+    List<CachedStatement> toClose;
+    synchronized (this) {
+      closed = true;
+      toClose = new ArrayList<>(statements.values());
+      statements.clear();
+    }
+    for (CachedStatement statement : toClose) {
+      statement.closeQuietly();
+    }
+  }
+
+  private void release(CachedStatement statement) {
+    if (!statement.reset()) {
+      statement.closeQuietly();
+      return;
+    }
+    List<CachedStatement> evicted = new ArrayList<>();
+    synchronized (this) {
+      if (closed || statements.containsKey(statement.key)) {
+        // 连接已失效，或者同一 SQL 的另一个 statement 已经放回缓存
+        evicted.add(statement);
+      } else {
+        statements.put(statement.key, statement);
+        Iterator<CachedStatement> eldest = statements.values().iterator();
+        while (statements.size() > size) {
+          evicted.add(eldest.next());
+          eldest.remove();
+        }
+      }
+    }
+    for (CachedStatement victim : evicted) {
+      victim.closeQuietly();
+    }
+  }
+
+  /**
+   * The key is made of the parameter types of the method called (so the different overloads never match each
+   * other) and of its arguments: the SQL, the result set type, concurrency and holdability, or the generated keys.
+   */
+  private static List<Object> keyOf(Method method, Object[] args) {
+    List<Object> key = new ArrayList<>(Arrays.asList(method.getParameterTypes()));
+    for (Object arg : args) {
+      if (arg instanceof int[]) {
+        key.add(Arrays.toString((int[]) arg));
+      } else if (arg instanceof Object[]) {
+        key.add(Arrays.asList((Object[]) arg));
+      } else {
+        key.add(arg);
+      }
+    }
+    return key;
+  }
+
+  /**
+   * A statement of the real connection, with the settings it had when prepared.
+   */
+  private static class CachedStatement {
+
+    private final List<Object> key;
+    private final PreparedStatement statement;
+    private final int fetchSize;
+    private final int maxRows;
+    private final int queryTimeout;
+
+    CachedStatement(List<Object> key, PreparedStatement statement) throws SQLException {
+      this.key = key;
+      this.statement = statement;
+      this.fetchSize = statement.getFetchSize();
+      this.maxRows = statement.getMaxRows();
+      this.queryTimeout = statement.getQueryTimeout();
+    }
+
+    /**
+     * Restores the statement so the next user gets it as if newly prepared.
+     *
+     * @return false if the statement could not be reset and must be closed
+     */
+    boolean reset() {
+      try {
+        statement.clearParameters();
+        statement.clearBatch();
+        statement.clearWarnings();
+        statement.setFetchSize(fetchSize);
+        statement.setMaxRows(maxRows);
+        statement.setQueryTimeout(queryTimeout);
+        return !statement.isClosed();
+      } catch (SQLException e) {
+        return false;
+      }
+    }
+
+    void closeQuietly() {
+      try {
+        statement.close();
+      } catch (SQLException e) {
+        // ignore
+      }
+    }
+  }
+
+  /**
+   * What a borrower of the connection gets. Each borrow has its own handle, so a handle closed by a former user can
+   * not reach a statement handed out again.
+   */
+  private class StatementHandle implements InvocationHandler {
+
+    private final CachedStatement statement;
+    private final Connection proxyConnection;
+    private boolean handleClosed;
+
+    StatementHandle(CachedStatement statement, Connection proxyConnection) {
+      this.statement = statement;
+      this.proxyConnection = proxyConnection;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String methodName = method.getName();
+      if (CLOSE.equals(methodName) && method.getParameterCount() == 0) {
+        if (!handleClosed) {
+          handleClosed = true;
+          release(statement);
+        }
+        return null;
+      } else if (IS_CLOSED.equals(methodName) && method.getParameterCount() == 0) {
+        return handleClosed || statement.statement.isClosed();
+      } else if (GET_CONNECTION.equals(methodName)) {
+        // 不能暴露真正的连接，否则调用方可能会关闭它
+        return proxyConnection;
+      } else if (Object.class.equals(method.getDeclaringClass())) {
+        return method.invoke(this, args);
+      }
+      if (handleClosed) {
+        throw new SQLException("Statement is closed.");
+      }
+      try {
+        return method.invoke(statement.statement, args);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    }
+  }
+
+}
@@ -43,6 +43,7 @@ import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.transaction.managed.ManagedTransaction;
+import org.apache.ibatis.transaction.routing.ReadWriteTransaction;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 
 /**
@@ -74,13 +75,23 @@ public abstract class BaseExecutor implements Executor {
   protected BaseExecutor(Configuration configuration, Transaction transaction) {
     this.transaction = transaction;
     this.deferredLoads = new ConcurrentLinkedQueue<>();
-    this.localCache = new PerpetualCache("LocalCache");
     this.localOutputParameterCache = new PerpetualCache("LocalOutputParameterCache");
+    this.localCache = newLocalCache(configuration, localOutputParameterCache);
     this.closed = false;
     this.configuration = configuration;
     this.wrapper = this;
   }
 
+  private static PerpetualCache newLocalCache(Configuration configuration, PerpetualCache outputParameterCache) {
+    Integer size = configuration == null ? null : configuration.getLocalCacheSize();
+    Long maxBytes = configuration == null ? null : configuration.getLocalCacheMaxBytes();
+    if (size == null && maxBytes == null) {
+      return new PerpetualCache("LocalCache");
+    }
+    return new BoundedLocalCache("LocalCache", size == null ? 0 : size, maxBytes == null ? 0 : maxBytes,
+        outputParameterCache);
+  }
+
   @Override
   public Transaction getTransaction() {
     if (closed) {
@@ -129,6 +140,10 @@ public abstract class BaseExecutor implements Executor {
      * 清空缓存。{@link #clearLocalCache()}
      */
     clearLocalCache();
+    if (transaction instanceof ReadWriteTransaction) {
+      // 读写分离：写操作之后的语句都在主库上执行
+      ((ReadWriteTransaction) transaction).markWritten();
+    }
     return doUpdate(ms, parameter);
   }
 
@@ -151,6 +166,10 @@ public abstract class BaseExecutor implements Executor {
      * 获取 BoundSql 对象，BoundSql 为动态 SQL 解析生成的SQL 语句和参数映射信息封装。{@link MappedStatement#getBoundSql(Object)}
      */
     BoundSql boundSql = ms.getBoundSql(parameter);
+    if (isLocalCacheUseless(ms)) {
+      // 查询结果不可能被任何缓存命中，跳过 CacheKey 的创建和一级缓存的写入
+      return queryWithoutLocalCache(ms, parameter, rowBounds, resultHandler, boundSql);
+    }
 
     /**
      * 创建，缓存 key {@link #createCacheKey(MappedStatement, Object, RowBounds, BoundSql)}
@@ -212,6 +231,10 @@ public abstract class BaseExecutor implements Executor {
       }
       // issue #601
       deferredLoads.clear();
+      if (localCache instanceof BoundedLocalCache) {
+        // 延迟加载完成之后才能淘汰缓存项
+        ((BoundedLocalCache) localCache).trim();
+      }
       if (configuration.getLocalCacheScope() == LocalCacheScope.STATEMENT) {
         // issue #482
         /**
@@ -255,16 +278,16 @@ public abstract class BaseExecutor implements Executor {
     if (closed) {
       throw new ExecutorException("Executor was closed.");
     }
-    CacheKey cacheKey = new CacheKey();
-    cacheKey.update(ms.getId());
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+
+    // statement id + sql，静态 SQL 复用预先计算好的前缀
+    CacheKey cacheKey = ms.newCacheKey(boundSql.getSql(), parameterMappings.size() + 3);
 
     // 偏移量
     cacheKey.update(rowBounds.getOffset());
 
     // 条数
     cacheKey.update(rowBounds.getLimit());
-    cacheKey.update(boundSql.getSql());
-    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
     TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
     // mimic DefaultParameterHandler logic
 
@@ -388,6 +411,34 @@ public abstract class BaseExecutor implements Executor {
     }
   }
 
+  /**
+   * The local cache is only read by later queries of the same session and by the nested queries of the running
+   * one. With the STATEMENT scope it is cleared after every outermost query, so a query that does not run nested
+   * queries (and does not need the output parameter cache) never gets anything out of it.
+   */
+  private boolean isLocalCacheUseless(MappedStatement ms) {
+    return queryStack == 0
+        && configuration.getLocalCacheScope() == LocalCacheScope.STATEMENT
+        && ms.getStatementType() != StatementType.CALLABLE
+        && !ms.hasNestedQueries();
+  }
+
+  private <E> List<E> queryWithoutLocalCache(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
+    ErrorContext.instance().resource(ms.getResource()).activity("executing a query").object(ms.getId());
+    if (closed) {
+      throw new ExecutorException("Executor was closed.");
+    }
+    if (ms.isFlushCacheRequired()) {
+      clearLocalCache();
+    }
+    try {
+      queryStack++;
+      return doQuery(ms, parameter, rowBounds, resultHandler, boundSql);
+    } finally {
+      queryStack--;
+    }
+  }
+
   private <E> List<E> queryFromDatabase(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql) throws SQLException {
     List<E> list;
     localCache.putObject(key, EXECUTION_PLACEHOLDER);
@@ -429,6 +480,48 @@ public abstract class BaseExecutor implements Executor {
     }
   }
 
+  /**
+   * 获取执行指定写语句的 “Connection” 连接。
+   * @param ms
+   * @return
+   * @throws SQLException
+   */
+  protected Connection getConnection(MappedStatement ms) throws SQLException {
+    return getConnection(ms, null);
+  }
+
+  /**
+   * 获取执行指定语句的 “Connection” 连接。读写分离时，查询语句可能使用从库连接。
+   * @param ms
+   * @param boundSql 语句的 SQL，用于识别 FOR UPDATE 等加锁查询
+   * @return
+   * @throws SQLException
+   */
+  protected Connection getConnection(MappedStatement ms, BoundSql boundSql) throws SQLException {
+    if (!(transaction instanceof ReadWriteTransaction)) {
+      return getConnection(ms.getStatementLog());
+    }
+    Connection connection = ((ReadWriteTransaction) transaction).getConnection(ms, sqlOf(boundSql));
+    Log statementLog = ms.getStatementLog();
+    if (statementLog.isDebugEnabled()) {
+      return ConnectionLogger.newInstance(connection, statementLog, queryStack);
+    } else {
+      return connection;
+    }
+  }
+
+  /**
+   * @return 读写分离时，语句是否会在从库上执行
+   */
+  protected boolean isReplicaRead(MappedStatement ms, BoundSql boundSql) {
+    return transaction instanceof ReadWriteTransaction
+        && ((ReadWriteTransaction) transaction).isReplicaRead(ms, sqlOf(boundSql));
+  }
+
+  private static String sqlOf(BoundSql boundSql) {
+    return boundSql == null ? null : boundSql.getSql();
+  }
+
   @Override
   public void setExecutorWrapper(Executor wrapper) {
     this.wrapper = wrapper;
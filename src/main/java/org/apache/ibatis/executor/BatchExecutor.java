@@ -47,6 +47,9 @@ public class BatchExecutor extends BaseExecutor {
   // 用来缓存一批 SQL，每个 Statement 可以写入多条SQL。
   private final List<Statement> statementList = new ArrayList<>();
   private final List<BatchResult> batchResultList = new ArrayList<>();
+
+  // 改写为多行 INSERT 的批次，与 statementList 一一对应，普通批次为 null
+  private final List<MultiRowInsert> insertList = new ArrayList<>();
   private String currentSql;
   private MappedStatement currentStatement;
 
@@ -64,6 +67,25 @@ public class BatchExecutor extends BaseExecutor {
 
     // 获取此次追加的SQL模板
     final String sql = boundSql.getSql();
+
+    // 单行 INSERT 先记录下来，在 flush 时合并成多行 INSERT 执行
+    if (configuration.isRewriteBatchedInserts() && MultiRowInsert.isRewritable(ms, sql)) {
+      if (sql.equals(currentSql) && ms.equals(currentStatement)) {
+        int last = insertList.size() - 1;
+        insertList.get(last).add(handler);
+        batchResultList.get(last).addParameterObject(parameterObject);
+      } else {
+        MultiRowInsert insert = new MultiRowInsert(ms, sql);
+        insert.add(handler);
+        currentSql = sql;
+        currentStatement = ms;
+        statementList.add(null);
+        insertList.add(insert);
+        batchResultList.add(new BatchResult(ms, sql, parameterObject));
+      }
+      return BATCH_UPDATE_RETURN_VALUE;
+    }
+
     final Statement stmt;
 
     // 比较此次追加的SQL模板与最近一次追加的SQL模板，以及两个MappedStatement对象
@@ -79,7 +101,7 @@ public class BatchExecutor extends BaseExecutor {
       BatchResult batchResult = batchResultList.get(last);
       batchResult.addParameterObject(parameterObject);
     } else {
-      Connection connection = getConnection(ms.getStatementLog());
+      Connection connection = getConnection(ms, boundSql);
 
       // 创建新的Statement对象
       stmt = handler.prepare(connection, transaction.getTimeout());
@@ -89,6 +111,7 @@ public class BatchExecutor extends BaseExecutor {
       currentSql = sql;
       currentStatement = ms;
       statementList.add(stmt);
+      insertList.add(null);
 
       // 为新Statement对象添加新的BatchResult对象
       batchResultList.add(new BatchResult(ms, sql, parameterObject));
@@ -105,7 +128,7 @@ public class BatchExecutor extends BaseExecutor {
       flushStatements();
       Configuration configuration = ms.getConfiguration();
       StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameterObject, rowBounds, resultHandler, boundSql);
-      Connection connection = getConnection(ms.getStatementLog());
+      Connection connection = getConnection(ms, boundSql);
       stmt = handler.prepare(connection, transaction.getTimeout());
       handler.parameterize(stmt);
       return handler.query(stmt, resultHandler);
@@ -119,7 +142,7 @@ public class BatchExecutor extends BaseExecutor {
     flushStatements();
     Configuration configuration = ms.getConfiguration();
     StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
-    Connection connection = getConnection(ms.getStatementLog());
+    Connection connection = getConnection(ms, boundSql);
     Statement stmt = handler.prepare(connection, transaction.getTimeout());
     stmt.closeOnCompletion();
     handler.parameterize(stmt);
@@ -141,11 +164,19 @@ public class BatchExecutor extends BaseExecutor {
 
         // 获取Statement对象
         Statement stmt = statementList.get(i);
-        applyTransactionTimeout(stmt);
 
         // 获取对应BatchResult对象
         BatchResult batchResult = batchResultList.get(i);
         try {
+          MultiRowInsert insert = insertList.get(i);
+          if (insert != null) {
+            // 多行 INSERT，生成的主键在执行时已经处理
+            MappedStatement ms = batchResult.getMappedStatement();
+            batchResult.setUpdateCounts(insert.execute(this, getConnection(ms), transaction.getTimeout()));
+            results.add(batchResult);
+            continue;
+          }
+          applyTransactionTimeout(stmt);
 
           /*
            * 调用 Statement.executeBatch 方法批量执行其中 SQL 语句，并返回 int 数组
@@ -197,6 +228,7 @@ public class BatchExecutor extends BaseExecutor {
       currentSql = null;
       statementList.clear();
       batchResultList.clear();
+      insertList.clear();
     }
   }
 
@@ -0,0 +1,162 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.apache.ibatis.executor.ExecutionPlaceholder.EXECUTION_PLACEHOLDER;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.weigher.ObjectSizeWeigher;
+import org.apache.ibatis.cache.weigher.Weigher;
+
+/**
+ * Local (first level) cache bounded by a number of entries and/or an estimated size in bytes, used when the
+ * <code>localCacheSize</code> or <code>localCacheMaxBytes</code> settings are set.
+ * <p>
+ * Entries are never evicted while a query is running: nested queries rely on the {@link ExecutionPlaceholder} of
+ * their parents to detect circular references, and deferred loads read their results back from this cache once the
+ * outermost query completes. The executor calls {@link #trim()} after that point, which removes the least recently
+ * used entries (and their stored output parameters) until the cache is back within its limits.
+ */
+class BoundedLocalCache extends PerpetualCache {
+
+  private final int maxEntries;
+  private final long maxBytes;
+  private final Weigher weigher = new ObjectSizeWeigher();
+  private final Cache outputParameterCache;
+
+  // 按访问顺序排列，用于 LRU 淘汰
+  private final Map<Object, Object> entries = new LinkedHashMap<>(16, .75F, true);
+  private final Map<Object, Long> weights = new HashMap<>();
+  private long weightedSize;
+
+  /**
+   * @param maxEntries maximum number of entries, 0 for no limit
+   * @param maxBytes maximum estimated size in bytes, 0 for no limit
+   * @param outputParameterCache cache of the output parameters, that loses an entry when it is evicted here
+   */
+  BoundedLocalCache(String id, int maxEntries, long maxBytes, Cache outputParameterCache) {
+    super(id);
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+    this.outputParameterCache = outputParameterCache;
+  }
+
+  @Override
+  public int getSize() {
+    return entries.size();
+  }
+
+  long getWeightedSize() {
+    return weightedSize;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    entries.put(key, value);
+    if (maxBytes > 0) {
+      // 占位符只在查询执行期间存在，不计算大小
+      long weight = value == null || value == EXECUTION_PLACEHOLDER ? 0 : weigher.weigh(key, value);
+      Long previous = weights.put(key, weight);
+      weightedSize += weight - (previous == null ? 0 : previous);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    return entries.get(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Long weight = weights.remove(key);
+    if (weight != null) {
+      weightedSize -= weight;
+    }
+    return entries.remove(key);
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    for (Map.Entry<?, ?> entry : entries.entrySet()) {
+      putObject(entry.getKey(), entry.getValue());
+    }
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    Map<Object, Object> found = new HashMap<>();
+    for (Object key : keys) {
+      Object value = entries.get(key);
+      if (value != null) {
+        found.put(key, value);
+      }
+    }
+    return found;
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    for (Object key : keys) {
+      removeObject(key);
+    }
+  }
+
+  @Override
+  public Set<Object> getKeys() {
+    return new HashSet<>(entries.keySet());
+  }
+
+  @Override
+  public void clear() {
+    entries.clear();
+    weights.clear();
+    weightedSize = 0;
+  }
+
+  /**
+   * Evicts the least recently used entries until the cache is within its limits. Must only be called when no
+   * query is running.
+   */
+  void trim() {
+    Iterator<Map.Entry<Object, Object>> eldest = entries.entrySet().iterator();
+    while (isOverLimit() && eldest.hasNext()) {
+      Map.Entry<Object, Object> entry = eldest.next();
+      if (entry.getValue() == EXECUTION_PLACEHOLDER) {
+        continue;
+      }
+      eldest.remove();
+      Long weight = weights.remove(entry.getKey());
+      if (weight != null) {
+        weightedSize -= weight;
+      }
+      outputParameterCache.removeObject(entry.getKey());
+    }
+  }
+
+  private boolean isOverLimit() {
+    return (maxEntries > 0 && entries.size() > maxEntries) || (maxBytes > 0 && weightedSize > maxBytes);
+  }
+
+}
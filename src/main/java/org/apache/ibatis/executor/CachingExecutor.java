@@ -16,16 +16,21 @@
 package org.apache.ibatis.executor;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cache.TransactionalCacheManager;
+import org.apache.ibatis.cache.decorators.StatisticsCache;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.result.DefaultResultContext;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.ResultHandler;
@@ -89,6 +94,12 @@ public class CachingExecutor implements Executor {
 
   @Override
   public <E> List<E> query(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
+    if (ms.getCache() == null || !ms.isUseCache() || resultHandler != null && !isSpoolable(ms)) {
+      // 不会使用二级缓存，由 delegate 决定是否需要创建 CacheKey
+      flushCacheIfRequired(ms);
+      return delegate.query(ms, parameterObject, rowBounds, resultHandler);
+    }
+
     // 获取BoundSql对象
     BoundSql boundSql = ms.getBoundSql(parameterObject);
 
@@ -106,7 +117,24 @@ public class CachingExecutor implements Executor {
   @Override
   public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
     flushCacheIfRequired(ms);
-    return delegate.queryCursor(ms, parameter, rowBounds);
+    Cache cache = ms.getCache();
+    if (cache == null || !ms.isUseCache() || !isSpoolable(ms)) {
+      return delegate.queryCursor(ms, parameter, rowBounds);
+    }
+    BoundSql boundSql = ms.getBoundSql(parameter);
+    ensureNoOutParams(ms, boundSql);
+    CacheKey key = createCacheKey(ms, parameter, rowBounds, boundSql);
+    @SuppressWarnings("unchecked")
+    List<E> list = (List<E>) tcm.getObject(cache, key);
+    if (list != null) {
+      // 与列表查询共用缓存项，从内存中重放
+      return new ListCursor<>(list, rowBounds.getOffset());
+    }
+    Cursor<E> cursor = delegate.queryCursor(ms, parameter, rowBounds);
+
+    // 游标读完时把读到的结果放入二级缓存
+    return new SpoolingCursor<>(cursor, ms.getConfiguration().getCacheSpoolLimit(),
+        items -> putObject(cache, ms, parameter, rowBounds, key, items));
   }
 
   @Override
@@ -121,7 +149,7 @@ public class CachingExecutor implements Executor {
        * 根据 <select> 标签配置决定是否需要清空二级缓存 {@link #flushCacheIfRequired(MappedStatement)}
        */
       flushCacheIfRequired(ms);
-      if (ms.isUseCache() && resultHandler == null) {
+      if (ms.isUseCache() && (resultHandler == null || isSpoolable(ms))) {
 
         // 是否包含输出参数
         ensureNoOutParams(ms, boundSql);
@@ -131,19 +159,30 @@ public class CachingExecutor implements Executor {
          * 从 `MappedStatement` 对象，对应的二级缓存中获取数据。{@link TransactionalCacheManager#getObject(Cache, CacheKey)}
          */
           List<E> list = (List<E>) tcm.getObject(cache, key);
+        if (list != null && resultHandler != null) {
+          replay(list, resultHandler);
+          return new ArrayList<>();
+        }
         if (list == null) {
+          SpoolingResultHandler<E> spoolingHandler = resultHandler == null
+              ? null : spool(resultHandler, ms.getConfiguration().getCacheSpoolLimit());
 
           /**
            * 如果没有，则查询数据库 {@link BaseExecutor#query(MappedStatement, Object, RowBounds, ResultHandler, CacheKey, BoundSql)}
            */
-          list = delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
-
-          /**
-           * 然后将数据，存放到 `MappedStatement` 对应的二级缓存中。{@link TransactionalCacheManager#putObject(Cache, CacheKey, Object)}
-           *
-           * 将查询结果放入TransactionalCache.entriesToAddOnCommit集合中暂存
-           */
-          tcm.putObject(cache, key, list); // issue #578 and #116
+          long start = System.nanoTime();
+          list = delegate.query(ms, parameterObject, rowBounds, spoolingHandler, key, boundSql);
+          if (cache instanceof StatisticsCache) {
+            // 记录未命中后查询数据库花费的时间
+            ((StatisticsCache) cache).recordLoad(System.nanoTime() - start);
+          }
+
+          if (spoolingHandler == null) {
+            putObject(cache, ms, parameterObject, rowBounds, key, list);
+          } else if (spoolingHandler.getResults() != null) {
+            // 结果已经交给 ResultHandler，缓存的是捕获到的各行
+            putObject(cache, ms, parameterObject, rowBounds, key, spoolingHandler.getResults());
+          }
         }
         return list;
       }
@@ -173,6 +212,49 @@ public class CachingExecutor implements Executor {
     }
   }
 
+  private void putObject(Cache cache, MappedStatement ms, Object parameterObject, RowBounds rowBounds, CacheKey key, List<?> list) {
+    // 记录重新执行该语句的方式，供缓存在后台刷新过期的缓存项
+    if (key != CacheKey.NULL_CACHE_KEY && key.getLoader() == null && cache.usesLoaders()) {
+      key.setLoader(new StatementCacheLoader(ms, parameterObject, rowBounds, key));
+    }
+    if (key != CacheKey.NULL_CACHE_KEY && ms.getTables() != null) {
+      key.setTags(ms.getTables());
+    }
+
+    /**
+     * 然后将数据，存放到 `MappedStatement` 对应的二级缓存中。{@link TransactionalCacheManager#putObject(Cache, CacheKey, Object)}
+     *
+     * 将查询结果放入TransactionalCache.entriesToAddOnCommit集合中暂存
+     */
+    tcm.putObject(cache, key, list); // issue #578 and #116
+  }
+
+  /**
+   * Statements whose rows can be captured from a {@link ResultHandler} or a {@link Cursor} and replayed later.
+   * Rows of statements with several result sets can not, as their list query returns one list per result set.
+   */
+  private boolean isSpoolable(MappedStatement ms) {
+    Integer limit = ms.getConfiguration().getCacheSpoolLimit();
+    return limit != null && limit > 0 && ms.getResultMaps().size() == 1 && ms.getResultSets() == null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private <E> void replay(List<E> list, ResultHandler resultHandler) {
+    DefaultResultContext<E> context = new DefaultResultContext<>();
+    for (E row : list) {
+      context.nextResultObject(row);
+      resultHandler.handleResult(context);
+      if (context.isStopped()) {
+        break;
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <E> SpoolingResultHandler<E> spool(ResultHandler resultHandler, int limit) {
+    return new SpoolingResultHandler<>((ResultHandler<E>) resultHandler, limit);
+  }
+
   private void ensureNoOutParams(MappedStatement ms, BoundSql boundSql) {
     if (ms.getStatementType() == StatementType.CALLABLE) {
       for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
@@ -206,7 +288,12 @@ public class CachingExecutor implements Executor {
   private void flushCacheIfRequired(MappedStatement ms) {
     Cache cache = ms.getCache();
     if (cache != null && ms.isFlushCacheRequired()) {
-      tcm.clear(cache);
+      if (ms.getTables() != null && ms.getSqlCommandType() != SqlCommandType.SELECT) {
+        // 已知写入的表时，只删除依赖这些表的缓存项
+        tcm.removeTagged(cache, Arrays.asList(ms.getTables()));
+      } else {
+        tcm.clear(cache);
+      }
     }
   }
 
@@ -0,0 +1,224 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
+import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+/**
+ * Batch executor that groups interleaved statements.
+ * <p>
+ * {@link BatchExecutor} only appends to the current batch when the statement is the same as the previous one, so a
+ * loop alternating two inserts creates a new statement for every call. This executor keeps one open statement per
+ * distinct SQL until the batches are flushed, and executes the batches in the order each statement first appeared,
+ * so rows a later statement depends on (e.g. the parent rows of child rows) are written first.
+ * <p>
+ * When {@link Configuration#getBatchFlushSize()} is set, the pending batches are executed each time that many calls
+ * have been added; their results are not kept, so {@link #flushStatements()} only returns the batches added since
+ * the last automatic flush.
+ */
+public class GroupingBatchExecutor extends BaseExecutor {
+
+  // statement id + SQL -> 批次，按首次出现的顺序排列
+  private final Map<String, Batch> batches = new LinkedHashMap<>();
+  private int pendingCount;
+
+  public GroupingBatchExecutor(Configuration configuration, Transaction transaction) {
+    super(configuration, transaction);
+  }
+
+  @Override
+  public int doUpdate(MappedStatement ms, Object parameterObject) throws SQLException {
+    final Configuration configuration = ms.getConfiguration();
+    final StatementHandler handler = configuration.newStatementHandler(this, ms, parameterObject, RowBounds.DEFAULT, null, null);
+    final BoundSql boundSql = handler.getBoundSql();
+    final String sql = boundSql.getSql();
+    final String key = ms.getId() + ":" + sql;
+    Batch batch = batches.get(key);
+    if (batch == null) {
+      if (configuration.isRewriteBatchedInserts() && MultiRowInsert.isRewritable(ms, sql)) {
+        batch = new Batch(new MultiRowInsert(ms, sql));
+      } else {
+        Connection connection = getConnection(ms, boundSql);
+        batch = new Batch(handler.prepare(connection, transaction.getTimeout()));
+      }
+      batches.put(key, batch);
+    } else if (batch.statement != null) {
+      applyTransactionTimeout(batch.statement);
+    }
+    if (batch.result == null) {
+      batch.result = new BatchResult(ms, sql, parameterObject);
+    } else {
+      batch.result.addParameterObject(parameterObject);
+    }
+    if (batch.insert != null) {
+      // 单行 INSERT 在执行批次时合并成多行 INSERT
+      batch.insert.add(handler);
+    } else {
+      handler.parameterize(batch.statement);
+      handler.batch(batch.statement);
+    }
+    Integer batchFlushSize = configuration.getBatchFlushSize();
+    if (batchFlushSize != null && batchFlushSize > 0 && ++pendingCount >= batchFlushSize) {
+      // 达到批量大小后立即执行，避免大批量导入时占用过多内存。statement 保持打开，供后续调用继续使用
+      executeBatches();
+    }
+    return BatchExecutor.BATCH_UPDATE_RETURN_VALUE;
+  }
+
+  @Override
+  public <E> List<E> doQuery(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
+      throws SQLException {
+    Statement stmt = null;
+    try {
+      flushStatements();
+      Configuration configuration = ms.getConfiguration();
+      StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameterObject, rowBounds, resultHandler, boundSql);
+      Connection connection = getConnection(ms, boundSql);
+      stmt = handler.prepare(connection, transaction.getTimeout());
+      handler.parameterize(stmt);
+      return handler.query(stmt, resultHandler);
+    } finally {
+      closeStatement(stmt);
+    }
+  }
+
+  @Override
+  protected <E> Cursor<E> doQueryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql) throws SQLException {
+    flushStatements();
+    Configuration configuration = ms.getConfiguration();
+    StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
+    Connection connection = getConnection(ms, boundSql);
+    Statement stmt = handler.prepare(connection, transaction.getTimeout());
+    stmt.closeOnCompletion();
+    handler.parameterize(stmt);
+    return handler.queryCursor(stmt);
+  }
+
+  @Override
+  public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
+    try {
+      if (isRollback) {
+        return Collections.emptyList();
+      }
+      return executeBatches();
+    } finally {
+      for (Batch batch : batches.values()) {
+        closeStatement(batch.statement);
+      }
+      batches.clear();
+      pendingCount = 0;
+    }
+  }
+
+  private List<BatchResult> executeBatches() throws SQLException {
+    List<BatchResult> results = new ArrayList<>();
+    boolean failed = true;
+    try {
+      for (Batch batch : batches.values()) {
+        BatchResult batchResult = batch.result;
+        if (batchResult == null) {
+          continue;
+        }
+        batch.result = null;
+        Statement stmt = batch.statement;
+        MappedStatement ms = batchResult.getMappedStatement();
+        try {
+          if (batch.insert != null) {
+            batchResult.setUpdateCounts(batch.insert.execute(this, getConnection(ms), transaction.getTimeout()));
+            results.add(batchResult);
+            continue;
+          }
+          applyTransactionTimeout(stmt);
+          batchResult.setUpdateCounts(stmt.executeBatch());
+          List<Object> parameterObjects = batchResult.getParameterObjects();
+          KeyGenerator keyGenerator = ms.getKeyGenerator();
+          if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
+            Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
+            jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
+          } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
+            for (Object parameter : parameterObjects) {
+              keyGenerator.processAfter(this, ms, stmt, parameter);
+            }
+          }
+        } catch (BatchUpdateException e) {
+          StringBuilder message = new StringBuilder();
+          message.append(batchResult.getMappedStatement().getId())
+              .append(" (batch index #")
+              .append(results.size() + 1)
+              .append(")")
+              .append(" failed.");
+          if (!results.isEmpty()) {
+            message.append(" ")
+                .append(results.size())
+                .append(" prior sub executor(s) completed successfully, but will be rolled back.");
+          }
+          throw new BatchExecutorException(message.toString(), e, results, batchResult);
+        }
+        results.add(batchResult);
+      }
+      pendingCount = 0;
+      failed = false;
+      return results;
+    } finally {
+      if (failed) {
+        // 执行失败后，剩余批次的状态不再可靠，全部丢弃
+        for (Batch batch : batches.values()) {
+          closeStatement(batch.statement);
+        }
+        batches.clear();
+        pendingCount = 0;
+      }
+    }
+  }
+
+  private static class Batch {
+
+    private final Statement statement;
+    private final MultiRowInsert insert;
+    private BatchResult result;
+
+    Batch(Statement statement) {
+      this.statement = statement;
+      this.insert = null;
+    }
+
+    Batch(MultiRowInsert insert) {
+      this.statement = null;
+      this.insert = insert;
+    }
+  }
+
+}
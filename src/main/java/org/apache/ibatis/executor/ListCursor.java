@@ -0,0 +1,103 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.ibatis.cursor.Cursor;
+
+/**
+ * Cursor over results already held in memory, returned by {@link CachingExecutor} when the items of a cursor query
+ * are found in the second level cache. It behaves like {@link org.apache.ibatis.cursor.defaults.DefaultCursor}:
+ * only one iterator can be opened and the cursor is consumed once the last item has been returned.
+ */
+final class ListCursor<T> implements Cursor<T> {
+
+  private final List<T> items;
+  private final int offset;
+  private boolean iteratorRetrieved;
+  private boolean closed;
+  private boolean consumed;
+  private int index = -1;
+
+  ListCursor(List<T> items, int offset) {
+    this.items = items;
+    this.offset = offset;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return !closed && !consumed && index >= 0;
+  }
+
+  @Override
+  public boolean isConsumed() {
+    return consumed;
+  }
+
+  @Override
+  public int getCurrentIndex() {
+    // 与 DefaultCursor 一致，包含 RowBounds 的偏移量
+    return offset + index;
+  }
+
+  @Override
+  public void close() {
+    if (!consumed) {
+      closed = true;
+    }
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    if (iteratorRetrieved) {
+      throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
+    }
+    if (closed || consumed) {
+      throw new IllegalStateException("A Cursor is already closed.");
+    }
+    iteratorRetrieved = true;
+    return new Iterator<T>() {
+      @Override
+      public boolean hasNext() {
+        if (closed) {
+          return false;
+        }
+        if (index < items.size() - 1) {
+          return true;
+        }
+        consumed = true;
+        return false;
+      }
+
+      @Override
+      public T next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return items.get(++index);
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException("Cannot remove element from Cursor");
+      }
+    };
+  }
+
+}
@@ -0,0 +1,199 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
+import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Rows of a batched single-row <code>INSERT ... VALUES (...)</code>, executed as multi-row
+ * <code>INSERT ... VALUES (...), (...)</code> statements instead of a JDBC batch.
+ * <p>
+ * Each row is still parameterized by its own {@link StatementHandler}, shifted to the placeholders of its tuple.
+ * Rows are sent in chunks so that a statement has at most {@link Configuration#getBatchInsertMaxParameters()}
+ * parameters and {@value #MAX_ROWS} rows. Keys generated by the database are handed to {@link Jdbc3KeyGenerator}
+ * for each chunk.
+ */
+class MultiRowInsert {
+
+  static final int DEFAULT_MAX_PARAMETERS = 2000;
+  static final int MAX_ROWS = 1000;
+
+  private static final Pattern INSERT_VALUES = Pattern.compile(
+      "^\\s*insert\\s+into\\s+[^\\s(]+\\s*(\\([^()]*\\))?\\s*values\\s*\\(", Pattern.CASE_INSENSITIVE);
+
+  private final MappedStatement ms;
+  private final String prefix;
+  private final String tuple;
+  private final List<StatementHandler> rows = new ArrayList<>();
+
+  MultiRowInsert(MappedStatement ms, String sql) {
+    int start = valuesStart(sql);
+    this.ms = ms;
+    this.prefix = sql.substring(0, start);
+    this.tuple = sql.substring(start, valuesEnd(sql, start) + 1);
+  }
+
+  /**
+   * @return true if the statement is a single-row prepared insert without other key generation than JDBC's
+   */
+  static boolean isRewritable(MappedStatement ms, String sql) {
+    KeyGenerator keyGenerator = ms.getKeyGenerator();
+    if (ms.getSqlCommandType() != SqlCommandType.INSERT || ms.getStatementType() != StatementType.PREPARED
+        || !(keyGenerator instanceof NoKeyGenerator || Jdbc3KeyGenerator.class.equals(keyGenerator.getClass()))) {
+      return false;
+    }
+    int start = valuesStart(sql);
+    if (start < 0) {
+      return false;
+    }
+    int end = valuesEnd(sql, start);
+    // VALUES 之后不能有其他子句（ON DUPLICATE KEY、RETURNING 等）
+    return end > 0 && sql.substring(end + 1).trim().isEmpty();
+  }
+
+  void add(StatementHandler row) {
+    rows.add(row);
+  }
+
+  /**
+   * Executes the rows added since the last call.
+   *
+   * @return an update count for each row: 1, or {@link Statement#SUCCESS_NO_INFO} when the driver did not report
+   *         one row per tuple
+   */
+  int[] execute(Executor executor, Connection connection, Integer transactionTimeout) throws SQLException {
+    Configuration configuration = ms.getConfiguration();
+    Integer maxParameters = configuration.getBatchInsertMaxParameters();
+    int parametersPerRow = rows.get(0).getBoundSql().getParameterMappings().size();
+    int chunkSize = parametersPerRow == 0 ? MAX_ROWS
+        : Math.max(1, Math.min(MAX_ROWS, (maxParameters == null ? DEFAULT_MAX_PARAMETERS : maxParameters) / parametersPerRow));
+    int[] updateCounts = new int[rows.size()];
+    try {
+      for (int from = 0; from < rows.size(); from += chunkSize) {
+        List<StatementHandler> chunk = rows.subList(from, Math.min(rows.size(), from + chunkSize));
+        List<Object> parameterObjects = new ArrayList<>(chunk.size());
+        for (StatementHandler row : chunk) {
+          parameterObjects.add(row.getParameterHandler().getParameterObject());
+        }
+        BoundSql boundSql = new BoundSql(configuration, sqlFor(chunk.size()), Collections.emptyList(), null);
+        StatementHandler handler = configuration.newStatementHandler(executor, ms, parameterObjects.get(0), RowBounds.DEFAULT, null, boundSql);
+        PreparedStatement stmt = (PreparedStatement) handler.prepare(connection, transactionTimeout);
+        try {
+          int offset = 0;
+          for (StatementHandler row : chunk) {
+            row.parameterize(shift(stmt, offset));
+            offset += parametersPerRow;
+          }
+          int count = stmt.executeUpdate();
+          Arrays.fill(updateCounts, from, from + chunk.size(), count == chunk.size() ? 1 : Statement.SUCCESS_NO_INFO);
+          if (ms.getKeyGenerator() instanceof Jdbc3KeyGenerator) {
+            ((Jdbc3KeyGenerator) ms.getKeyGenerator()).processBatch(ms, stmt, parameterObjects);
+          }
+        } catch (SQLException e) {
+          // 与 JDBC 批处理一致，报告失败前已执行成功的行
+          throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(),
+              Arrays.copyOf(updateCounts, from), e);
+        } finally {
+          stmt.close();
+        }
+      }
+      return updateCounts;
+    } finally {
+      rows.clear();
+    }
+  }
+
+  private String sqlFor(int rowCount) {
+    StringBuilder sql = new StringBuilder(prefix.length() + (tuple.length() + 2) * rowCount);
+    sql.append(prefix).append(tuple);
+    for (int i = 1; i < rowCount; i++) {
+      sql.append(", ").append(tuple);
+    }
+    return sql.toString();
+  }
+
+  private static int valuesStart(String sql) {
+    Matcher matcher = INSERT_VALUES.matcher(sql);
+    return matcher.find() ? matcher.end() - 1 : -1;
+  }
+
+  /**
+   * @return the index of the parenthesis closing the one at <code>start</code>, or -1
+   */
+  private static int valuesEnd(String sql, int start) {
+    int depth = 0;
+    boolean quoted = false;
+    for (int i = start; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (c == '\'') {
+        quoted = !quoted;
+      } else if (!quoted && c == '(') {
+        depth++;
+      } else if (!quoted && c == ')' && --depth == 0) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Shifts the parameter index of the setters, so that a row sets the placeholders of its own tuple.
+   */
+  private static PreparedStatement shift(PreparedStatement stmt, int offset) {
+    if (offset == 0) {
+      return stmt;
+    }
+    InvocationHandler handler = (proxy, method, args) -> {
+      if (method.getName().startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer
+          && method.getParameterTypes()[0] == int.class) {
+        args[0] = (Integer) args[0] + offset;
+      }
+      try {
+        return method.invoke(stmt, args);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    };
+    return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+        new Class<?>[] { PreparedStatement.class }, handler);
+  }
+
+}
@@ -23,7 +23,6 @@ import java.util.List;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.statement.StatementHandler;
-import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.session.Configuration;
@@ -48,7 +47,7 @@ public class SimpleExecutor extends BaseExecutor {
     try {
       Configuration configuration = ms.getConfiguration();
       StatementHandler handler = configuration.newStatementHandler(this, ms, parameter, RowBounds.DEFAULT, null, null);
-      stmt = prepareStatement(handler, ms.getStatementLog());
+      stmt = prepareStatement(handler, ms);
       return handler.update(stmt);
     } finally {
       closeStatement(stmt);
@@ -70,9 +69,9 @@ public class SimpleExecutor extends BaseExecutor {
       StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, resultHandler, boundSql);
 
       /**
-       * 创建 Statement 对象, 还依赖 “ParameterHandler” 对 "?" 占位符进行赋值 {@link #prepareStatement(StatementHandler, Log)}
+       * 创建 Statement 对象, 还依赖 “ParameterHandler” 对 "?" 占位符进行赋值 {@link #prepareStatement(StatementHandler, MappedStatement)}
        */
-      stmt = prepareStatement(handler, ms.getStatementLog());
+      stmt = prepareStatement(handler, ms);
 
       /**
        * 调用 StatementHandler 对象 query
@@ -88,7 +87,7 @@ public class SimpleExecutor extends BaseExecutor {
   protected <E> Cursor<E> doQueryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql) throws SQLException {
     Configuration configuration = ms.getConfiguration();
     StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
-    Statement stmt = prepareStatement(handler, ms.getStatementLog());
+    Statement stmt = prepareStatement(handler, ms);
     stmt.closeOnCompletion();
     return handler.queryCursor(stmt);
   }
@@ -98,13 +97,13 @@ public class SimpleExecutor extends BaseExecutor {
     return Collections.emptyList();
   }
 
-  private Statement prepareStatement(StatementHandler handler, Log statementLog) throws SQLException {
+  private Statement prepareStatement(StatementHandler handler, MappedStatement ms) throws SQLException {
     Statement stmt;
 
     /**
-     * 获取 JDBC Connection 对象。{@link #getConnection(Log)}
+     * 获取 JDBC Connection 对象。{@link #getConnection(MappedStatement, BoundSql)}
      */
-    Connection connection = getConnection(statementLog);
+    Connection connection = getConnection(ms, handler.getBoundSql());
 
     /**
      * 调用 StatementHandler prepare 创建 Statement 对象。
@@ -0,0 +1,111 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.ibatis.cursor.Cursor;
+
+/**
+ * Cursor that keeps a copy of the items it returns and passes them to <code>onConsumed</code> once the underlying
+ * cursor has been fully read, so that {@link CachingExecutor} can put them in the second level cache.
+ * <p>
+ * Nothing is kept when there are more than <code>limit</code> items or when the cursor is closed before the end.
+ */
+final class SpoolingCursor<T> implements Cursor<T> {
+
+  private final Cursor<T> delegate;
+  private final int limit;
+  private final Consumer<List<T>> onConsumed;
+  private List<T> items = new ArrayList<>();
+
+  SpoolingCursor(Cursor<T> delegate, int limit, Consumer<List<T>> onConsumed) {
+    this.delegate = delegate;
+    this.limit = limit;
+    this.onConsumed = onConsumed;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return delegate.isOpen();
+  }
+
+  @Override
+  public boolean isConsumed() {
+    return delegate.isConsumed();
+  }
+
+  @Override
+  public int getCurrentIndex() {
+    return delegate.getCurrentIndex();
+  }
+
+  @Override
+  public void close() throws IOException {
+    items = null;
+    delegate.close();
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    Iterator<T> iterator = delegate.iterator();
+    return new Iterator<T>() {
+      @Override
+      public boolean hasNext() {
+        boolean hasNext = iterator.hasNext();
+        if (!hasNext) {
+          consumed();
+        }
+        return hasNext;
+      }
+
+      @Override
+      public T next() {
+        T next = iterator.next();
+        if (items != null) {
+          if (items.size() >= limit) {
+            items = null;
+          } else {
+            items.add(next);
+          }
+        }
+        // 达到 RowBounds 上限时游标在返回最后一项前就已经读完
+        if (delegate.isConsumed() && !iterator.hasNext()) {
+          consumed();
+        }
+        return next;
+      }
+
+      @Override
+      public void remove() {
+        iterator.remove();
+      }
+    };
+  }
+
+  private void consumed() {
+    if (items != null && delegate.isConsumed()) {
+      List<T> spooled = items;
+      items = null;
+      onConsumed.accept(spooled);
+    }
+  }
+
+}
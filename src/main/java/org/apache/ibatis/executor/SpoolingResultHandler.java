@@ -0,0 +1,62 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+
+/**
+ * Passes the rows to the user's result handler and keeps a copy of them, so that {@link CachingExecutor} can put
+ * them in the second level cache once the query completes.
+ * <p>
+ * Nothing is kept when there are more than <code>limit</code> rows or when the handler stops the query early.
+ */
+final class SpoolingResultHandler<T> implements ResultHandler<T> {
+
+  private final ResultHandler<T> delegate;
+  private final int limit;
+  private List<T> results = new ArrayList<>();
+
+  SpoolingResultHandler(ResultHandler<T> delegate, int limit) {
+    this.delegate = delegate;
+    this.limit = limit;
+  }
+
+  @Override
+  public void handleResult(ResultContext<? extends T> context) {
+    delegate.handleResult(context);
+    if (results == null) {
+      return;
+    }
+    if (context.isStopped() || results.size() >= limit) {
+      // 结果不完整或者超过上限，放弃缓存
+      results = null;
+    } else {
+      results.add(context.getResultObject());
+    }
+  }
+
+  /**
+   * @return all the rows of the query, or null if they could not be kept
+   */
+  List<T> getResults() {
+    return results;
+  }
+
+}
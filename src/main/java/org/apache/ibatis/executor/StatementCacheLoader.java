@@ -0,0 +1,85 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CacheLoader;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+/**
+ * Loads a second level cache entry again by executing its statement in a new transaction, bypassing the cache.
+ * <p>
+ * The parameter object is kept by reference. If it has been changed since the entry was cached, the key built
+ * from it no longer matches and nothing is loaded.
+ */
+final class StatementCacheLoader implements CacheLoader {
+
+  private final MappedStatement ms;
+  private final Object parameterObject;
+  private final RowBounds rowBounds;
+  private final CacheKey key;
+
+  StatementCacheLoader(MappedStatement ms, Object parameterObject, RowBounds rowBounds, CacheKey key) {
+    this.ms = ms;
+    this.parameterObject = parameterObject;
+    this.rowBounds = rowBounds;
+    this.key = key;
+  }
+
+  @Override
+  public Object load() throws Exception {
+    Executor executor = newExecutor();
+    try {
+      BoundSql boundSql = ms.getBoundSql(parameterObject);
+      CacheKey currentKey = executor.createCacheKey(ms, parameterObject, rowBounds, boundSql);
+      if (!key.equals(currentKey)) {
+        return null;
+      }
+      return executor.<Object>query(ms, parameterObject, rowBounds, Executor.NO_RESULT_HANDLER, currentKey, boundSql);
+    } finally {
+      executor.close(false);
+    }
+  }
+
+  private Executor newExecutor() {
+    Configuration configuration = ms.getConfiguration();
+    final Environment environment = configuration.getEnvironment();
+    if (environment == null) {
+      throw new ExecutorException("Cache entry could not be loaded.  Environment was not configured.");
+    }
+    final DataSource ds = environment.getDataSource();
+    if (ds == null) {
+      throw new ExecutorException("Cache entry could not be loaded.  DataSource was not configured.");
+    }
+    final Transaction tx = environment.getTransactionFactory().newTransaction(ds, null, false);
+
+    // 不经过 CachingExecutor，否则会命中正在刷新的缓存项
+    Executor executor = new SimpleExecutor(configuration, tx);
+    for (Interceptor interceptor : configuration.getInterceptors()) {
+      executor = (Executor) interceptor.plugin(executor);
+    }
+    return executor;
+  }
+
+}
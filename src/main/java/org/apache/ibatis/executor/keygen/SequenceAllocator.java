@@ -0,0 +1,96 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.keygen;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.apache.ibatis.executor.ExecutorException;
+
+/**
+ * Hands out keys reserved from a database sequence.
+ * <p>
+ * Keys are fetched a block at a time: when the fetch returns a single value <code>v</code>, the values from
+ * <code>v</code> to <code>v + allocationSize - 1</code> are considered reserved (the sequence must be incremented
+ * by <code>allocationSize</code>); when it returns several values, each of them is a key. The allocator is thread
+ * safe and is shared by all the sessions of a {@link org.apache.ibatis.session.Configuration}.
+ *
+ * @since 3.5.3
+ */
+public class SequenceAllocator {
+
+  private final String sequence;
+  private final int allocationSize;
+  private final Deque<Object> keys = new ArrayDeque<>();
+
+  public SequenceAllocator(String sequence, int allocationSize) {
+    this.sequence = sequence;
+    this.allocationSize = allocationSize;
+  }
+
+  public String getSequence() {
+    return sequence;
+  }
+
+  public int getAllocationSize() {
+    return allocationSize;
+  }
+
+  /**
+   * Returns the next reserved key, calling <code>fetcher</code> to reserve a new block when none is left.
+   */
+  public synchronized Object next(Supplier<List<Object>> fetcher) {
+    if (keys.isEmpty()) {
+      List<Object> values = fetcher.get();
+      if (values.isEmpty()) {
+        throw new ExecutorException("Sequence " + sequence + " returned no data.");
+      }
+      if (values.size() == 1) {
+        Object first = values.get(0);
+        for (int i = 0; i < allocationSize; i++) {
+          keys.add(increment(first, i));
+        }
+      } else {
+        keys.addAll(values);
+      }
+    }
+    return keys.poll();
+  }
+
+  private Object increment(Object value, int delta) {
+    if (delta == 0) {
+      return value;
+    }
+    // 保持与 select 返回值相同的类型
+    if (value instanceof Long) {
+      return (Long) value + delta;
+    } else if (value instanceof Integer) {
+      return (Integer) value + delta;
+    } else if (value instanceof Short) {
+      return (short) ((Short) value + delta);
+    } else if (value instanceof BigDecimal) {
+      return ((BigDecimal) value).add(BigDecimal.valueOf(delta));
+    } else if (value instanceof BigInteger) {
+      return ((BigInteger) value).add(BigInteger.valueOf(delta));
+    }
+    throw new ExecutorException("Sequence " + sequence + " returned a non numeric value: " + value);
+  }
+
+}
@@ -0,0 +1,118 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.keygen;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+/**
+ * Key generator for <code>&lt;selectKey order="BEFORE" allocationSize="n"&gt;</code>.
+ * <p>
+ * Unlike {@link SelectKeyGenerator}, that runs the key statement for every insert, the key statement is run once
+ * per <code>allocationSize</code> keys and the keys are handed out by a {@link SequenceAllocator} shared by all the
+ * key statements with the same SQL and allocation size.
+ * <p>
+ * Blocks are reserved on a connection of their own, in auto-commit mode, so that a rollback of the session that
+ * happened to need a new block does not release keys already handed out, and the sessions waiting for the block do
+ * not wait for that session's transaction. With a managed transaction factory, the key statement runs in whatever
+ * transaction the container enlists the connection in.
+ *
+ * @since 3.5.3
+ */
+public class SequenceKeyGenerator implements KeyGenerator {
+
+  private final MappedStatement keyStatement;
+  private final int allocationSize;
+  private volatile SequenceAllocator allocator;
+
+  public SequenceKeyGenerator(MappedStatement keyStatement, int allocationSize) {
+    this.keyStatement = keyStatement;
+    this.allocationSize = allocationSize;
+  }
+
+  @Override
+  public void processBefore(Executor executor, MappedStatement ms, Statement stmt, Object parameter) {
+    String[] keyProperties = keyStatement.getKeyProperties();
+    if (parameter == null || keyProperties == null) {
+      return;
+    }
+    try {
+      final Configuration configuration = ms.getConfiguration();
+      Object key = getAllocator(configuration, parameter).next(() -> selectKeys(executor, parameter));
+      MetaObject metaParam = configuration.newMetaObject(parameter);
+      if (!metaParam.hasSetter(keyProperties[0])) {
+        throw new ExecutorException("No setter found for the keyProperty '" + keyProperties[0] + "' in " + metaParam.getOriginalObject().getClass().getName() + ".");
+      }
+      metaParam.setValue(keyProperties[0], key);
+    } catch (ExecutorException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new ExecutorException("Error selecting key or setting result to parameter object. Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public void processAfter(Executor executor, MappedStatement ms, Statement stmt, Object parameter) {
+    // NOP
+  }
+
+  private SequenceAllocator getAllocator(Configuration configuration, Object parameter) {
+    if (allocator == null) {
+      // 以 SQL 作为序列的标识，使用同一序列的语句共享已预留的主键
+      String sql = keyStatement.getBoundSql(parameter).getSql().trim().replaceAll("\\s+", " ");
+      allocator = configuration.getSequenceAllocator(sql, allocationSize);
+    }
+    return allocator;
+  }
+
+  private List<Object> selectKeys(Executor executor, Object parameter) {
+    Configuration configuration = keyStatement.getConfiguration();
+    Environment environment = configuration.getEnvironment();
+    // 在单独的自动提交连接上预留号段，没有数据源时才使用会话的事务
+    Transaction transaction = environment == null || environment.getDataSource() == null ? null
+        : environment.getTransactionFactory().newTransaction(environment.getDataSource(), null, true);
+    Executor keyExecutor = configuration.newExecutor(transaction == null ? executor.getTransaction() : transaction,
+        ExecutorType.SIMPLE);
+    try {
+      List<Object> values = keyExecutor.query(keyStatement, parameter, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      String keyProperty = keyStatement.getKeyProperties()[0];
+      List<Object> keys = new ArrayList<>(values.size());
+      for (Object value : values) {
+        MetaObject metaResult = configuration.newMetaObject(value);
+        keys.add(metaResult.hasGetter(keyProperty) ? metaResult.getValue(keyProperty) : value);
+      }
+      return keys;
+    } catch (Exception e) {
+      throw new ExecutorException("Error selecting keys from sequence. Cause: " + e, e);
+    } finally {
+      if (transaction != null) {
+        keyExecutor.close(false);
+      }
+    }
+  }
+
+}
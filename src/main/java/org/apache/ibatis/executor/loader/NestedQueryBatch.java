@@ -0,0 +1,168 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.defaults.DefaultSqlSession.StrictMap;
+
+/**
+ * Keys of the rows of one query for a nested select with a <code>batchKey</code>, in the style of a DataLoader.
+ * <p>
+ * Keys are collected while the parent rows are mapped. The first time a key is needed, the nested select is run for
+ * all the keys collected so far, in chunks of {@link Configuration#getNestedSelectBatchSize()} keys passed as a
+ * <code>list</code> parameter, and its results are grouped by the <code>batchKey</code> property.
+ */
+public class NestedQueryBatch {
+
+  static final int DEFAULT_BATCH_SIZE = 500;
+
+  private final Configuration configuration;
+  private final Executor executor;
+  private final MappedStatement mappedStatement;
+  private final String batchKey;
+  private final long creatorThreadId;
+
+  // 尚未加载的 key（归一化后的 key -> 原始 key）
+  private final Map<Object, Object> pendingKeys = new LinkedHashMap<>();
+  // 已加载的 key -> 对应的结果
+  private final Map<Object, List<Object>> results = new HashMap<>();
+
+  public NestedQueryBatch(Configuration configuration, Executor executor, MappedStatement mappedStatement, String batchKey) {
+    this.configuration = configuration;
+    this.executor = executor;
+    this.mappedStatement = mappedStatement;
+    this.batchKey = batchKey;
+    this.creatorThreadId = Thread.currentThread().getId();
+  }
+
+  /**
+   * Returns a loader of the results for the key, and adds the key to the next batch.
+   */
+  public ResultLoader addKey(Object key, Class<?> targetType) {
+    Object normalizedKey = normalize(key);
+    synchronized (this) {
+      if (!results.containsKey(normalizedKey)) {
+        pendingKeys.put(normalizedKey, key);
+      }
+    }
+    return new BatchResultLoader(this, key, targetType);
+  }
+
+  static Map<String, Object> parameterFor(List<Object> keys) {
+    StrictMap<Object> parameter = new StrictMap<>();
+    parameter.put("collection", keys);
+    parameter.put("list", keys);
+    return parameter;
+  }
+
+  /**
+   * Returns the results for a key, running the nested select for the pending keys if they are not loaded yet.
+   */
+  synchronized List<Object> getResults(Object key) throws SQLException {
+    Object normalizedKey = normalize(key);
+    if (!results.containsKey(normalizedKey)) {
+      pendingKeys.putIfAbsent(normalizedKey, key);
+      loadPendingKeys();
+    }
+    return new ArrayList<>(results.get(normalizedKey));
+  }
+
+  private void loadPendingKeys() throws SQLException {
+    Integer configuredBatchSize = configuration.getNestedSelectBatchSize();
+    int batchSize = configuredBatchSize == null || configuredBatchSize <= 0 ? DEFAULT_BATCH_SIZE : configuredBatchSize;
+    List<Object> keys = new ArrayList<>(pendingKeys.values());
+    for (Object normalizedKey : pendingKeys.keySet()) {
+      results.put(normalizedKey, new ArrayList<>());
+    }
+    pendingKeys.clear();
+    for (int from = 0; from < keys.size(); from += batchSize) {
+      List<Object> chunk = keys.subList(from, Math.min(keys.size(), from + batchSize));
+      for (Object row : selectList(parameterFor(new ArrayList<>(chunk)))) {
+        MetaObject metaObject = configuration.newMetaObject(row);
+        List<Object> rows = results.get(normalize(metaObject.getValue(batchKey)));
+        if (rows != null) {
+          rows.add(row);
+        }
+      }
+    }
+  }
+
+  private List<Object> selectList(Object parameter) throws SQLException {
+    Executor localExecutor = executor;
+    if (Thread.currentThread().getId() != creatorThreadId || localExecutor.isClosed()) {
+      localExecutor = ResultLoader.newExecutor(configuration);
+    }
+    try {
+      BoundSql boundSql = mappedStatement.getBoundSql(parameter);
+      CacheKey cacheKey = localExecutor.createCacheKey(mappedStatement, parameter, RowBounds.DEFAULT, boundSql);
+      return localExecutor.query(mappedStatement, parameter, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER, cacheKey, boundSql);
+    } finally {
+      if (localExecutor != executor) {
+        localExecutor.close(false);
+      }
+    }
+  }
+
+  /**
+   * The column and the property may not have the same java type (e.g. Long and Integer), so numbers are compared by
+   * value.
+   */
+  private static Object normalize(Object key) {
+    if (key instanceof Number) {
+      return new BigDecimal(key.toString()).stripTrailingZeros();
+    }
+    return key;
+  }
+
+  /**
+   * Loads the results of one key of a {@link NestedQueryBatch}. Its parameter is the one of a batch of that single
+   * key, so that it can still be loaded on its own after serialization.
+   */
+  static class BatchResultLoader extends ResultLoader {
+
+    private final NestedQueryBatch batch;
+    private final Object key;
+
+    BatchResultLoader(NestedQueryBatch batch, Object key, Class<?> targetType) {
+      super(batch.configuration, batch.executor, batch.mappedStatement,
+          parameterFor(Collections.singletonList(key)), targetType, null, null);
+      this.batch = batch;
+      this.key = key;
+    }
+
+    @Override
+    public Object loadResult() throws SQLException {
+      resultObject = resultExtractor.extractObjectFromList(batch.getResults(key), targetType);
+      return resultObject;
+    }
+  }
+
+}
@@ -36,6 +36,7 @@ import org.apache.ibatis.cursor.defaults.DefaultCursor;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.loader.NestedQueryBatch;
 import org.apache.ibatis.executor.loader.ResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
@@ -92,6 +93,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private final Map<String, ResultMapping> nextResultMaps = new HashMap<>();
   private final Map<CacheKey, List<PendingRelation>> pendingRelations = new HashMap<>();
 
+  // nested selects loaded in batches
+  private final Map<String, NestedQueryBatch> nestedQueryBatches = new HashMap<>();
+  private final List<PendingBatchLoad> pendingBatchLoads = new ArrayList<>();
+  // 结果交给 ResultHandler 或 Cursor 时，行对象需要立即完整，不能等到所有行处理完
+  private boolean deferBatchLoads;
+
+  // 读取的行数，用于自适应 fetchSize
+  private int fetchedRows;
+
   // Cached Automappings
   private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
 
@@ -103,6 +113,18 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     public ResultMapping propertyMapping;
   }
 
+  private static class PendingBatchLoad {
+    private final MetaObject metaObject;
+    private final String property;
+    private final ResultLoader resultLoader;
+
+    PendingBatchLoad(MetaObject metaObject, String property, ResultLoader resultLoader) {
+      this.metaObject = metaObject;
+      this.property = property;
+      this.resultLoader = resultLoader;
+    }
+  }
+
   private static class UnMappedColumnAutoMapping {
     private final String column;
     private final String property;
@@ -128,6 +150,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
     this.objectFactory = configuration.getObjectFactory();
     this.reflectorFactory = configuration.getReflectorFactory();
+    this.deferBatchLoads = resultHandler == null;
     this.resultHandler = resultHandler;
   }
 
@@ -244,6 +267,13 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       }
     }
 
+    if (configuration.isAdaptiveFetchSize()) {
+      configuration.getFetchSizeTuner().record(mappedStatement.getId(), fetchedRows);
+    }
+
+    // 所有行映射完成后，再批量执行嵌套查询
+    loadPendingBatches();
+
     /**
      * 对 multipleResult 进行处理，如果只有一个结果集，则返回结果集中的元素。否则返回多个结果集。
      */
@@ -265,6 +295,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
 
     ResultMap resultMap = resultMaps.get(0);
+    deferBatchLoads = false;
     return new DefaultCursor<>(this, resultMap, rsw, rowBounds);
   }
 
@@ -445,6 +476,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
     // 遍历处理每一行记录。
     while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
+      fetchedRows++;
 
       /**
        *  2、确定 ResultMap
@@ -910,7 +942,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     final Class<?> nestedQueryParameterType = nestedQuery.getParameterMap().getType();
     final Object nestedQueryParameterObject = prepareParameterForNestedQuery(rs, constructorMapping, nestedQueryParameterType, columnPrefix);
     Object value = null;
-    if (nestedQueryParameterObject != null) {
+    if (nestedQueryParameterObject != null && constructorMapping.getBatchKey() != null) {
+      // 构造参数必须立即得到，只能单独加载
+      value = new NestedQueryBatch(configuration, executor, nestedQuery, constructorMapping.getBatchKey())
+          .addKey(nestedQueryParameterObject, constructorMapping.getJavaType()).loadResult();
+    } else if (nestedQueryParameterObject != null) {
       final BoundSql nestedBoundSql = nestedQuery.getBoundSql(nestedQueryParameterObject);
       final CacheKey key = executor.createCacheKey(nestedQuery, nestedQueryParameterObject, RowBounds.DEFAULT, nestedBoundSql);
       final Class<?> targetType = constructorMapping.getJavaType();
@@ -928,7 +964,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     final Class<?> nestedQueryParameterType = nestedQuery.getParameterMap().getType();
     final Object nestedQueryParameterObject = prepareParameterForNestedQuery(rs, propertyMapping, nestedQueryParameterType, columnPrefix);
     Object value = null;
-    if (nestedQueryParameterObject != null) {
+    if (nestedQueryParameterObject != null && propertyMapping.getBatchKey() != null) {
+      value = getBatchedNestedQueryMappingValue(metaResultObject, propertyMapping, lazyLoader, nestedQuery, nestedQueryParameterObject);
+    } else if (nestedQueryParameterObject != null) {
       final BoundSql nestedBoundSql = nestedQuery.getBoundSql(nestedQueryParameterObject);
       final CacheKey key = executor.createCacheKey(nestedQuery, nestedQueryParameterObject, RowBounds.DEFAULT, nestedBoundSql);
       final Class<?> targetType = propertyMapping.getJavaType();
@@ -952,6 +990,32 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return value;
   }
 
+  /**
+   * Adds the key of the row to the batch of the nested select; the value is set once the batch is loaded.
+   */
+  private Object getBatchedNestedQueryMappingValue(MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader,
+      MappedStatement nestedQuery, Object key) throws SQLException {
+    final String property = propertyMapping.getProperty();
+    NestedQueryBatch batch = nestedQueryBatches.computeIfAbsent(nestedQuery.getId() + "#" + propertyMapping.getBatchKey(),
+        k -> new NestedQueryBatch(configuration, executor, nestedQuery, propertyMapping.getBatchKey()));
+    ResultLoader resultLoader = batch.addKey(key, propertyMapping.getJavaType());
+    if (propertyMapping.isLazy()) {
+      lazyLoader.addLoader(property, metaResultObject, resultLoader);
+      return DEFERRED;
+    } else if (deferBatchLoads) {
+      pendingBatchLoads.add(new PendingBatchLoad(metaResultObject, property, resultLoader));
+      return DEFERRED;
+    }
+    return resultLoader.loadResult();
+  }
+
+  private void loadPendingBatches() throws SQLException {
+    for (PendingBatchLoad pending : pendingBatchLoads) {
+      pending.metaObject.setValue(pending.property, pending.resultLoader.loadResult());
+    }
+    pendingBatchLoads.clear();
+  }
+
   private Object prepareParameterForNestedQuery(ResultSet rs, ResultMapping resultMapping, Class<?> parameterType, String columnPrefix) throws SQLException {
     if (resultMapping.isCompositeResult()) {
       return prepareCompositeKeyParameter(rs, resultMapping, parameterType, columnPrefix);
@@ -1075,6 +1139,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
     // 处理每一行记录。（检测是否还有需要映射的数据记录）
     while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
+      fetchedRows++;
 
       // 处理 <discriminator> 标签配置的鉴别器。（最终使用 ResultMap 映射规则）
       final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
@@ -127,6 +127,13 @@ public abstract class BaseStatementHandler implements StatementHandler {
       stmt.setFetchSize(fetchSize);
       return;
     }
+    if (configuration.isAdaptiveFetchSize()) {
+      Integer learnedFetchSize = configuration.getFetchSizeTuner().getFetchSize(mappedStatement.getId());
+      if (learnedFetchSize != null) {
+        stmt.setFetchSize(learnedFetchSize);
+        return;
+      }
+    }
     Integer defaultFetchSize = configuration.getDefaultFetchSize();
     if (defaultFetchSize != null) {
       stmt.setFetchSize(defaultFetchSize);
@@ -0,0 +1,111 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Learns the fetch size of each statement from the number of rows its previous executions returned.
+ * <p>
+ * Row counts are kept in a histogram of power of two buckets whose weights decay at every execution, so recent
+ * executions count more than old ones. The fetch size is the upper bound of the bucket holding the 90th percentile,
+ * which is enough to read most result sets in one round trip, kept between {@link #MIN_FETCH_SIZE} and
+ * {@link Configuration#getMaxAdaptiveFetchSize()}.
+ *
+ * @since 3.5.3
+ */
+public class FetchSizeTuner {
+
+  public static final int MIN_FETCH_SIZE = 10;
+  public static final int DEFAULT_MAX_FETCH_SIZE = 1000;
+
+  private static final double DECAY = 0.9;
+  private static final double PERCENTILE = 0.9;
+
+  private final Configuration configuration;
+  private final Map<String, RowCountHistogram> histograms = new ConcurrentHashMap<>();
+
+  public FetchSizeTuner(Configuration configuration) {
+    this.configuration = configuration;
+  }
+
+  /**
+   * Records the number of rows read by an execution of a statement.
+   */
+  public void record(String statementId, int rows) {
+    histograms.computeIfAbsent(statementId, k -> new RowCountHistogram()).add(rows);
+  }
+
+  /**
+   * @return the learned fetch size of a statement, or null when it has not been executed yet
+   */
+  public Integer getFetchSize(String statementId) {
+    RowCountHistogram histogram = histograms.get(statementId);
+    return histogram == null ? null : cap(histogram.percentile());
+  }
+
+  /**
+   * @return the learned fetch sizes by statement id
+   */
+  public Map<String, Integer> getFetchSizes() {
+    Map<String, Integer> fetchSizes = new TreeMap<>();
+    histograms.forEach((id, histogram) -> fetchSizes.put(id, cap(histogram.percentile())));
+    return fetchSizes;
+  }
+
+  public void clear() {
+    histograms.clear();
+  }
+
+  private int cap(long fetchSize) {
+    Integer max = configuration.getMaxAdaptiveFetchSize();
+    int maxFetchSize = max == null ? DEFAULT_MAX_FETCH_SIZE : max;
+    return (int) Math.max(MIN_FETCH_SIZE, Math.min(fetchSize, maxFetchSize));
+  }
+
+  private static class RowCountHistogram {
+
+    // 第 i 个桶记录行数在 [2^(i-1), 2^i) 之间的执行次数，第 0 个桶记录没有返回行的执行
+    private final double[] buckets = new double[Integer.SIZE];
+    private double total;
+
+    synchronized void add(int rows) {
+      for (int i = 0; i < buckets.length; i++) {
+        buckets[i] *= DECAY;
+      }
+      total = total * DECAY + 1;
+      buckets[Integer.SIZE - Integer.numberOfLeadingZeros(rows)] += 1;
+    }
+
+    synchronized long percentile() {
+      double threshold = total * PERCENTILE;
+      double sum = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        sum += buckets[i];
+        if (sum >= threshold) {
+          // 桶的上界大于桶内的行数，驱动在一次往返中即可确认结果集已读完
+          return 1L << i;
+        }
+      }
+      return 1L << (buckets.length - 1);
+    }
+  }
+
+}
@@ -24,13 +24,27 @@ import java.util.Properties;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.copier.CacheCopier;
+import org.apache.ibatis.cache.copier.SerializingCopier;
 import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.BroadcastingCache;
+import org.apache.ibatis.cache.decorators.CopyingCache;
+import org.apache.ibatis.cache.decorators.EvictionCountingCache;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.decorators.StatisticsCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.TaggedCache;
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.ConcurrentLfuCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
+import org.apache.ibatis.cache.stats.EvictionCounting;
+import org.apache.ibatis.cache.weigher.Weigher;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
 
@@ -42,10 +56,18 @@ public class CacheBuilder {
   private Class<? extends Cache> implementation;
   private final List<Class<? extends Cache>> decorators;
   private Integer size;
+  private Long maxBytes;
+  private Class<? extends Weigher> weigher;
   private Long clearInterval;
+  private Long timeToLive;
+  private Long staleWhileRevalidate;
   private boolean readWrite;
   private Properties properties;
   private boolean blocking;
+  private boolean dependencyTracking;
+  private boolean statistics;
+  private CacheInvalidationBus invalidationBus;
+  private Class<? extends CacheCopier> copier;
 
   public CacheBuilder(String id) {
     this.id = id;
@@ -69,21 +91,61 @@ public class CacheBuilder {
     return this;
   }
 
+  public CacheBuilder maxBytes(Long maxBytes) {
+    this.maxBytes = maxBytes;
+    return this;
+  }
+
+  public CacheBuilder weigher(Class<? extends Weigher> weigher) {
+    this.weigher = weigher;
+    return this;
+  }
+
   public CacheBuilder clearInterval(Long clearInterval) {
     this.clearInterval = clearInterval;
     return this;
   }
 
+  public CacheBuilder timeToLive(Long timeToLive) {
+    this.timeToLive = timeToLive;
+    return this;
+  }
+
+  public CacheBuilder staleWhileRevalidate(Long staleWhileRevalidate) {
+    this.staleWhileRevalidate = staleWhileRevalidate;
+    return this;
+  }
+
   public CacheBuilder readWrite(boolean readWrite) {
     this.readWrite = readWrite;
     return this;
   }
 
+  public CacheBuilder copier(Class<? extends CacheCopier> copier) {
+    this.copier = copier;
+    return this;
+  }
+
   public CacheBuilder blocking(boolean blocking) {
     this.blocking = blocking;
     return this;
   }
 
+  public CacheBuilder dependencyTracking(boolean dependencyTracking) {
+    this.dependencyTracking = dependencyTracking;
+    return this;
+  }
+
+  public CacheBuilder statistics(boolean statistics) {
+    this.statistics = statistics;
+    return this;
+  }
+
+  public CacheBuilder invalidationBus(CacheInvalidationBus invalidationBus) {
+    this.invalidationBus = invalidationBus;
+    return this;
+  }
+
   public CacheBuilder properties(Properties properties) {
     this.properties = properties;
     return this;
@@ -103,8 +165,23 @@ public class CacheBuilder {
     setCacheProperties(cache);
     // issue #352, do not apply decorators to custom caches
 
+    // 统计淘汰次数的对象，基础缓存自己实现了淘汰时直接使用基础缓存
+    EvictionCounting evictionCounting = cache instanceof EvictionCounting ? (EvictionCounting) cache : null;
+
     // 根据上面创建的Cache对象类型，决定是否添加装饰器
     if (PerpetualCache.class.equals(cache.getClass())) {
+      if (statistics) {
+        // 放在最底层，统计各个装饰器自行删除的缓存项
+        EvictionCountingCache evictionCountingCache = new EvictionCountingCache(cache);
+        evictionCounting = evictionCountingCache;
+        cache = evictionCountingCache;
+      }
+      if (dependencyTracking) {
+        // 放在最底层，淘汰装饰器删除缓存项时同时更新按表建立的索引
+        cache = new TaggedCache(cache);
+      }
+      // 放在淘汰装饰器之下，LruCache 等装饰器删除缓存项时同时释放权重
+      cache = setWeightedCache(cache);
 
       // 如果是PerpetualCache类型，则为其添加decorators集合中指定的装饰器
       for (Class<? extends Cache> decorator : decorators) {
@@ -115,12 +192,55 @@ public class CacheBuilder {
         // 依赖MetaObject将properties中配置信息设置到Cache的各个属性中，同时调用Cache的initialize()方法完成初始化
         setCacheProperties(cache);
       }
-      cache = setStandardDecorators(cache);
+      cache = setStandardDecorators(cache, true);
+    } else if (ConcurrentLfuCache.class.equals(cache.getClass())) {
+
+      // ConcurrentLfuCache 线程安全并且自带淘汰策略，不再添加 LruCache、FifoCache 装饰器
+      // LoggingCache、ScheduledCache 是线程安全的；设置了 timeToLive 时 ExpiringCache 的所有方法仍然共用一把锁
+      boolean synchronize = false;
+
+      // 在添加装饰器之前设置容量，装饰器不一定有 size 属性
+      setSize(cache);
+      if (dependencyTracking) {
+        // TaggedCache 不是线程安全的
+        cache = new TaggedCache(cache);
+        synchronize = true;
+      }
+      if (maxBytes != null) {
+        cache = setWeightedCache(cache);
+
+        // WeightedCache 不是线程安全的
+        synchronize = true;
+      }
+      for (Class<? extends Cache> decorator : decorators) {
+        if (LruCache.class.equals(decorator) || FifoCache.class.equals(decorator)) {
+          continue;
+        }
+        cache = newCacheDecoratorInstance(decorator, cache);
+        setCacheProperties(cache);
+
+        // 其他装饰器不一定是线程安全的，仍然需要 SynchronizedCache
+        synchronize = true;
+      }
+      cache = setStandardDecorators(cache, synchronize);
     } else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
 
       // 如果不是PerpetualCache类型，就是其他自定义类型的Cache，则添加一个LoggingCache装饰器
       cache = new LoggingCache(cache);
     }
+    // BroadcastingCache 会放在 BlockingCache 之上，等待次数直接从 BlockingCache 读取
+    BlockingCache blockingCache = cache instanceof BlockingCache ? (BlockingCache) cache : null;
+    if (invalidationBus != null) {
+      // 事务提交时的清空操作同步到其他节点
+      cache = new BroadcastingCache(cache, invalidationBus);
+    }
+    if (statistics) {
+      // 放在最外层，命中率与 LoggingCache 中的统计一致
+      StatisticsCache statisticsCache = new StatisticsCache(cache);
+      statisticsCache.setEvictionCounting(evictionCounting);
+      statisticsCache.setBlockingCache(blockingCache);
+      cache = statisticsCache;
+    }
     return cache;
   }
 
@@ -138,23 +258,46 @@ public class CacheBuilder {
     }
   }
 
-  private Cache setStandardDecorators(Cache cache) {
+  private Cache setStandardDecorators(Cache cache, boolean synchronize) {
     try {
-      MetaObject metaCache = SystemMetaObject.forObject(cache);
-      if (size != null && metaCache.hasSetter("size")) {
-        metaCache.setValue("size", size);
-      }
+      setSize(cache);
       if (clearInterval != null) {
         cache = new ScheduledCache(cache);
         ((ScheduledCache) cache).setClearInterval(clearInterval);
       }
       if (readWrite) {
-        cache = new SerializedCache(cache);
+        // 默认使用 Java 序列化复制对象，也可以为每个命名空间指定其他的复制策略
+        if (copier == null || SerializingCopier.class.equals(copier)) {
+          cache = new SerializedCache(cache);
+        } else {
+          cache = new CopyingCache(cache, newCopierInstance(copier));
+        }
+      }
+      if (timeToLive != null || staleWhileRevalidate != null) {
+        // 放在复制装饰器之上，后台刷新得到的结果与普通的 put 一样经过复制
+        ExpiringCache expiringCache = new ExpiringCache(cache);
+
+        // 只设置了宽限期时缓存项不会过期，只在被清空时继续返回旧值
+        expiringCache.setTimeToLive(timeToLive != null ? timeToLive : 0);
+        if (staleWhileRevalidate != null) {
+          expiringCache.setStaleWhileRevalidate(staleWhileRevalidate);
+        }
+
+        // 允许通过 properties 设置提前刷新的时间(refreshAhead)
+        setCacheProperties(expiringCache);
+        cache = expiringCache;
       }
       cache = new LoggingCache(cache);
-      cache = new SynchronizedCache(cache);
+      if (synchronize) {
+        cache = new SynchronizedCache(cache);
+      }
       if (blocking) {
-        cache = new BlockingCache(cache);
+        BlockingCache blockingCache = new BlockingCache(cache);
+        blockingCache.setCopyOnHandOff(readWrite);
+
+        // 允许通过 properties 为每个命名空间设置等待超时时间(timeout)
+        setCacheProperties(blockingCache);
+        cache = blockingCache;
       }
       return cache;
     } catch (Exception e) {
@@ -162,6 +305,25 @@ public class CacheBuilder {
     }
   }
 
+  private Cache setWeightedCache(Cache cache) {
+    if (maxBytes == null) {
+      return cache;
+    }
+    WeightedCache weightedCache = new WeightedCache(cache);
+    weightedCache.setMaxBytes(maxBytes);
+    if (weigher != null) {
+      weightedCache.setWeigher(newWeigherInstance(weigher));
+    }
+    return weightedCache;
+  }
+
+  private void setSize(Cache cache) {
+    MetaObject metaCache = SystemMetaObject.forObject(cache);
+    if (size != null && metaCache.hasSetter("size")) {
+      metaCache.setValue("size", size);
+    }
+  }
+
   private void setCacheProperties(Cache cache) {
     if (properties != null) {
       MetaObject metaCache = SystemMetaObject.forObject(cache);
@@ -227,6 +389,22 @@ public class CacheBuilder {
     }
   }
 
+  private CacheCopier newCopierInstance(Class<? extends CacheCopier> copierClass) {
+    try {
+      return copierClass.getConstructor().newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache copier (" + copierClass + "). Cause: " + e, e);
+    }
+  }
+
+  private Weigher newWeigherInstance(Class<? extends Weigher> weigherClass) {
+    try {
+      return weigherClass.getConstructor().newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache weigher (" + weigherClass + "). Cause: " + e, e);
+    }
+  }
+
   private Cache newCacheDecoratorInstance(Class<? extends Cache> cacheClass, Cache base) {
     Constructor<? extends Cache> cacheConstructor = getCacheDecoratorConstructor(cacheClass);
     try {
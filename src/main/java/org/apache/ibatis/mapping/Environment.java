@@ -18,6 +18,7 @@ package org.apache.ibatis.mapping;
 import javax.sql.DataSource;
 
 import org.apache.ibatis.transaction.TransactionFactory;
+import org.apache.ibatis.transaction.routing.ReplicaPool;
 
 /**
  * @author Clinton Begin
@@ -26,8 +27,16 @@ public final class Environment {
   private final String id;
   private final TransactionFactory transactionFactory;
   private final DataSource dataSource;
+  private final ReplicaPool replicaPool;
 
   public Environment(String id, TransactionFactory transactionFactory, DataSource dataSource) {
+    this(id, transactionFactory, dataSource, null);
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public Environment(String id, TransactionFactory transactionFactory, DataSource dataSource, ReplicaPool replicaPool) {
     if (id == null) {
       throw new IllegalArgumentException("Parameter 'id' must not be null");
     }
@@ -40,12 +49,14 @@ public final class Environment {
     }
     this.transactionFactory = transactionFactory;
     this.dataSource = dataSource;
+    this.replicaPool = replicaPool;
   }
 
   public static class Builder {
     private String id;
     private TransactionFactory transactionFactory;
     private DataSource dataSource;
+    private ReplicaPool replicaPool;
 
     public Builder(String id) {
       this.id = id;
@@ -61,12 +72,20 @@ public final class Environment {
       return this;
     }
 
+    /**
+     * @since 3.5.3
+     */
+    public Builder replicaPool(ReplicaPool replicaPool) {
+      this.replicaPool = replicaPool;
+      return this;
+    }
+
     public String id() {
       return this.id;
     }
 
     public Environment build() {
-      return new Environment(this.id, this.transactionFactory, this.dataSource);
+      return new Environment(this.id, this.transactionFactory, this.dataSource, this.replicaPool);
     }
 
   }
@@ -83,4 +102,12 @@ public final class Environment {
     return this.dataSource;
   }
 
+  /**
+   * @return the replicas selects are sent to, or null when there are none
+   * @since 3.5.3
+   */
+  public ReplicaPool getReplicaPool() {
+    return this.replicaPool;
+  }
+
 }
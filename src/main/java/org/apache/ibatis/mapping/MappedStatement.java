@@ -19,12 +19,15 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import org.apache.ibatis.builder.StaticSqlSource;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
 import org.apache.ibatis.scripting.LanguageDriver;
 import org.apache.ibatis.session.Configuration;
 
@@ -61,6 +64,9 @@ public final class MappedStatement {
 
   // 是否有嵌套 ResultMap
   private boolean hasNestedResultMaps;
+
+  // 是否可能执行嵌套查询
+  private boolean hasNestedQueries;
   private String databaseId;
 
   // 输出日志
@@ -68,6 +74,15 @@ public final class MappedStatement {
   private LanguageDriver lang;
   private String[] resultSets;
 
+  // 语句读写的表，用于按表失效二级缓存，null 表示未知
+  private String[] tables;
+
+  // 读写分离时，查询语句是否总是在主库上执行
+  private boolean usePrimary;
+
+  // 静态 SQL 的缓存 key 前缀（statement id + sql），避免每次查询重新计算
+  private volatile CacheKeyPrefix cacheKeyPrefix;
+
   MappedStatement() {
     // constructor disabled
   }
@@ -113,6 +128,10 @@ public final class MappedStatement {
       mappedStatement.resultMaps = resultMaps;
       for (ResultMap resultMap : resultMaps) {
         mappedStatement.hasNestedResultMaps = mappedStatement.hasNestedResultMaps || resultMap.hasNestedResultMaps();
+
+        // 嵌套 ResultMap 与鉴别器指向的 ResultMap 中也可能包含嵌套查询
+        mappedStatement.hasNestedQueries = mappedStatement.hasNestedQueries || resultMap.hasNestedQueries()
+            || resultMap.hasNestedResultMaps() || resultMap.getDiscriminator() != null;
       }
       return this;
     }
@@ -187,6 +206,16 @@ public final class MappedStatement {
       return this;
     }
 
+    public Builder tables(String[] tables) {
+      mappedStatement.tables = tables;
+      return this;
+    }
+
+    public Builder usePrimary(boolean usePrimary) {
+      mappedStatement.usePrimary = usePrimary;
+      return this;
+    }
+
     /**
      * @deprecated Use {@link #resultSets}
      */
@@ -230,6 +259,16 @@ public final class MappedStatement {
     return hasNestedResultMaps;
   }
 
+  /**
+   * @return false when the results of this statement are mapped without running any nested select. May return
+   *         true for statements that actually do not run any, as nested and discriminated result maps are not
+   *         inspected.
+   * @since 3.5.3
+   */
+  public boolean hasNestedQueries() {
+    return hasNestedQueries;
+  }
+
   public Integer getFetchSize() {
     return fetchSize;
   }
@@ -298,6 +337,21 @@ public final class MappedStatement {
     return resultSets;
   }
 
+  /**
+   * @return The tables this statement reads (select) or writes (insert, update, delete), in lower case,
+   *         or null if they are unknown or cache dependency tracking is disabled
+   */
+  public String[] getTables() {
+    return tables;
+  }
+
+  /**
+   * @return whether the select must run on the primary even when replicas are configured
+   */
+  public boolean isUsePrimary() {
+    return usePrimary;
+  }
+
   /**
    * @deprecated Use {@link #getResultSets()}
    */
@@ -331,6 +385,43 @@ public final class MappedStatement {
     return boundSql;
   }
 
+  /**
+   * Creates a cache key for this statement that already contains the statement id and the given sql.
+   * For static sql the hashes of these constant components are computed once and reused.
+   *
+   * @param sql the sql that is going to be executed
+   * @param expectedUpdateCount the number of components that will be added afterwards
+   * @return a new cache key
+   */
+  public CacheKey newCacheKey(String sql, int expectedUpdateCount) {
+    CacheKeyPrefix prefix = cacheKeyPrefix;
+    if (prefix == null && (sqlSource instanceof StaticSqlSource || sqlSource instanceof RawSqlSource)) {
+      CacheKey key = new CacheKey(2);
+      key.update(id);
+      key.update(sql);
+      prefix = new CacheKeyPrefix(sql, key);
+      cacheKeyPrefix = prefix;
+    }
+    // 静态 SQL 每次返回同一个字符串实例，这里只需比较引用
+    if (prefix != null && prefix.sql == sql) {
+      return new CacheKey(prefix.key, prefix.key.getUpdateCount() + expectedUpdateCount);
+    }
+    CacheKey cacheKey = new CacheKey(2 + expectedUpdateCount);
+    cacheKey.update(id);
+    cacheKey.update(sql);
+    return cacheKey;
+  }
+
+  private static final class CacheKeyPrefix {
+    private final String sql;
+    private final CacheKey key;
+
+    CacheKeyPrefix(String sql, CacheKey key) {
+      this.sql = sql;
+      this.key = key;
+    }
+  }
+
   private static String[] delimitedStringToArray(String in) {
     if (in == null || in.trim().length() == 0) {
       return null;
@@ -56,6 +56,9 @@ public class ResultMapping {
   private String foreignColumn;
   private boolean lazy;
 
+  // 批量加载嵌套查询时，子对象中与 column 对应的属性
+  private String batchKey;
+
   ResultMapping() {
   }
 
@@ -142,6 +145,11 @@ public class ResultMapping {
       return this;
     }
 
+    public Builder batchKey(String batchKey) {
+      resultMapping.batchKey = batchKey;
+      return this;
+    }
+
     public ResultMapping build() {
       // lock down collections
       resultMapping.flags = Collections.unmodifiableList(resultMapping.flags);
@@ -164,6 +172,9 @@ public class ResultMapping {
       if (resultMapping.nestedResultMapId == null && resultMapping.column == null && resultMapping.composites.isEmpty()) {
         throw new IllegalStateException("Mapping is missing column attribute for property " + resultMapping.property);
       }
+      if (resultMapping.batchKey != null && (resultMapping.nestedQueryId == null || resultMapping.isCompositeResult())) {
+        throw new IllegalStateException("A batchKey requires a nested select with a single column in property " + resultMapping.property);
+      }
       if (resultMapping.getResultSet() != null) {
         int numColumns = 0;
         if (resultMapping.column != null) {
@@ -261,6 +272,15 @@ public class ResultMapping {
     this.lazy = lazy;
   }
 
+  /**
+   * @return the property of the nested select results matched against the column, when the nested select is run
+   *         once for the keys of many rows; null when it is run for each row
+   * @since 3.5.3
+   */
+  public String getBatchKey() {
+    return batchKey;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -308,6 +328,7 @@ public class ResultMapping {
     sb.append(", resultSet='").append(resultSet).append('\'');
     sb.append(", foreignColumn='").append(foreignColumn).append('\'');
     sb.append(", lazy=").append(lazy);
+    sb.append(", batchKey='").append(batchKey).append('\'');
     sb.append('}');
     return sb.toString();
   }
@@ -0,0 +1,121 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.apache.ibatis.executor.BatchResult;
+
+/**
+ * Non blocking facade of a {@link SqlSession}: every operation is run on the executor set with
+ * {@link Configuration#setAsyncExecutor(java.util.concurrent.Executor)} and returns a {@link CompletableFuture}.
+ * <p>
+ * A session owns one connection and one transaction, so the operations of an AsyncSqlSession run one after the
+ * other, in the order they were called, and never at the same time. Each operation is a separate task of the
+ * executor, so a session only holds a thread while one of its operations runs, and a bounded executor can serve more
+ * sessions than it has threads. Independent queries run concurrently when each of them uses its own AsyncSqlSession.
+ * <p>
+ * An operation must not wait for a later operation of its own session, as that one only starts once the first has
+ * completed: from inside {@link #execute(Function)}, use the {@link SqlSession} passed to the operation rather than
+ * the methods of this session or its mappers, and do not join the futures they return.
+ * <p>
+ * Mapper methods may return a {@link CompletableFuture} of their usual result type. Cursors can only be read inside
+ * {@link #execute(Function)}, as they must not be used by another thread than the session's.
+ *
+ * @since 3.5.3
+ * @see SqlSessionFactory#openAsyncSession()
+ */
+public interface AsyncSqlSession extends Closeable {
+
+  <T> CompletableFuture<T> selectOne(String statement);
+
+  <T> CompletableFuture<T> selectOne(String statement, Object parameter);
+
+  <E> CompletableFuture<List<E>> selectList(String statement);
+
+  <E> CompletableFuture<List<E>> selectList(String statement, Object parameter);
+
+  <E> CompletableFuture<List<E>> selectList(String statement, Object parameter, RowBounds rowBounds);
+
+  <K, V> CompletableFuture<Map<K, V>> selectMap(String statement, String mapKey);
+
+  <K, V> CompletableFuture<Map<K, V>> selectMap(String statement, Object parameter, String mapKey);
+
+  CompletableFuture<Integer> insert(String statement);
+
+  CompletableFuture<Integer> insert(String statement, Object parameter);
+
+  CompletableFuture<Integer> update(String statement);
+
+  CompletableFuture<Integer> update(String statement, Object parameter);
+
+  CompletableFuture<Integer> delete(String statement);
+
+  CompletableFuture<Integer> delete(String statement, Object parameter);
+
+  CompletableFuture<Void> commit();
+
+  CompletableFuture<Void> commit(boolean force);
+
+  CompletableFuture<Void> rollback();
+
+  CompletableFuture<Void> rollback(boolean force);
+
+  CompletableFuture<List<BatchResult>> flushStatements();
+
+  /**
+   * Runs any work with the underlying session, in turn with the other operations of this session.
+   *
+   * @param operation work to run, it must not keep the session
+   * @return the result of the work
+   */
+  <T> CompletableFuture<T> execute(Function<SqlSession, T> operation);
+
+  /**
+   * Tells whether the current thread is running an operation of this session, during which calls waiting for
+   * another operation of the session would never return.
+   *
+   * @return true when called from inside an operation of this session
+   */
+  boolean isInOperation();
+
+  /**
+   * Closes the session once the operations already submitted have completed.
+   */
+  CompletableFuture<Void> closeAsync();
+
+  /**
+   * Closes the session and waits until it is closed.
+   */
+  @Override
+  void close();
+
+  /**
+   * Retrieves a mapper whose methods run asynchronously. Methods returning a {@link CompletableFuture} return at
+   * once, the others wait for their result.
+   *
+   * @param type Mapper interface class
+   * @return a mapper bound to this session
+   */
+  <T> T getMapper(Class<T> type);
+
+  Configuration getConfiguration();
+
+}
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 
 import org.apache.ibatis.binding.MapperRegistry;
@@ -34,26 +35,40 @@ import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.copier.BinaryCopier;
+import org.apache.ibatis.cache.copier.ReflectiveCopier;
+import org.apache.ibatis.cache.copier.SerializingCopier;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
+import org.apache.ibatis.cache.decorators.StatisticsCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.impl.ConcurrentLfuCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
+import org.apache.ibatis.cache.invalidation.FileCacheInvalidationBus;
+import org.apache.ibatis.cache.invalidation.InJvmCacheInvalidationBus;
+import org.apache.ibatis.cache.stats.CacheStatisticsRegistry;
+import org.apache.ibatis.cache.weigher.ObjectSizeWeigher;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.BatchExecutor;
 import org.apache.ibatis.executor.CachingExecutor;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.GroupingBatchExecutor;
 import org.apache.ibatis.executor.ReuseExecutor;
 import org.apache.ibatis.executor.SimpleExecutor;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.executor.keygen.SequenceAllocator;
 import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.executor.statement.FetchSizeTuner;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.io.VFS;
@@ -87,9 +102,12 @@ import org.apache.ibatis.scripting.LanguageDriver;
 import org.apache.ibatis.scripting.LanguageDriverRegistry;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
+import org.apache.ibatis.session.defaults.VirtualThreadExecutor;
 import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
 import org.apache.ibatis.transaction.managed.ManagedTransactionFactory;
+import org.apache.ibatis.transaction.routing.LeastInUseLoadBalancer;
+import org.apache.ibatis.transaction.routing.RoundRobinLoadBalancer;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeAliasRegistry;
 import org.apache.ibatis.type.TypeHandler;
@@ -118,6 +136,20 @@ public class Configuration {
   protected boolean useGeneratedKeys;
   protected boolean useColumnLabel = true;
   protected boolean cacheEnabled = true;
+  // 按语句读写的表失效二级缓存，而不是清空整个命名空间
+  protected boolean cacheDependencyTracking;
+  protected boolean cacheStatisticsEnabled;
+  protected CacheInvalidationBus cacheInvalidationBus;
+  protected String cacheSnapshotFile;
+  protected Integer cacheSpoolLimit;
+  protected Integer batchFlushSize;
+  protected boolean rewriteBatchedInserts;
+  protected boolean replicaReadsInTransactions = true;
+  protected Integer batchInsertMaxParameters;
+  protected Integer nestedSelectBatchSize;
+  protected boolean adaptiveFetchSize;
+  protected Integer maxAdaptiveFetchSize;
+  protected java.util.concurrent.Executor asyncExecutor;
   protected boolean callSettersOnNulls;
   protected boolean useActualParamName = true;
   protected boolean returnInstanceForEmptyRow;
@@ -126,6 +158,8 @@ public class Configuration {
   protected Class<? extends Log> logImpl;
   protected Class<? extends VFS> vfsImpl;
   protected LocalCacheScope localCacheScope = LocalCacheScope.SESSION;
+  protected Integer localCacheSize;
+  protected Long localCacheMaxBytes;
   protected JdbcType jdbcTypeForNull = JdbcType.OTHER;
   protected Set<String> lazyLoadTriggerMethods = new HashSet<>(Arrays.asList("equals", "clone", "hashCode", "toString"));
   protected Integer defaultStatementTimeout;
@@ -156,6 +190,7 @@ public class Configuration {
 
   // 用于注册 Mapper 接口信息，建立 Mapper 接口的 Class对象和 MapperProxyFactory 对象之间的关系。
   protected final MapperRegistry mapperRegistry = new MapperRegistry(this);
+  protected final FetchSizeTuner fetchSizeTuner = new FetchSizeTuner(this);
 
   // 用于注册 MyBaties 插件信息，插件实际上就是一个拦截器。
   protected final InterceptorChain interceptorChain = new InterceptorChain();
@@ -174,9 +209,11 @@ public class Configuration {
       .conflictMessageProducer((savedValue, targetValue) ->
           ". please check " + savedValue.getResource() + " and " + targetValue.getResource());
   protected final Map<String, Cache> caches = new StrictMap<>("Caches collection");
+  protected final CacheStatisticsRegistry cacheStatisticsRegistry = new CacheStatisticsRegistry();
   protected final Map<String, ResultMap> resultMaps = new StrictMap<>("Result Maps collection");
   protected final Map<String, ParameterMap> parameterMaps = new StrictMap<>("Parameter Maps collection");
   protected final Map<String, KeyGenerator> keyGenerators = new StrictMap<>("Key Generators collection");
+  protected final Map<String, SequenceAllocator> sequenceAllocators = new ConcurrentHashMap<>();
 
   protected final Set<String> loadedResources = new HashSet<>();
   protected final Map<String, XNode> sqlFragments = new StrictMap<>("XML fragments parsed from previous mappers");
@@ -206,7 +243,20 @@ public class Configuration {
     typeAliasRegistry.registerAlias("POOLED", PooledDataSourceFactory.class);
     typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
 
+    typeAliasRegistry.registerAlias("ROUND_ROBIN", RoundRobinLoadBalancer.class);
+    typeAliasRegistry.registerAlias("LEAST_IN_USE", LeastInUseLoadBalancer.class);
+
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
+    typeAliasRegistry.registerAlias("CONCURRENT_LFU", ConcurrentLfuCache.class);
+    typeAliasRegistry.registerAlias("OFF_HEAP", OffHeapCache.class);
+
+    typeAliasRegistry.registerAlias("SERIALIZING", SerializingCopier.class);
+    typeAliasRegistry.registerAlias("REFLECTIVE", ReflectiveCopier.class);
+    typeAliasRegistry.registerAlias("BINARY", BinaryCopier.class);
+    typeAliasRegistry.registerAlias("OBJECT_SIZE", ObjectSizeWeigher.class);
+    typeAliasRegistry.registerAlias("IN_JVM_BUS", InJvmCacheInvalidationBus.class);
+    typeAliasRegistry.registerAlias("FILE_BUS", FileCacheInvalidationBus.class);
+    typeAliasRegistry.registerAlias("VIRTUAL_THREADS", VirtualThreadExecutor.class);
     typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
     typeAliasRegistry.registerAlias("LRU", LruCache.class);
     typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
@@ -435,6 +485,250 @@ public class Configuration {
     this.cacheEnabled = cacheEnabled;
   }
 
+  /**
+   * @since 3.5.3
+   */
+  public boolean isCacheDependencyTracking() {
+    return cacheDependencyTracking;
+  }
+
+  /**
+   * Sets whether statements are tagged with the tables they use, so that a write only removes the cached queries
+   * that read the tables it changes. Must be set before the mappers are loaded.
+   *
+   * @since 3.5.3
+   */
+  public void setCacheDependencyTracking(boolean cacheDependencyTracking) {
+    this.cacheDependencyTracking = cacheDependencyTracking;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public boolean isCacheStatisticsEnabled() {
+    return cacheStatisticsEnabled;
+  }
+
+  /**
+   * Sets whether second level caches collect statistics, available from {@link #getCacheStatisticsRegistry()}.
+   * Must be set before the mappers are loaded.
+   *
+   * @since 3.5.3
+   */
+  public void setCacheStatisticsEnabled(boolean cacheStatisticsEnabled) {
+    this.cacheStatisticsEnabled = cacheStatisticsEnabled;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public CacheInvalidationBus getCacheInvalidationBus() {
+    return cacheInvalidationBus;
+  }
+
+  /**
+   * Sets the bus that propagates the second level cache flushes to the other nodes sharing the database.
+   * Must be set before the mappers are loaded. The bus it replaces, if any, is closed.
+   *
+   * @since 3.5.3
+   */
+  public void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+    if (this.cacheInvalidationBus != null && this.cacheInvalidationBus != cacheInvalidationBus) {
+      this.cacheInvalidationBus.close();
+    }
+    this.cacheInvalidationBus = cacheInvalidationBus;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public String getCacheSnapshotFile() {
+    return cacheSnapshotFile;
+  }
+
+  /**
+   * Sets the file the second level caches are saved to when the JVM shuts down, and restored from when a
+   * {@link SqlSessionFactory} is built with this configuration.
+   *
+   * @since 3.5.3
+   * @see org.apache.ibatis.cache.snapshot.CacheSnapshot
+   */
+  public void setCacheSnapshotFile(String cacheSnapshotFile) {
+    this.cacheSnapshotFile = cacheSnapshotFile;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public Integer getCacheSpoolLimit() {
+    return cacheSpoolLimit;
+  }
+
+  /**
+   * Sets the maximum number of rows captured from a query that uses a {@link ResultHandler} or returns a
+   * {@link org.apache.ibatis.cursor.Cursor}, so that they are put in the second level cache and replayed by the
+   * next identical query. Such queries are not cached when null.
+   *
+   * @since 3.5.3
+   */
+  public void setCacheSpoolLimit(Integer cacheSpoolLimit) {
+    this.cacheSpoolLimit = cacheSpoolLimit;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public Integer getBatchFlushSize() {
+    return batchFlushSize;
+  }
+
+  /**
+   * Sets the number of calls after which {@link ExecutorType#GROUPED_BATCH} executes its pending batches, so that
+   * memory stays bounded on large imports. Batches are only executed on flush when null.
+   *
+   * @since 3.5.3
+   */
+  public void setBatchFlushSize(Integer batchFlushSize) {
+    this.batchFlushSize = batchFlushSize;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public boolean isReplicaReadsInTransactions() {
+    return replicaReadsInTransactions;
+  }
+
+  /**
+   * Sets whether sessions that do not auto-commit also send the selects they run before their first write to a
+   * replica. When false, only auto-commit sessions read from replicas, so that every read of a transaction sees the
+   * same data as its writes. Default is true.
+   *
+   * @since 3.5.3
+   * @see org.apache.ibatis.transaction.routing.ReadWriteTransaction
+   */
+  public void setReplicaReadsInTransactions(boolean replicaReadsInTransactions) {
+    this.replicaReadsInTransactions = replicaReadsInTransactions;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public boolean isRewriteBatchedInserts() {
+    return rewriteBatchedInserts;
+  }
+
+  /**
+   * Sets whether batch executors send the rows of a batched single-row <code>INSERT ... VALUES (...)</code> as
+   * multi-row <code>VALUES (...), (...)</code> statements, for drivers that do not rewrite JDBC batches themselves.
+   *
+   * @since 3.5.3
+   */
+  public void setRewriteBatchedInserts(boolean rewriteBatchedInserts) {
+    this.rewriteBatchedInserts = rewriteBatchedInserts;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public Integer getBatchInsertMaxParameters() {
+    return batchInsertMaxParameters;
+  }
+
+  /**
+   * Sets the maximum number of parameters of a rewritten multi-row insert, to stay under the limit of the driver.
+   * 2000 is used when null.
+   *
+   * @since 3.5.3
+   */
+  public void setBatchInsertMaxParameters(Integer batchInsertMaxParameters) {
+    this.batchInsertMaxParameters = batchInsertMaxParameters;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public Integer getNestedSelectBatchSize() {
+    return nestedSelectBatchSize;
+  }
+
+  /**
+   * Sets the maximum number of keys passed at once to a nested select that declares a <code>batchKey</code>.
+   * 500 is used when null.
+   *
+   * @since 3.5.3
+   */
+  public void setNestedSelectBatchSize(Integer nestedSelectBatchSize) {
+    this.nestedSelectBatchSize = nestedSelectBatchSize;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public boolean isAdaptiveFetchSize() {
+    return adaptiveFetchSize;
+  }
+
+  /**
+   * Sets whether the fetch size of statements without a fetchSize attribute is learned from the number of rows
+   * their previous executions returned. The learned values are available from {@link #getFetchSizeTuner()}.
+   *
+   * @since 3.5.3
+   */
+  public void setAdaptiveFetchSize(boolean adaptiveFetchSize) {
+    this.adaptiveFetchSize = adaptiveFetchSize;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public Integer getMaxAdaptiveFetchSize() {
+    return maxAdaptiveFetchSize;
+  }
+
+  /**
+   * Sets the largest fetch size that adaptive fetch size tuning can choose. 1000 is used when null.
+   *
+   * @since 3.5.3
+   */
+  public void setMaxAdaptiveFetchSize(Integer maxAdaptiveFetchSize) {
+    this.maxAdaptiveFetchSize = maxAdaptiveFetchSize;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public FetchSizeTuner getFetchSizeTuner() {
+    return fetchSizeTuner;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public java.util.concurrent.Executor getAsyncExecutor() {
+    return asyncExecutor;
+  }
+
+  /**
+   * Sets the executor the operations of {@link AsyncSqlSession} run on. Each operation is a short task, so a bounded
+   * executor can serve any number of sessions. Its threads are still held by operations waiting on the database or
+   * on a load another session holds in a blocking cache, which the blocking cache timeout bounds. A shared pool of
+   * daemon threads is used when null.
+   *
+   * @since 3.5.3
+   * @see org.apache.ibatis.session.defaults.VirtualThreadExecutor
+   */
+  public void setAsyncExecutor(java.util.concurrent.Executor asyncExecutor) {
+    this.asyncExecutor = asyncExecutor;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public CacheStatisticsRegistry getCacheStatisticsRegistry() {
+    return cacheStatisticsRegistry;
+  }
+
   public Integer getDefaultStatementTimeout() {
     return defaultStatementTimeout;
   }
@@ -487,6 +781,40 @@ public class Configuration {
     this.localCacheScope = localCacheScope;
   }
 
+  /**
+   * @since 3.5.3
+   */
+  public Integer getLocalCacheSize() {
+    return localCacheSize;
+  }
+
+  /**
+   * Sets the maximum number of query results kept in the local cache of each session. The least recently used
+   * results are evicted once the outermost query completes. Unbounded when null.
+   *
+   * @since 3.5.3
+   */
+  public void setLocalCacheSize(Integer localCacheSize) {
+    this.localCacheSize = localCacheSize;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public Long getLocalCacheMaxBytes() {
+    return localCacheMaxBytes;
+  }
+
+  /**
+   * Sets the maximum estimated size in bytes of the query results kept in the local cache of each session.
+   * Unbounded when null.
+   *
+   * @since 3.5.3
+   */
+  public void setLocalCacheMaxBytes(Long localCacheMaxBytes) {
+    this.localCacheMaxBytes = localCacheMaxBytes;
+  }
+
   public JdbcType getJdbcTypeForNull() {
     return jdbcTypeForNull;
   }
@@ -653,6 +981,8 @@ public class Configuration {
     // 根据 executorType 类型创建 Executor 对象。
     if (ExecutorType.BATCH == executorType) {
       executor = new BatchExecutor(this, transaction);
+    } else if (ExecutorType.GROUPED_BATCH == executorType) {
+      executor = new GroupingBatchExecutor(this, transaction);
     } else if (ExecutorType.REUSE == executorType) {
       executor = new ReuseExecutor(this, transaction);
     } else {
@@ -694,8 +1024,23 @@ public class Configuration {
     return keyGenerators.containsKey(id);
   }
 
+  /**
+   * Gets the allocator of keys reserved from a sequence, creating it on first use. Key statements share an
+   * allocator only when they have the same SQL and the same allocation size.
+   *
+   * @since 3.5.3
+   */
+  public SequenceAllocator getSequenceAllocator(String sequence, int allocationSize) {
+    // 预留的号段大小不同的语句不能共享已预留的主键
+    return sequenceAllocators.computeIfAbsent(allocationSize + ":" + sequence,
+        k -> new SequenceAllocator(sequence, allocationSize));
+  }
+
   public void addCache(Cache cache) {
     caches.put(cache.getId(), cache);
+    if (cache instanceof StatisticsCache) {
+      cacheStatisticsRegistry.register((StatisticsCache) cache);
+    }
   }
 
   public Collection<String> getCacheNames() {
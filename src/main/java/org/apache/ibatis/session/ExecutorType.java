@@ -19,5 +19,12 @@ package org.apache.ibatis.session;
  * @author Clinton Begin
  */
 public enum ExecutorType {
-  SIMPLE, REUSE, BATCH
+  SIMPLE, REUSE, BATCH,
+
+  /**
+   * Batches interleaved statements together, see {@link org.apache.ibatis.executor.GroupingBatchExecutor}.
+   *
+   * @since 3.5.3
+   */
+  GROUPED_BATCH
 }
@@ -19,6 +19,7 @@ import java.io.Closeable;
 import java.sql.Connection;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
@@ -143,6 +144,45 @@ public interface SqlSession extends Closeable {
    */
   <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds);
 
+  /**
+   * A Stream offers the same results as a List, except it fetches data lazily from a {@link Cursor}.
+   * The stream must be closed, or fully consumed, to release the underlying result set.
+   * @param <T> the returned stream element type
+   * @param statement Unique identifier matching the statement to use.
+   * @return Stream of mapped objects
+   * @since 3.5.3
+   */
+  default <T> Stream<T> selectStream(String statement) {
+    return this.<T>selectCursor(statement).stream();
+  }
+
+  /**
+   * A Stream offers the same results as a List, except it fetches data lazily from a {@link Cursor}.
+   * The stream must be closed, or fully consumed, to release the underlying result set.
+   * @param <T> the returned stream element type
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Stream of mapped objects
+   * @since 3.5.3
+   */
+  default <T> Stream<T> selectStream(String statement, Object parameter) {
+    return this.<T>selectCursor(statement, parameter).stream();
+  }
+
+  /**
+   * A Stream offers the same results as a List, except it fetches data lazily from a {@link Cursor}.
+   * The stream must be closed, or fully consumed, to release the underlying result set.
+   * @param <T> the returned stream element type
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param rowBounds  Bounds to limit object retrieval
+   * @return Stream of mapped objects
+   * @since 3.5.3
+   */
+  default <T> Stream<T> selectStream(String statement, Object parameter, RowBounds rowBounds) {
+    return this.<T>selectCursor(statement, parameter, rowBounds).stream();
+  }
+
   /**
    * Retrieve a single row mapped from the statement key and parameter
    * using a {@code ResultHandler}.
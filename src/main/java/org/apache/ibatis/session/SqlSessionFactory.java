@@ -17,6 +17,8 @@ package org.apache.ibatis.session;
 
 import java.sql.Connection;
 
+import org.apache.ibatis.session.defaults.DefaultAsyncSqlSession;
+
 /**
  * Creates an {@link SqlSession} out of a connection or a DataSource
  *
@@ -42,4 +44,21 @@ public interface SqlSessionFactory {
 
   Configuration getConfiguration();
 
+  /**
+   * Opens a session whose operations run asynchronously on {@link Configuration#getAsyncExecutor()}.
+   *
+   * @since 3.5.3
+   */
+  default AsyncSqlSession openAsyncSession() {
+    return openAsyncSession(false);
+  }
+
+  /**
+   * @since 3.5.3
+   * @see #openAsyncSession()
+   */
+  default AsyncSqlSession openAsyncSession(boolean autoCommit) {
+    return new DefaultAsyncSqlSession(openSession(autoCommit), getConfiguration().getAsyncExecutor());
+  }
+
 }
@@ -21,6 +21,7 @@ import java.io.Reader;
 import java.util.Properties;
 
 import org.apache.ibatis.builder.xml.XMLConfigBuilder;
+import org.apache.ibatis.cache.snapshot.CacheSnapshot;
 import org.apache.ibatis.exceptions.ExceptionFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
@@ -95,6 +96,10 @@ public class SqlSessionFactoryBuilder {
   }
 
   public SqlSessionFactory build(Configuration config) {
+    if (config.getCacheSnapshotFile() != null) {
+      // 恢复上次保存的二级缓存，并在 JVM 退出时重新保存
+      new CacheSnapshot(config, config.getCacheSnapshotFile()).loadAndSaveOnShutdown();
+    }
     return new DefaultSqlSessionFactory(config);
   }
 
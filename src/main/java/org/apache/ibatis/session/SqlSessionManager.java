@@ -24,6 +24,7 @@ import java.sql.Connection;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.stream.Stream;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
@@ -202,17 +203,32 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
 
   @Override
   public <T> Cursor<T> selectCursor(String statement) {
-    return sqlSessionProxy.selectCursor(statement);
+    return getManagedSession("open a cursor").selectCursor(statement);
   }
 
   @Override
   public <T> Cursor<T> selectCursor(String statement, Object parameter) {
-    return sqlSessionProxy.selectCursor(statement, parameter);
+    return getManagedSession("open a cursor").selectCursor(statement, parameter);
   }
 
   @Override
   public <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds) {
-    return sqlSessionProxy.selectCursor(statement, parameter, rowBounds);
+    return getManagedSession("open a cursor").selectCursor(statement, parameter, rowBounds);
+  }
+
+  @Override
+  public <T> Stream<T> selectStream(String statement) {
+    return getManagedSession("open a stream").selectStream(statement);
+  }
+
+  @Override
+  public <T> Stream<T> selectStream(String statement, Object parameter) {
+    return getManagedSession("open a stream").selectStream(statement, parameter);
+  }
+
+  @Override
+  public <T> Stream<T> selectStream(String statement, Object parameter, RowBounds rowBounds) {
+    return getManagedSession("open a stream").selectStream(statement, parameter, rowBounds);
   }
 
   @Override
@@ -364,6 +380,18 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
     }
   }
 
+  /**
+   * Cursors and streams are read after the call returns, so they need the managed session: the session
+   * sqlSessionProxy opens on its own is closed, with the cursor, before the caller can use them.
+   */
+  private SqlSession getManagedSession(String action) {
+    final SqlSession sqlSession = localSqlSession.get();
+    if (sqlSession == null) {
+      throw new SqlSessionException("Error:  Cannot " + action + ".  No managed session is started.");
+    }
+    return sqlSession;
+  }
+
   private class SqlSessionInterceptor implements InvocationHandler {
     public SqlSessionInterceptor() {
         // Prevent Synthetic Access
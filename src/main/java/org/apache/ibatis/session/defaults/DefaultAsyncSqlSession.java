@@ -0,0 +1,252 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session.defaults;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.apache.ibatis.binding.AsyncMapperProxy;
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.AsyncSqlSession;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+
+/**
+ * The default implementation for {@link AsyncSqlSession}.
+ * <p>
+ * Each operation is chained to the previous one, so the wrapped {@link SqlSession} sees the changes made by the
+ * previous operations. Each operation is a task of its own on the executor, so a session only uses a thread while
+ * one of its operations runs. The loads a {@link BlockingCache} holds until the end of the transaction belong to the
+ * session rather than to the thread that started them.
+ */
+public class DefaultAsyncSqlSession implements AsyncSqlSession {
+
+  private final SqlSession sqlSession;
+  private final Executor worker;
+
+  // 正在执行本会话操作的线程
+  private volatile Thread running;
+
+  // 最后提交的操作，新的操作在它完成后执行
+  private CompletableFuture<?> last = CompletableFuture.completedFuture(null);
+  private CompletableFuture<Void> closed;
+
+  /**
+   * @param sqlSession session the operations run with
+   * @param executor executor the operations run on, or null to use a shared pool of daemon threads
+   */
+  public DefaultAsyncSqlSession(SqlSession sqlSession, Executor executor) {
+    this.sqlSession = sqlSession;
+    Executor target = executor == null ? DefaultExecutor.INSTANCE : executor;
+    this.worker = task -> target.execute(() -> BlockingCache.runAs(this, task));
+  }
+
+  @Override
+  public <T> CompletableFuture<T> selectOne(String statement) {
+    return execute(session -> session.selectOne(statement));
+  }
+
+  @Override
+  public <T> CompletableFuture<T> selectOne(String statement, Object parameter) {
+    return execute(session -> session.selectOne(statement, parameter));
+  }
+
+  @Override
+  public <E> CompletableFuture<List<E>> selectList(String statement) {
+    return execute(session -> session.selectList(statement));
+  }
+
+  @Override
+  public <E> CompletableFuture<List<E>> selectList(String statement, Object parameter) {
+    return execute(session -> session.selectList(statement, parameter));
+  }
+
+  @Override
+  public <E> CompletableFuture<List<E>> selectList(String statement, Object parameter, RowBounds rowBounds) {
+    return execute(session -> session.selectList(statement, parameter, rowBounds));
+  }
+
+  @Override
+  public <K, V> CompletableFuture<Map<K, V>> selectMap(String statement, String mapKey) {
+    return execute(session -> session.selectMap(statement, mapKey));
+  }
+
+  @Override
+  public <K, V> CompletableFuture<Map<K, V>> selectMap(String statement, Object parameter, String mapKey) {
+    return execute(session -> session.selectMap(statement, parameter, mapKey));
+  }
+
+  @Override
+  public CompletableFuture<Integer> insert(String statement) {
+    return execute(session -> session.insert(statement));
+  }
+
+  @Override
+  public CompletableFuture<Integer> insert(String statement, Object parameter) {
+    return execute(session -> session.insert(statement, parameter));
+  }
+
+  @Override
+  public CompletableFuture<Integer> update(String statement) {
+    return execute(session -> session.update(statement));
+  }
+
+  @Override
+  public CompletableFuture<Integer> update(String statement, Object parameter) {
+    return execute(session -> session.update(statement, parameter));
+  }
+
+  @Override
+  public CompletableFuture<Integer> delete(String statement) {
+    return execute(session -> session.delete(statement));
+  }
+
+  @Override
+  public CompletableFuture<Integer> delete(String statement, Object parameter) {
+    return execute(session -> session.delete(statement, parameter));
+  }
+
+  @Override
+  public CompletableFuture<Void> commit() {
+    return execute(session -> {
+      session.commit();
+      return null;
+    });
+  }
+
+  @Override
+  public CompletableFuture<Void> commit(boolean force) {
+    return execute(session -> {
+      session.commit(force);
+      return null;
+    });
+  }
+
+  @Override
+  public CompletableFuture<Void> rollback() {
+    return execute(session -> {
+      session.rollback();
+      return null;
+    });
+  }
+
+  @Override
+  public CompletableFuture<Void> rollback(boolean force) {
+    return execute(session -> {
+      session.rollback(force);
+      return null;
+    });
+  }
+
+  @Override
+  public CompletableFuture<List<BatchResult>> flushStatements() {
+    return execute(SqlSession::flushStatements);
+  }
+
+  @Override
+  public synchronized <T> CompletableFuture<T> execute(Function<SqlSession, T> operation) {
+    if (closed != null) {
+      CompletableFuture<T> future = new CompletableFuture<>();
+      future.completeExceptionally(new IllegalStateException("AsyncSqlSession is closed."));
+      return future;
+    }
+    // 前一个操作失败不影响后面的操作，与同步调用一致
+    CompletableFuture<T> future = last.handle((result, e) -> null)
+        .thenApplyAsync(ignored -> run(operation), worker);
+    last = future;
+    return future;
+  }
+
+  @Override
+  public synchronized CompletableFuture<Void> closeAsync() {
+    if (closed == null) {
+      closed = execute(session -> {
+        session.close();
+        return null;
+      });
+    }
+    return closed;
+  }
+
+  @Override
+  public void close() {
+    try {
+      closeAsync().join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean isInOperation() {
+    return running == Thread.currentThread();
+  }
+
+  @Override
+  public <T> T getMapper(Class<T> type) {
+    return AsyncMapperProxy.newInstance(this, sqlSession.getMapper(type), type);
+  }
+
+  @Override
+  public Configuration getConfiguration() {
+    return sqlSession.getConfiguration();
+  }
+
+  private <T> T run(Function<SqlSession, T> operation) {
+    // 操作按顺序串行执行，同一时间只有一个线程
+    running = Thread.currentThread();
+    try {
+      return operation.apply(sqlSession);
+    } finally {
+      running = null;
+    }
+  }
+
+  /**
+   * Threads used when no executor has been configured. They are created on demand, as each of them waits on the
+   * database, and the number of them running at once is bounded by the connection pool anyway.
+   */
+  private static final class DefaultExecutor {
+
+    private static final ExecutorService INSTANCE;
+
+    static {
+      AtomicInteger count = new AtomicInteger();
+      INSTANCE = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "mybatis-async-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+
+    private DefaultExecutor() {
+      // Prevent Instantiation of Static Class
+    }
+  }
+
+}
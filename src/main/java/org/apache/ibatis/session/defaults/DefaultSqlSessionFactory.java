@@ -29,6 +29,7 @@ import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.TransactionIsolationLevel;
 import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.transaction.TransactionFactory;
+import org.apache.ibatis.transaction.routing.ReadWriteTransaction;
 import org.apache.ibatis.transaction.managed.ManagedTransactionFactory;
 
 /**
@@ -108,6 +109,11 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
 
       // 创建事务管理器（ 从数据源中创建 Transaction ）
       tx = transactionFactory.newTransaction(environment.getDataSource(), level, autoCommit);
+      if (environment.getReplicaPool() != null) {
+        // 读写分离：第一次写操作之前的查询语句优先使用从库
+        tx = new ReadWriteTransaction(tx, environment.getReplicaPool(), transactionFactory, level,
+            autoCommit || configuration.isReplicaReadsInTransactions());
+      }
 
       /**
        * 根据 MyBatis 主配置文件中指定 Executor 类型创建对应 Executor 实例。{@link Configuration#newExecutor(Transaction, ExecutorType)}
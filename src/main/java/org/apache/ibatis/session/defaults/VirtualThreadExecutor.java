@@ -0,0 +1,52 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session.defaults;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.ibatis.session.SqlSessionException;
+
+/**
+ * Runs each asynchronous operation on a new virtual thread. Virtual threads need JDK 21 or later; creating this
+ * executor on an older JDK fails.
+ * <p>
+ * Can be selected with the <code>asyncExecutor</code> setting set to <code>VIRTUAL_THREADS</code>.
+ */
+public class VirtualThreadExecutor implements Executor {
+
+  private final ExecutorService delegate;
+
+  public VirtualThreadExecutor() {
+    try {
+      // 通过反射调用，保持对旧版本 JDK 的编译兼容
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      this.delegate = (ExecutorService) factory.invoke(null);
+    } catch (NoSuchMethodException e) {
+      throw new SqlSessionException("Virtual threads require JDK 21 or later.", e);
+    } catch (ReflectiveOperationException e) {
+      throw new SqlSessionException("Could not create a virtual thread executor. Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    delegate.execute(command);
+  }
+
+}
@@ -0,0 +1,39 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.transaction.routing;
+
+/**
+ * Uses the replica with the fewest sessions currently reading from it, the first one on ties.
+ *
+ * @since 3.5.3
+ */
+public class LeastInUseLoadBalancer implements LoadBalancer {
+
+  @Override
+  public int select(ReplicaPool pool) {
+    int selected = 0;
+    int fewest = Integer.MAX_VALUE;
+    for (int i = 0; i < pool.size(); i++) {
+      int inUse = pool.getInUse(i);
+      if (inUse < fewest) {
+        selected = i;
+        fewest = inUse;
+      }
+    }
+    return selected;
+  }
+
+}
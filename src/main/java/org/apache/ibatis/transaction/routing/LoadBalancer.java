@@ -0,0 +1,32 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.transaction.routing;
+
+/**
+ * Chooses the replica a session reads from.
+ * <p>
+ * Implementations must be thread safe and, to be used from the XML configuration, have a no-arg constructor.
+ *
+ * @since 3.5.3
+ */
+public interface LoadBalancer {
+
+  /**
+   * @return the index of the replica to use, between 0 and <code>pool.size() - 1</code>
+   */
+  int select(ReplicaPool pool);
+
+}
@@ -0,0 +1,161 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.transaction.routing;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.session.TransactionIsolationLevel;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.TransactionFactory;
+
+/**
+ * Transaction that sends the selects of a session to a replica until its first write.
+ * <p>
+ * Selects run on a replica connection, borrowed from the {@link ReplicaPool} on first use and kept until the
+ * transaction is closed. Once a session has written, its following statements stay on the primary until it is
+ * closed, so that it never reads its own writes from a lagging replica. Sessions that do not auto-commit read from
+ * replicas too, unless the <code>replicaReadsInTransactions</code> setting is false, in which case they run every
+ * statement on the primary.
+ * Stored procedures, <code>selectKey</code> statements, selects that flush the cache or lock rows
+ * (<code>FOR UPDATE</code>, <code>FOR SHARE</code>, <code>LOCK IN SHARE MODE</code>) and selects marked with
+ * <code>usePrimary</code> always run on the primary.
+ *
+ * @since 3.5.3
+ */
+public class ReadWriteTransaction implements Transaction {
+
+  private static final Pattern LOCKING_READ = Pattern.compile(
+      "\\bfor\\s+(?:no\\s+key\\s+)?(?:update|share|key\\s+share)\\b|\\block\\s+in\\s+share\\s+mode\\b",
+      Pattern.CASE_INSENSITIVE);
+
+  private final Transaction primary;
+  private final ReplicaPool replicaPool;
+  private final TransactionFactory transactionFactory;
+  private final TransactionIsolationLevel level;
+  private final boolean replicaReads;
+
+  private Transaction replica;
+  private int replicaIndex = -1;
+  private boolean written;
+
+  /**
+   * @param replicaReads whether the selects made before the first write run on a replica
+   */
+  public ReadWriteTransaction(Transaction primary, ReplicaPool replicaPool, TransactionFactory transactionFactory,
+      TransactionIsolationLevel level, boolean replicaReads) {
+    this.primary = primary;
+    this.replicaPool = replicaPool;
+    this.transactionFactory = transactionFactory;
+    this.level = level;
+    this.replicaReads = replicaReads;
+  }
+
+  /**
+   * @return the primary connection
+   */
+  @Override
+  public Connection getConnection() throws SQLException {
+    return primary.getConnection();
+  }
+
+  /**
+   * Returns the connection a statement must run on and, if the statement writes, keeps the following
+   * statements of the session on the primary.
+   *
+   * @param sql the sql of the statement, or null if it is not a select
+   */
+  public Connection getConnection(MappedStatement ms, String sql) throws SQLException {
+    if (ms.getSqlCommandType() != SqlCommandType.SELECT) {
+      written = true;
+    }
+    return isReplicaRead(ms, sql) ? getReplicaConnection() : primary.getConnection();
+  }
+
+  /**
+   * Keeps the following statements of the session on the primary.
+   */
+  public void markWritten() {
+    written = true;
+  }
+
+  /**
+   * @param sql the sql of the statement, or null if it is not a select
+   * @return whether the statement would run on a replica
+   */
+  public boolean isReplicaRead(MappedStatement ms, String sql) {
+    return replicaReads
+        && !written
+        && ms.getSqlCommandType() == SqlCommandType.SELECT
+        && ms.getStatementType() != StatementType.CALLABLE
+        && !ms.isUsePrimary()
+        && !ms.isFlushCacheRequired()
+        && !ms.getId().endsWith(SelectKeyGenerator.SELECT_KEY_SUFFIX)
+        && (sql == null || !LOCKING_READ.matcher(sql).find());
+  }
+
+  @Override
+  public void commit() throws SQLException {
+    primary.commit();
+    if (replica != null) {
+      replica.commit();
+    }
+  }
+
+  @Override
+  public void rollback() throws SQLException {
+    primary.rollback();
+    if (replica != null) {
+      replica.rollback();
+    }
+  }
+
+  @Override
+  public void close() throws SQLException {
+    try {
+      primary.close();
+    } finally {
+      if (replica != null) {
+        try {
+          replica.close();
+        } finally {
+          replica = null;
+          replicaPool.release(replicaIndex);
+        }
+      }
+    }
+  }
+
+  @Override
+  public Integer getTimeout() throws SQLException {
+    return primary.getTimeout();
+  }
+
+  private Connection getReplicaConnection() throws SQLException {
+    if (replica == null) {
+      replicaIndex = replicaPool.acquire();
+      // 从库只读，使用自动提交
+      replica = transactionFactory.newTransaction(replicaPool.getDataSource(replicaIndex), level, true);
+    }
+    return replica.getConnection();
+  }
+
+}
@@ -0,0 +1,88 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.transaction.routing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import javax.sql.DataSource;
+
+/**
+ * Replica data sources of an {@link org.apache.ibatis.mapping.Environment} and the {@link LoadBalancer} that
+ * spreads the sessions over them.
+ *
+ * @since 3.5.3
+ */
+public class ReplicaPool {
+
+  private final List<DataSource> dataSources;
+  private final LoadBalancer loadBalancer;
+  // 每个从库当前被多少个会话使用
+  private final AtomicIntegerArray inUse;
+
+  public ReplicaPool(List<DataSource> dataSources, LoadBalancer loadBalancer) {
+    if (dataSources == null || dataSources.isEmpty()) {
+      throw new IllegalArgumentException("Parameter 'dataSources' must not be empty");
+    }
+    if (loadBalancer == null) {
+      throw new IllegalArgumentException("Parameter 'loadBalancer' must not be null");
+    }
+    this.dataSources = Collections.unmodifiableList(new ArrayList<>(dataSources));
+    this.loadBalancer = loadBalancer;
+    this.inUse = new AtomicIntegerArray(dataSources.size());
+  }
+
+  /**
+   * Selects a replica and counts it as in use until {@link #release(int)} is called.
+   *
+   * @return the index of the selected replica
+   */
+  public int acquire() {
+    int index = loadBalancer.select(this);
+    inUse.incrementAndGet(index);
+    return index;
+  }
+
+  public void release(int index) {
+    inUse.decrementAndGet(index);
+  }
+
+  public DataSource getDataSource(int index) {
+    return dataSources.get(index);
+  }
+
+  public List<DataSource> getDataSources() {
+    return dataSources;
+  }
+
+  public LoadBalancer getLoadBalancer() {
+    return loadBalancer;
+  }
+
+  /**
+   * @return the number of sessions currently reading from a replica
+   */
+  public int getInUse(int index) {
+    return inUse.get(index);
+  }
+
+  public int size() {
+    return dataSources.size();
+  }
+
+}
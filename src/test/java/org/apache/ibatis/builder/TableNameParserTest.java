@@ -0,0 +1,55 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class TableNameParserTest {
+
+  @Test
+  void shouldFindTablesOfSelect() {
+    assertThat(TableNameParser.parse("select * from blog b, \"Author\" as a, comment where b.author_id = a.id"))
+        .containsExactly("blog", "author", "comment");
+    assertThat(TableNameParser.parse("SELECT * FROM blog b LEFT OUTER JOIN post p ON p.blog_id = b.id "
+        + "INNER JOIN (select * from tag) t ON t.id = p.id FOR UPDATE"))
+        .containsExactly("blog", "post", "tag");
+    assertThat(TableNameParser.parse("select * from myschema.[Post] where subject = 'from x'"))
+        .containsExactly("post");
+  }
+
+  @Test
+  void shouldFindTablesOfWrites() {
+    assertThat(TableNameParser.parse("insert into author (id, username) values (?, ?)")).containsExactly("author");
+    assertThat(TableNameParser.parse("update author set username = ? where id = ?")).containsExactly("author");
+    assertThat(TableNameParser.parse("delete from author where id = ?")).containsExactly("author");
+    assertThat(TableNameParser.parse("insert into author_copy select * from author "
+        + "on duplicate key update username = values(username)")).containsExactly("author_copy", "author");
+  }
+
+  @Test
+  void shouldReturnNullWithoutTables() {
+    assertThat(TableNameParser.parse("select 1")).isNull();
+    assertThat(TableNameParser.parse("call next_id(?) -- from nothing")).isNull();
+  }
+
+  @Test
+  void shouldSplitDeclaredTables() {
+    assertThat(TableNameParser.split(" Blog, post ,,blog")).containsExactly("blog", "post");
+  }
+
+}
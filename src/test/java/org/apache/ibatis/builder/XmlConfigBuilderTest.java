@@ -29,6 +29,8 @@ import java.util.Properties;
 import org.apache.ibatis.builder.mapper.CustomMapper;
 import org.apache.ibatis.builder.typehandler.CustomIntegerTypeHandler;
 import org.apache.ibatis.builder.xml.XMLConfigBuilder;
+import org.apache.ibatis.cache.invalidation.FileCacheInvalidationBus;
+import org.apache.ibatis.cache.invalidation.InJvmCacheInvalidationBus;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
 import org.apache.ibatis.domain.blog.Author;
 import org.apache.ibatis.domain.blog.Blog;
@@ -302,4 +304,47 @@ class XmlConfigBuilderTest {
       .hasMessageContaining("The properties element cannot specify both a URL and a resource based property file reference.  Please specify one or the other.");
   }
 
+  @Test
+  void shouldConfigureCacheInvalidationBusFromElement() throws Exception {
+    final String MAPPER_CONFIG = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+            + "<!DOCTYPE configuration PUBLIC \"-//mybatis.org//DTD Config 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-config.dtd\">\n"
+            + "<configuration>\n"
+            + "  <cacheInvalidationBus type=\"FILE_BUS\">\n"
+            + "    <property name=\"file\" value=\"app-invalidations.log\"/>\n"
+            + "    <property name=\"pollInterval\" value=\"500\"/>\n"
+            + "  </cacheInvalidationBus>\n"
+            + "</configuration>\n";
+
+    Configuration config = new XMLConfigBuilder(new StringReader(MAPPER_CONFIG)).parse();
+    FileCacheInvalidationBus bus = (FileCacheInvalidationBus) config.getCacheInvalidationBus();
+    try {
+      assertThat(bus.getFile()).isEqualTo("app-invalidations.log");
+      assertThat(bus.getPollInterval()).isEqualTo(500);
+    } finally {
+      bus.close();
+    }
+  }
+
+  @Test
+  void shouldPreferCacheInvalidationBusElementOverSetting() throws Exception {
+    final String MAPPER_CONFIG = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+            + "<!DOCTYPE configuration PUBLIC \"-//mybatis.org//DTD Config 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-config.dtd\">\n"
+            + "<configuration>\n"
+            + "  <settings>\n"
+            + "    <setting name=\"cacheInvalidationBus\" value=\"FILE_BUS\"/>\n"
+            + "  </settings>\n"
+            + "  <cacheInvalidationBus type=\"IN_JVM_BUS\">\n"
+            + "    <property name=\"channel\" value=\"orders\"/>\n"
+            + "  </cacheInvalidationBus>\n"
+            + "</configuration>\n";
+
+    Configuration config = new XMLConfigBuilder(new StringReader(MAPPER_CONFIG)).parse();
+    InJvmCacheInvalidationBus bus = (InJvmCacheInvalidationBus) config.getCacheInvalidationBus();
+    try {
+      assertThat(bus.getChannel()).isEqualTo("orders");
+    } finally {
+      bus.close();
+    }
+  }
+
 }
@@ -0,0 +1,91 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class BlockingCacheTest {
+
+  @Test
+  void shouldHandLoadedValueToWaitingThreads() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    assertNull(cache.getObject("key"));
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      Future<?> first = executor.submit(() -> cache.getObject("key"));
+      Future<?> second = executor.submit(() -> cache.getObject("key"));
+      Thread.sleep(100);
+      assertFalse(first.isDone());
+      assertFalse(second.isDone());
+      cache.putObject("key", "value");
+      assertEquals("value", first.get());
+      assertEquals("value", second.get());
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(2, cache.getCoalescedCount());
+  }
+
+  @Test
+  void shouldLetWaitingThreadLoadAfterRollback() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    assertNull(cache.getObject("key"));
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> waiting = executor.submit(() -> cache.getObject("key"));
+      Thread.sleep(100);
+      assertFalse(waiting.isDone());
+      cache.removeObject("key");
+      assertNull(waiting.get());
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(0, cache.getCoalescedCount());
+  }
+
+  @Test
+  void shouldNotBlockTheLoadingThread() {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    assertNull(cache.getObject("key"));
+    assertNull(cache.getObject("key"));
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+  }
+
+  @Test
+  void shouldFailAfterTimeout() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    cache.setTimeout(50);
+    assertNull(cache.getObject("key"));
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> waiting = executor.submit(() -> cache.getObject("key"));
+      Exception e = assertThrows(Exception.class, waiting::get);
+      assertTrue(e.getCause() instanceof CacheException);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}
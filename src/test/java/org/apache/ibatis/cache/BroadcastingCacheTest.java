@@ -0,0 +1,186 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.decorators.BroadcastingCache;
+import org.apache.ibatis.cache.decorators.TaggedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.invalidation.CacheInvalidation;
+import org.apache.ibatis.cache.invalidation.FileCacheInvalidationBus;
+import org.apache.ibatis.cache.invalidation.InJvmCacheInvalidationBus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BroadcastingCacheTest {
+
+  @Test
+  void shouldClearOtherNodesThroughInJvmBus() {
+    InJvmCacheInvalidationBus bus1 = new InJvmCacheInvalidationBus("clear");
+    InJvmCacheInvalidationBus bus2 = new InJvmCacheInvalidationBus("clear");
+    try {
+      Cache node1 = new BroadcastingCache(new PerpetualCache("ns"), bus1);
+      Cache node2 = new BroadcastingCache(new PerpetualCache("ns"), bus2);
+      Cache other = new BroadcastingCache(new PerpetualCache("other"), bus2);
+      node1.putObject("a", 1);
+      node2.putObject("a", 1);
+      other.putObject("a", 1);
+
+      node1.clear();
+      assertNull(node2.getObject("a"));
+      assertEquals(1, other.getObject("a"));
+    } finally {
+      bus1.close();
+      bus2.close();
+    }
+  }
+
+  @Test
+  void shouldRemoveTaggedEntriesOfOtherNodesThroughInJvmBus() {
+    InJvmCacheInvalidationBus bus1 = new InJvmCacheInvalidationBus("tags");
+    InJvmCacheInvalidationBus bus2 = new InJvmCacheInvalidationBus("tags");
+    try {
+      Cache node1 = new BroadcastingCache(new TaggedCache(new PerpetualCache("ns")), bus1);
+      Cache node2 = new BroadcastingCache(new TaggedCache(new PerpetualCache("ns")), bus2);
+      node2.putObject(taggedKey("author"), 1);
+      node2.putObject(taggedKey("blog"), 2);
+
+      node1.removeTagged(Collections.singleton("author"));
+      assertNull(node2.getObject(taggedKey("author")));
+      assertEquals(2, node2.getObject(taggedKey("blog")));
+    } finally {
+      bus1.close();
+      bus2.close();
+    }
+  }
+
+  @Test
+  void shouldApplyInvalidationsWrittenToFile(@TempDir Path dir) {
+    String file = dir.resolve("invalidations.log").toString();
+    FileCacheInvalidationBus bus1 = new FileCacheInvalidationBus(file);
+    FileCacheInvalidationBus bus2 = new FileCacheInvalidationBus(file);
+    bus1.setPollInterval(60000);
+    bus2.setPollInterval(60000);
+    try {
+      Cache node1 = new BroadcastingCache(new PerpetualCache("ns"), bus1);
+      Cache node2 = new BroadcastingCache(new PerpetualCache("ns"), bus2);
+      node1.putObject("a", 1);
+      node2.putObject("a", 1);
+
+      node1.clear();
+      bus1.poll();
+      assertNull(node1.getObject("a"));
+      assertEquals(1, node2.getObject("a"));
+      bus2.poll();
+      assertNull(node2.getObject("a"));
+
+      node2.putObject("a", 1);
+      bus2.poll();
+      assertEquals(1, node2.getObject("a"));
+    } finally {
+      bus1.close();
+      bus2.close();
+    }
+  }
+
+  @Test
+  void shouldReadInvalidationsAcrossRotatedFiles(@TempDir Path dir) throws Exception {
+    Path file = dir.resolve("invalidations.log");
+    FileCacheInvalidationBus bus1 = new FileCacheInvalidationBus(file.toString());
+    FileCacheInvalidationBus bus2 = new FileCacheInvalidationBus(file.toString());
+    bus1.setPollInterval(60000);
+    bus2.setPollInterval(60000);
+    // every write after the first one rotates the file
+    bus1.setMaxFileSize(1);
+    try {
+      Cache node1 = new BroadcastingCache(new TaggedCache(new PerpetualCache("ns")), bus1);
+      Cache node2 = new BroadcastingCache(new TaggedCache(new PerpetualCache("ns")), bus2);
+      node2.putObject(taggedKey("author"), 1);
+      node2.putObject(taggedKey("blog"), 2);
+      node2.putObject(taggedKey("post"), 3);
+
+      node1.removeTagged(Collections.singleton("author"));
+      bus2.poll();
+      assertNull(node2.getObject(taggedKey("author")));
+      assertEquals(2, node2.getObject(taggedKey("blog")));
+
+      node1.removeTagged(Collections.singleton("blog"));
+      assertTrue(Files.exists(dir.resolve("invalidations.log.1")));
+      bus2.poll();
+      assertNull(node2.getObject(taggedKey("blog")));
+      assertEquals(3, node2.getObject(taggedKey("post")));
+
+      node1.removeTagged(Collections.singleton("post"));
+      bus2.poll();
+      assertNull(node2.getObject(taggedKey("post")));
+      assertTrue(Files.size(file) < 100);
+    } finally {
+      bus1.close();
+      bus2.close();
+    }
+  }
+
+  @Test
+  void shouldPublishFromSeveralThreadsToOneFile(@TempDir Path dir) throws Exception {
+    String file = dir.resolve("invalidations.log").toString();
+    FileCacheInvalidationBus bus1 = new FileCacheInvalidationBus(file);
+    FileCacheInvalidationBus bus2 = new FileCacheInvalidationBus(file);
+    FileCacheInvalidationBus receiver = new FileCacheInvalidationBus(file);
+    receiver.setPollInterval(60000);
+    AtomicInteger received = new AtomicInteger();
+    receiver.subscribe("ns", invalidation -> received.incrementAndGet());
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        FileCacheInvalidationBus bus = t % 2 == 0 ? bus1 : bus2;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 50; i++) {
+            bus.publish(CacheInvalidation.clear("ns"));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      receiver.poll();
+      assertEquals(400, received.get());
+    } finally {
+      executor.shutdown();
+      bus1.close();
+      bus2.close();
+      receiver.close();
+    }
+  }
+
+  private static CacheKey taggedKey(String table) {
+    CacheKey key = new CacheKey(new Object[] {table});
+    key.setTags(new String[] {table});
+    return key;
+  }
+
+}
@@ -0,0 +1,126 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.copier.BinaryCopier;
+import org.apache.ibatis.cache.copier.CacheCopier;
+import org.apache.ibatis.cache.copier.ReflectiveCopier;
+import org.apache.ibatis.cache.decorators.CopyingCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.domain.blog.ImmutableAuthor;
+import org.apache.ibatis.domain.blog.Post;
+import org.apache.ibatis.domain.blog.Section;
+import org.junit.jupiter.api.Test;
+
+class CacheCopierTest {
+
+  @Test
+  void shouldDeepCopyBeansWithReflectiveCopier() {
+    shouldDeepCopyBeans(new ReflectiveCopier());
+  }
+
+  @Test
+  void shouldDeepCopyBeansWithBinaryCopier() {
+    shouldDeepCopyBeans(new BinaryCopier());
+  }
+
+  @Test
+  void shouldCopyJdbcValuesAndContainersWithReflectiveCopier() {
+    shouldCopyJdbcValuesAndContainers(new ReflectiveCopier());
+  }
+
+  @Test
+  void shouldCopyJdbcValuesAndContainersWithBinaryCopier() {
+    shouldCopyJdbcValuesAndContainers(new BinaryCopier());
+  }
+
+  @Test
+  void shouldFallBackToSerializationWithReflectiveCopier() {
+    shouldFallBackToSerializationWithoutDefaultConstructor(new ReflectiveCopier());
+  }
+
+  @Test
+  void shouldFallBackToSerializationWithBinaryCopier() {
+    shouldFallBackToSerializationWithoutDefaultConstructor(new BinaryCopier());
+  }
+
+  private void shouldDeepCopyBeans(CacheCopier copier) {
+    Cache cache = new CopyingCache(new PerpetualCache("default"), copier);
+    Author author = new Author(101, "jim", "********", "jim@ibatis.apache.org", "", Section.NEWS);
+    Blog blog = new Blog(1, "Blog", author, new ArrayList<>());
+    Post post = new Post();
+    post.setId(1);
+    post.setBlog(blog);
+    post.setAuthor(author);
+    post.setCreatedOn(new Timestamp(1000L));
+    blog.getPosts().add(post);
+    cache.putObject("key", Collections.singletonList(blog));
+
+    // 修改原对象不影响缓存中的数据
+    author.setUsername("changed");
+
+    @SuppressWarnings("unchecked")
+    List<Blog> copy = (List<Blog>) cache.getObject("key");
+    Blog copiedBlog = copy.get(0);
+    assertNotSame(blog, copiedBlog);
+    assertEquals("jim", copiedBlog.getAuthor().getUsername());
+    assertEquals(Section.NEWS, copiedBlog.getAuthor().getFavouriteSection());
+    Post copiedPost = copiedBlog.getPosts().get(0);
+    assertSame(copiedBlog, copiedPost.getBlog());
+    assertSame(copiedBlog.getAuthor(), copiedPost.getAuthor());
+    assertEquals(new Timestamp(1000L), copiedPost.getCreatedOn());
+    assertNotSame(copy, cache.getObject("key"));
+  }
+
+  private void shouldCopyJdbcValuesAndContainers(CacheCopier copier) {
+    Map<String, Object> row = new HashMap<>();
+    row.put("id", 1L);
+    row.put("price", new BigDecimal("12.50"));
+    row.put("data", new byte[] { 1, 2, 3 });
+    row.put("flags", new int[] { 4, 5 });
+    row.put("names", Arrays.asList("a", "b"));
+    Object copy = copier.copyFromCache(copier.copyForCache(row));
+    @SuppressWarnings("unchecked")
+    Map<String, Object> copiedRow = (Map<String, Object>) copy;
+    assertNotSame(row, copiedRow);
+    assertEquals(1L, copiedRow.get("id"));
+    assertEquals(new BigDecimal("12.50"), copiedRow.get("price"));
+    assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) copiedRow.get("data"));
+    assertArrayEquals(new int[] { 4, 5 }, (int[]) copiedRow.get("flags"));
+    assertEquals(Arrays.asList("a", "b"), copiedRow.get("names"));
+  }
+
+  private void shouldFallBackToSerializationWithoutDefaultConstructor(CacheCopier copier) {
+    ImmutableAuthor author = new ImmutableAuthor(1, "jim", "***", "jim@ibatis.apache.org", "", Section.NEWS);
+    ImmutableAuthor copy = (ImmutableAuthor) copier.copyFromCache(copier.copyForCache(author));
+    assertNotSame(author, copy);
+    assertEquals("jim", copy.getUsername());
+  }
+
+}
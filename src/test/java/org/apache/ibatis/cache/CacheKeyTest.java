@@ -87,6 +87,21 @@ class CacheKeyTest {
     assertEquals(key1, key2);
   }
 
+  @Test
+  void shouldTestCacheKeyBuiltFromPrefixEqualsFullKey() {
+    CacheKey prefix = new CacheKey(new Object[] { "statement", "select * from table" });
+    CacheKey key1 = new CacheKey(prefix, 4);
+    key1.update(1);
+    key1.update("hello");
+    CacheKey key2 = new CacheKey(new Object[] { "statement", "select * from table", 1, "hello" });
+    assertEquals(key1, key2);
+    assertEquals(key2, key1);
+    assertEquals(key1.hashCode(), key2.hashCode());
+    assertEquals(key1.toString(), key2.toString());
+    assertEquals(2, prefix.getUpdateCount());
+    assertEquals(4, key1.getUpdateCount());
+  }
+
   @Test
   void serializationExceptionTest() {
     CacheKey cacheKey = new CacheKey();
@@ -0,0 +1,151 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.cache.impl.ConcurrentLfuCache;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentLfuCacheTest {
+
+  @Test
+  void shouldNotGrowBeyondSize() {
+    ConcurrentLfuCache cache = new ConcurrentLfuCache("default");
+    cache.setSize(5);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(5, cache.getSize());
+  }
+
+  @Test
+  void shouldKeepFrequentlyUsedItems() {
+    ConcurrentLfuCache cache = new ConcurrentLfuCache("default");
+    cache.setSize(5);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    for (int n = 0; n < 3; n++) {
+      for (int i = 0; i < 5; i++) {
+        assertEquals(i, cache.getObject(i));
+      }
+    }
+    for (int i = 5; i < 20; i++) {
+      cache.putObject(i, i);
+    }
+    for (int i = 0; i < 5; i++) {
+      assertEquals(i, cache.getObject(i));
+    }
+    assertEquals(5, cache.getSize());
+  }
+
+  @Test
+  void shouldRemoveItemOnDemand() {
+    Cache cache = new ConcurrentLfuCache("default");
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  void shouldTreatNullValueAsRemoval() {
+    Cache cache = new ConcurrentLfuCache("default");
+    cache.putObject(0, 0);
+    cache.putObject(0, null);
+    assertNull(cache.getObject(0));
+    cache.putObject(1, null);
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldNotQueueKeysTwiceWhenRemovedAndPutAgain() throws Exception {
+    ConcurrentLfuCache cache = new ConcurrentLfuCache("default");
+    cache.setSize(5);
+    for (int n = 0; n < 100; n++) {
+      cache.putObject(0, n);
+      cache.removeObject(0);
+    }
+    cache.putObject(0, 0);
+    assertEquals(1, queuedKeys(cache).size());
+  }
+
+  @Test
+  void shouldPurgeRemovedKeysFromQueue() throws Exception {
+    ConcurrentLfuCache cache = new ConcurrentLfuCache("default");
+    cache.setSize(5);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+      cache.removeObject(i);
+    }
+    assertEquals(0, cache.getSize());
+    assertTrue(queuedKeys(cache).size() <= 11);
+  }
+
+  @Test
+  void shouldFlushAllItemsOnDemand() {
+    Cache cache = new ConcurrentLfuCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+  }
+
+  @Test
+  void shouldStayBoundedUnderConcurrentAccess() throws Exception {
+    ConcurrentLfuCache cache = new ConcurrentLfuCache("default");
+    cache.setSize(100);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        final int offset = t * 1000;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 1000; i++) {
+            cache.putObject(offset + i, i);
+            cache.getObject(offset + i / 2);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertTrue(cache.getSize() <= 100);
+  }
+
+  private static Collection<?> queuedKeys(ConcurrentLfuCache cache) throws Exception {
+    Field field = ConcurrentLfuCache.class.getDeclaredField("keyQueue");
+    field.setAccessible(true);
+    return (Collection<?>) field.get(cache);
+  }
+
+}
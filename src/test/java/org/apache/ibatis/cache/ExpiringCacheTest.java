@@ -0,0 +1,160 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.TaggedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class ExpiringCacheTest {
+
+  @Test
+  void shouldExpireEachEntryOnItsOwn() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.setTimeToLive(100);
+    cache.putObject("a", "a");
+    Thread.sleep(60);
+    cache.putObject("b", "b");
+    Thread.sleep(60);
+    assertNull(cache.getObject("a"));
+    assertEquals("b", cache.getObject("b"));
+  }
+
+  @Test
+  void shouldPurgeExpiredEntriesWithoutReadingThem() throws Exception {
+    PerpetualCache delegate = new PerpetualCache("default");
+    ExpiringCache cache = new ExpiringCache(delegate);
+    cache.setTimeToLive(10);
+    for (int i = 0; i < 10; i++) {
+      cache.putObject(i, i);
+    }
+    cache.putObject("never", null);
+    Thread.sleep(1100);
+    assertEquals(1, cache.getSize());
+    assertEquals(1, delegate.getSize());
+  }
+
+  @Test
+  void shouldServeStaleValueWhileRefreshing() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.setTimeToLive(60000);
+    cache.setRefreshAhead(60000);
+    CountDownLatch release = new CountDownLatch(1);
+    CacheKey key = new CacheKey(new Object[] {"key"});
+    key.setLoader(() -> {
+      release.await();
+      return "fresh";
+    });
+    cache.putObject(key, "stale");
+    assertEquals("stale", cache.getObject(key));
+    assertEquals("stale", cache.getObject(key));
+    release.countDown();
+    assertEquals("fresh", awaitValue(cache, key, "fresh"));
+  }
+
+  @Test
+  void shouldDropRefreshStartedBeforeClear() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.setTimeToLive(60000);
+    cache.setRefreshAhead(60000);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch finished = new CountDownLatch(1);
+    CacheKey key = new CacheKey(new Object[] {"key"});
+    key.setLoader(() -> {
+      started.countDown();
+      release.await();
+      finished.countDown();
+      return "fresh";
+    });
+    cache.putObject(key, "stale");
+    assertEquals("stale", cache.getObject(key));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    cache.clear();
+    release.countDown();
+    assertTrue(finished.await(5, TimeUnit.SECONDS));
+    Thread.sleep(50);
+    assertNull(cache.getObject(key));
+  }
+
+  @Test
+  void shouldServeExpiredValueDuringGracePeriod() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.setTimeToLive(10);
+    cache.setStaleWhileRevalidate(60000);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger loads = new AtomicInteger();
+    CacheKey key = new CacheKey(new Object[] {"key"});
+    key.setLoader(() -> {
+      loads.incrementAndGet();
+      started.countDown();
+      release.await();
+      return "fresh";
+    });
+    cache.putObject(key, "stale");
+    cache.putObject("noLoader", "value");
+    Thread.sleep(50);
+    assertNull(cache.getObject("noLoader"));
+    assertEquals("stale", cache.getObject(key));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    assertEquals("stale", cache.getObject(key));
+    assertEquals(1, loads.get());
+    release.countDown();
+    assertEquals("fresh", awaitValue(cache, key, "fresh"));
+  }
+
+  @Test
+  void shouldServeFlushedValueDuringGracePeriod() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new TaggedCache(new PerpetualCache("default")));
+    cache.setTimeToLive(0);
+    cache.setStaleWhileRevalidate(60000);
+    CacheKey key = new CacheKey(new Object[] {"key"});
+    key.setLoader(() -> "fresh");
+    CacheKey otherTable = new CacheKey(new Object[] {"other"});
+    otherTable.setTags(new String[] {"other"});
+    cache.putObject(key, "stale");
+    cache.putObject(otherTable, "other");
+    cache.putObject("noLoader", "value");
+    cache.removeTagged(Collections.singleton("person"));
+    assertNull(cache.getObject("noLoader"));
+    assertEquals("other", cache.getObject(otherTable));
+    assertEquals("stale", cache.getObject(key));
+    assertEquals("fresh", awaitValue(cache, key, "fresh"));
+    cache.clear();
+    assertEquals("fresh", cache.getObject(key));
+    assertNull(cache.getObject(otherTable));
+  }
+
+  private Object awaitValue(Cache cache, Object key, Object expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    Object value = cache.getObject(key);
+    while (!expected.equals(value) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+      value = cache.getObject(key);
+    }
+    return value;
+  }
+
+}
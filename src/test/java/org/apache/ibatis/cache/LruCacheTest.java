@@ -15,6 +15,9 @@
  */
 package org.apache.ibatis.cache;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import static org.junit.jupiter.api.Assertions.*;
@@ -57,4 +60,18 @@ class LruCacheTest {
     assertNull(cache.getObject(4));
   }
 
-}
\ No newline at end of file
+  @Test
+  void shouldRemoveLeastRecentlyUsedItemsOnBulkPut() {
+    LruCache cache = new LruCache(new PerpetualCache("default"));
+    cache.setSize(5);
+    Map<Object, Object> entries = new LinkedHashMap<>();
+    for (int i = 0; i < 8; i++) {
+      entries.put(i, i);
+    }
+    cache.putAll(entries);
+    assertEquals(5, cache.getSize());
+    assertNull(cache.getObject(0));
+    assertEquals(7, cache.getObject(7));
+  }
+
+}
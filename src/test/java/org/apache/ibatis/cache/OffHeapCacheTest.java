@@ -0,0 +1,117 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OffHeapCacheTest {
+
+  @Test
+  void shouldReturnCopiesOfStoredValues() {
+    OffHeapCache cache = new OffHeapCache("default");
+    List<String> value = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      value.add("row " + i);
+    }
+    cache.putObject("key", value);
+    Object copy = cache.getObject("key");
+    assertEquals(value, copy);
+    assertNotSame(value, copy);
+    assertEquals(1, cache.getSize());
+    assertTrue(cache.getUsedBytes() > 0);
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedEntriesByBytes() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setMaxBytes(4096);
+    cache.setBlockSize(256);
+    cache.setSlabSize(1024);
+    cache.initialize();
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, "value " + i);
+      assertEquals("value " + i, cache.getObject(i));
+    }
+    assertTrue(cache.getSize() <= 16);
+    assertTrue(cache.getUsedBytes() <= 4096);
+    assertNull(cache.getObject(0));
+    assertEquals("value 99", cache.getObject(99));
+  }
+
+  @Test
+  void shouldNotStoreValuesLargerThanCapacity() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setMaxBytes(1024);
+    cache.setBlockSize(256);
+    cache.setSlabSize(1024);
+    cache.putObject("key", new byte[4096]);
+    assertNull(cache.getObject("key"));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldRemoveItemOnDemand() {
+    Cache cache = new OffHeapCache("default");
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  void shouldFlushAllItemsOnDemand() {
+    OffHeapCache cache = new OffHeapCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    assertEquals(0, cache.getUsedBytes());
+  }
+
+  @Test
+  void shouldStoreValuesInMappedFile(@TempDir Path dir) {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setFile(dir.resolve("cache.bin").toString());
+    cache.setMaxBytes(64 * 1024);
+    cache.setSlabSize(16 * 1024);
+    cache.initialize();
+    for (int i = 0; i < 10; i++) {
+      cache.putObject(i, "value " + i);
+    }
+    for (int i = 0; i < 10; i++) {
+      assertEquals("value " + i, cache.getObject(i));
+    }
+  }
+
+  @Test
+  void shouldRejectNonSerializableValues() {
+    Cache cache = new OffHeapCache("default");
+    assertThrows(CacheException.class, () -> cache.putObject("key", new Object()));
+  }
+
+}
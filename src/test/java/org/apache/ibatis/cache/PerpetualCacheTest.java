@@ -15,6 +15,10 @@
  */
 package org.apache.ibatis.cache;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.apache.ibatis.cache.decorators.SerializedCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
@@ -68,4 +72,19 @@ class PerpetualCacheTest {
     assertNull(cache.getObject(4));
   }
 
-}
\ No newline at end of file
+  @Test
+  void shouldPutGetAndRemoveInBulk() {
+    Cache cache = new SynchronizedCache(new PerpetualCache("default"));
+    Map<Object, Object> entries = new HashMap<>();
+    for (int i = 0; i < 5; i++) {
+      entries.put(i, i);
+    }
+    cache.putAll(entries);
+    assertEquals(5, cache.getSize());
+    assertEquals(entries, cache.getAll(Arrays.asList(0, 1, 2, 3, 4, 5)));
+    cache.removeAll(Arrays.asList(0, 1));
+    assertNull(cache.getObject(0));
+    assertEquals(3, cache.getSize());
+  }
+
+}
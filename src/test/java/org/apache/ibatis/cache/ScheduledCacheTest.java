@@ -15,8 +15,17 @@
  */
 package org.apache.ibatis.cache;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
+import org.apache.ibatis.cache.impl.ConcurrentLfuCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.Test;
@@ -65,4 +74,41 @@ class ScheduledCacheTest {
     assertNull(cache.getObject(4));
   }
 
-}
\ No newline at end of file
+  @Test
+  void shouldClearOnceWhenAccessedConcurrently() throws Exception {
+    AtomicInteger clears = new AtomicInteger();
+    Cache cache = new ConcurrentLfuCache("DefaultCache") {
+      @Override
+      public void clear() {
+        clears.incrementAndGet();
+        super.clear();
+      }
+    };
+    cache = new ScheduledCache(cache);
+    ((ScheduledCache) cache).setClearInterval(100);
+    cache = new LoggingCache(cache);
+    cache.putObject(0, 0);
+    Thread.sleep(200);
+    Cache scheduled = cache;
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          return scheduled.getObject(0);
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(1, clears.get());
+    assertNull(cache.getObject(0));
+  }
+
+}
@@ -0,0 +1,101 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.cache.decorators.EvictionCountingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.StatisticsCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.stats.CacheStatistics;
+import org.apache.ibatis.cache.stats.CacheStatisticsRegistry;
+import org.junit.jupiter.api.Test;
+
+class StatisticsCacheTest {
+
+  @Test
+  void shouldCountHitsMissesAndPuts() {
+    StatisticsCache cache = newCache(10);
+    cache.putObject(1, "a");
+    cache.putObject(2, null);
+    assertEquals("a", cache.getObject(1));
+    assertNull(cache.getObject(2));
+    assertEquals(1, cache.getAll(Arrays.asList(1, 3)).size());
+    cache.recordLoad(100);
+    cache.recordLoad(300);
+
+    CacheStatistics statistics = cache.getStatistics();
+    assertEquals(2, statistics.getHitCount());
+    assertEquals(2, statistics.getMissCount());
+    assertEquals(0.5, statistics.getHitRatio());
+    assertEquals(1, statistics.getPutCount());
+    assertEquals(2, statistics.getLoadCount());
+    assertEquals(200.0, statistics.getAverageLoadPenalty());
+  }
+
+  @Test
+  void shouldCountEvictionsButNotRequestedRemovals() {
+    StatisticsCache cache = newCache(5);
+    for (int i = 0; i < 8; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(3, cache.getStatistics().getEvictionCount());
+    assertEquals(5, cache.getStatistics().getSize());
+
+    cache.removeObject(7);
+    cache.removeTagged(Collections.singleton("table"));
+    cache.clear();
+    assertEquals(3, cache.getStatistics().getEvictionCount());
+    assertEquals(0, cache.getStatistics().getSize());
+  }
+
+  @Test
+  void shouldPublishStatisticsAsMBeans() throws Exception {
+    StatisticsCache cache = newCache(10);
+    cache.getObject(1);
+    CacheStatisticsRegistry registry = new CacheStatisticsRegistry();
+    registry.register(cache);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    registry.registerMBeans(server, "test");
+    try {
+      ObjectName name = new ObjectName("org.apache.ibatis:type=CacheStatistics,registry=\"test\",name=\"default\"");
+      assertEquals(1L, server.getAttribute(name, "MissCount"));
+      assertEquals(1L, registry.getStatistics("default").getMissCount());
+    } finally {
+      registry.unregisterMBeans();
+    }
+    assertTrue(server.queryNames(new ObjectName("org.apache.ibatis:type=CacheStatistics,registry=\"test\",*"), null)
+        .isEmpty());
+  }
+
+  private StatisticsCache newCache(int size) {
+    EvictionCountingCache base = new EvictionCountingCache(new PerpetualCache("default"));
+    LruCache lru = new LruCache(base);
+    lru.setSize(size);
+    StatisticsCache cache = new StatisticsCache(lru);
+    cache.setEvictionCounting(base);
+    return cache;
+  }
+
+}
@@ -0,0 +1,129 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Collections;
+
+import org.apache.ibatis.cache.decorators.FifoCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.TaggedCache;
+import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class TaggedCacheTest {
+
+  @Test
+  void shouldRemoveOnlyEntriesDependingOnTags() {
+    Cache cache = new LruCache(new TaggedCache(new PerpetualCache("default")));
+    CacheKey blogs = key("blogs", "blog");
+    CacheKey posts = key("posts", "post", "blog");
+    CacheKey authors = key("authors", "author");
+    CacheKey unknown = key("unknown");
+    cache.putObject(blogs, "blogs");
+    cache.putObject(posts, "posts");
+    cache.putObject(authors, "authors");
+    cache.putObject(unknown, "unknown");
+    cache.putObject("plain", "plain");
+
+    cache.removeTagged(Collections.singleton("blog"));
+    assertNull(cache.getObject(blogs));
+    assertNull(cache.getObject(posts));
+    assertNull(cache.getObject(unknown));
+    assertNull(cache.getObject("plain"));
+    assertEquals("authors", cache.getObject(authors));
+  }
+
+  @Test
+  void shouldForgetTaggedKeysInLruCache() {
+    LruCache cache = new LruCache(new TaggedCache(new PerpetualCache("default")));
+    cache.setSize(3);
+    shouldForgetTaggedKeys(cache);
+  }
+
+  @Test
+  void shouldForgetTaggedKeysInFifoCache() {
+    FifoCache cache = new FifoCache(new TaggedCache(new PerpetualCache("default")));
+    cache.setSize(3);
+    shouldForgetTaggedKeys(cache);
+  }
+
+  private void shouldForgetTaggedKeys(Cache cache) {
+    CacheKey authors = key("authors", "author");
+    cache.putObject(authors, "authors");
+    cache.putObject(key("blogs", "blog"), "blogs");
+    cache.putObject(key("posts", "blog"), "posts");
+    cache.removeTagged(Collections.singleton("blog"));
+
+    // 被删除的 key 仍然占位时，这里会淘汰 authors
+    cache.putObject(key("comments", "comment"), "comments");
+    assertEquals("authors", cache.getObject(authors));
+    assertEquals(2, cache.getSize());
+  }
+
+  @Test
+  void shouldForgetWeightsOfTaggedKeys() {
+    WeightedCache cache = new WeightedCache(new TaggedCache(new PerpetualCache("default")));
+    cache.setWeigher((key, value) -> 10);
+    cache.putObject(key("authors", "author"), "authors");
+    cache.putObject(key("blogs", "blog"), "blogs");
+    cache.removeTagged(Collections.singleton("blog"));
+    assertEquals(10, cache.getWeightedSize());
+  }
+
+  @Test
+  void shouldClearWhenCacheDoesNotIndexTags() {
+    Cache cache = new PerpetualCache("default");
+    cache.putObject(key("authors", "author"), "authors");
+    cache.removeTagged(Collections.singleton("blog"));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldRemoveTaggedEntriesOnCommit() {
+    Cache delegate = new TaggedCache(new PerpetualCache("default"));
+    CacheKey blogs = key("blogs", "blog");
+    CacheKey authors = key("authors", "author");
+    delegate.putObject(blogs, "blogs");
+    delegate.putObject(authors, "authors");
+
+    TransactionalCache cache = new TransactionalCache(delegate);
+    CacheKey pending = key("pending", "blog");
+    cache.putObject(pending, "pending");
+    cache.removeTagged(Collections.singleton("blog"));
+    assertNull(cache.getObject(blogs));
+    assertEquals("authors", cache.getObject(authors));
+    assertEquals("blogs", delegate.getObject(blogs));
+
+    CacheKey reloaded = key("reloaded", "blog");
+    cache.putObject(reloaded, "reloaded");
+    cache.commit();
+    assertNull(delegate.getObject(blogs));
+    assertNull(delegate.getObject(pending));
+    assertEquals("authors", delegate.getObject(authors));
+    assertEquals("reloaded", delegate.getObject(reloaded));
+  }
+
+  private CacheKey key(String name, String... tags) {
+    CacheKey key = new CacheKey(new Object[] {name});
+    key.setTags(tags.length == 0 ? null : tags);
+    return key;
+  }
+
+}
@@ -0,0 +1,85 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class TransactionalCacheTest {
+
+  @Test
+  void shouldPublishEntriesInOneBulkPutOnCommit() {
+    CountingCache delegate = new CountingCache();
+    TransactionalCache cache = new TransactionalCache(delegate);
+    assertNull(cache.getObject("missed"));
+    for (int i = 0; i < 10; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(0, delegate.getSize());
+    cache.commit();
+    assertEquals(1, delegate.bulkPuts);
+    assertEquals(0, delegate.singlePuts);
+    assertEquals(5, delegate.getObject(5));
+    assertNull(delegate.getObject("missed"));
+  }
+
+  @Test
+  void shouldReleaseMissedEntriesInBulkOnRollback() {
+    CountingCache delegate = new CountingCache();
+    TransactionalCache cache = new TransactionalCache(delegate);
+    cache.getObject("a");
+    cache.getObject("b");
+    cache.putObject("a", "value");
+    cache.rollback();
+    assertEquals(1, delegate.bulkRemoves);
+    assertEquals(0, delegate.getSize());
+  }
+
+  private static class CountingCache extends PerpetualCache {
+    private int singlePuts;
+    private int bulkPuts;
+    private int bulkRemoves;
+
+    CountingCache() {
+      super("default");
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+      singlePuts++;
+      super.putObject(key, value);
+    }
+
+    @Override
+    public void putAll(Map<?, ?> entries) {
+      bulkPuts++;
+      super.putAll(entries);
+    }
+
+    @Override
+    public void removeAll(Collection<?> keys) {
+      bulkRemoves++;
+      super.removeAll(keys);
+    }
+  }
+
+}
@@ -0,0 +1,127 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.ConcurrentLfuCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.weigher.ObjectSizeWeigher;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.junit.jupiter.api.Test;
+
+class WeightedCacheTest {
+
+  @Test
+  void shouldEvictLeastRecentlyUsedEntriesOverBudget() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setWeigher((key, value) -> ((byte[]) value).length);
+    cache.setMaxBytes(100);
+    cache.putObject(0, new byte[40]);
+    cache.putObject(1, new byte[40]);
+    assertNotNull(cache.getObject(0));
+    cache.putObject(2, new byte[40]);
+    assertNotNull(cache.getObject(0));
+    assertNull(cache.getObject(1));
+    assertNotNull(cache.getObject(2));
+    assertEquals(80, cache.getWeightedSize());
+  }
+
+  @Test
+  void shouldNotKeepEntryHeavierThanBudget() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setWeigher((key, value) -> ((byte[]) value).length);
+    cache.setMaxBytes(100);
+    cache.putObject(0, new byte[10]);
+    cache.putObject(1, new byte[200]);
+    assertNull(cache.getObject(1));
+    assertEquals(0, cache.getSize());
+    assertEquals(0, cache.getWeightedSize());
+  }
+
+  @Test
+  void shouldTrackWeightOnReplaceAndRemove() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setWeigher((key, value) -> ((byte[]) value).length);
+    cache.putObject(0, new byte[10]);
+    cache.putObject(0, new byte[30]);
+    assertEquals(30, cache.getWeightedSize());
+    cache.putObject(1, null);
+    assertEquals(30, cache.getWeightedSize());
+    cache.removeObject(0);
+    assertEquals(0, cache.getWeightedSize());
+    cache.putObject(2, new byte[5]);
+    cache.clear();
+    assertEquals(0, cache.getWeightedSize());
+  }
+
+  @Test
+  void shouldReleaseWeightOfEntriesEvictedAbove() {
+    WeightedCache weightedCache = new WeightedCache(new PerpetualCache("default"));
+    weightedCache.setWeigher((key, value) -> ((byte[]) value).length);
+    weightedCache.setMaxBytes(100);
+    LruCache cache = new LruCache(weightedCache);
+    cache.setSize(2);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, new byte[10]);
+    }
+    assertEquals(2, cache.getSize());
+    assertEquals(20, weightedCache.getWeightedSize());
+  }
+
+  @Test
+  void shouldForgetEntriesEvictedBelow() {
+    ConcurrentLfuCache delegate = new ConcurrentLfuCache("default");
+    delegate.setSize(10);
+    WeightedCache cache = new WeightedCache(delegate);
+    cache.setWeigher((key, value) -> 1);
+    for (int i = 0; i < 5000; i++) {
+      cache.putObject(i, i);
+    }
+    assertTrue(cache.getWeightedSize() <= 2 * 10 + 1024 + 1);
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  void shouldEstimateObjectSizes() {
+    ObjectSizeWeigher weigher = new ObjectSizeWeigher();
+    Author author = new Author(1, "jim", "********", "jim@ibatis.apache.org", "bio", Section.NEWS);
+    long authorSize = weigher.weigh(null, author);
+    assertTrue(authorSize > weigher.weigh(null, "jim"));
+    assertEquals(1040, weigher.weigh(null, new byte[1024]));
+
+    List<Author> authors = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      authors.add(new Author(i, new String("jim"), new String("********"), new String("jim@ibatis.apache.org"),
+          new String("bio"), Section.NEWS));
+    }
+    long listSize = weigher.weigh(null, authors);
+    assertTrue(listSize > 1000 * authorSize && listSize < 1200 * authorSize, "estimated " + listSize);
+
+    List<Author> shared = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      shared.add(author);
+    }
+    assertTrue(weigher.weigh(null, shared) < 2 * authorSize);
+  }
+
+}
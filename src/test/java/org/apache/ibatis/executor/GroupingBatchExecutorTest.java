@@ -0,0 +1,86 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.junit.jupiter.api.Test;
+
+class GroupingBatchExecutorTest extends BaseExecutorTest {
+
+  @Test
+  void shouldGroupInterleavedStatementsInOrderOfFirstAppearance() throws Exception {
+    Executor executor = createExecutor(new JdbcTransaction(createBlogDataSource(), null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      MappedStatement updateStatement = ExecutorTestHelper.prepareUpdateAuthorMappedStatement(config);
+      for (int id = 201; id <= 203; id++) {
+        Author author = new Author(id, "author" + id, "******", "author@apache.org", null, Section.NEWS);
+        executor.update(insertStatement, author);
+        author.setUsername("updated" + id);
+        executor.update(updateStatement, author);
+      }
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals("insertAuthor", results.get(0).getMappedStatement().getId());
+      assertEquals(3, results.get(0).getParameterObjects().size());
+      assertArrayEquals(new int[] { 1, 1, 1 }, results.get(1).getUpdateCounts());
+
+      List<Author> authors = executor.query(ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config), 202,
+          RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertEquals("updated202", authors.get(0).getUsername());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  void shouldExecuteBatchesWhenFlushSizeIsReached() throws Exception {
+    config.setBatchFlushSize(4);
+    Executor executor = createExecutor(new JdbcTransaction(createBlogDataSource(), null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      MappedStatement updateStatement = ExecutorTestHelper.prepareUpdateAuthorMappedStatement(config);
+      for (int id = 201; id <= 203; id++) {
+        Author author = new Author(id, "author" + id, "******", "author@apache.org", null, Section.NEWS);
+        executor.update(insertStatement, author);
+        executor.update(updateStatement, author);
+      }
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals(1, results.get(0).getParameterObjects().size());
+      assertEquals(1, results.get(1).getParameterObjects().size());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Override
+  protected Executor createExecutor(Transaction transaction) {
+    return new GroupingBatchExecutor(config, transaction);
+  }
+}
@@ -0,0 +1,97 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.junit.jupiter.api.Test;
+
+class RewritingBatchExecutorTest extends BaseExecutorTest {
+
+  RewritingBatchExecutorTest() {
+    config.setRewriteBatchedInserts(true);
+  }
+
+  @Test
+  void shouldInsertRowsInChunksOfMultiRowInserts() throws Exception {
+    config.setBatchInsertMaxParameters(12);
+    Executor executor = createExecutor(new JdbcTransaction(createBlogDataSource(), null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      for (int id = 201; id <= 205; id++) {
+        executor.update(insertStatement, new Author(id, "author" + id, "******", "author@apache.org", null, Section.NEWS));
+      }
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(1, results.size());
+      assertArrayEquals(new int[] { 1, 1, 1, 1, 1 }, results.get(0).getUpdateCounts());
+
+      List<Author> authors = executor.query(ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config), 205,
+          RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertEquals("author205", authors.get(0).getUsername());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  void shouldAssignGeneratedKeysToEachRow() throws Exception {
+    // Derby only reports the keys of single-row inserts
+    config.setBatchInsertMaxParameters(5);
+    Executor executor = createExecutor(new JdbcTransaction(createBlogDataSource(), null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatementWithAutoKey(config);
+      List<Author> authors = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        Author author = new Author(-1, "someone" + i, "******", "someone@apache.org", null, Section.NEWS);
+        authors.add(author);
+        executor.update(insertStatement, author);
+      }
+      executor.flushStatements();
+      assertTrue(authors.get(0).getId() >= 10000);
+      assertEquals(authors.get(0).getId() + 1, authors.get(1).getId());
+      assertEquals(authors.get(0).getId() + 2, authors.get(2).getId());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  void shouldNotRewriteInsertFollowedByOtherClauses() {
+    MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+    assertTrue(MultiRowInsert.isRewritable(insertStatement, "insert into author (id, username) values (?, concat(?, ')'))"));
+    assertFalse(MultiRowInsert.isRewritable(insertStatement, "insert into author (id) values (?) on duplicate key update id = id"));
+    assertFalse(MultiRowInsert.isRewritable(insertStatement, "insert into author (id) select id from blog"));
+  }
+
+  @Override
+  protected Executor createExecutor(Transaction transaction) {
+    return new BatchExecutor(config, transaction);
+  }
+}
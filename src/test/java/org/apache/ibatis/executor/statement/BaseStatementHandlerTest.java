@@ -145,4 +145,27 @@ class BaseStatementHandlerTest {
         verify(statement).setQueryTimeout(10);
     }
 
+    @Test
+    void specifyLearnedFetchSize() throws SQLException {
+        doReturn(true).when(configuration).isAdaptiveFetchSize();
+        doReturn(100).when(configuration).getDefaultFetchSize();
+        configuration.getFetchSizeTuner().record("id", 300);
+
+        BaseStatementHandler handler = new SimpleStatementHandler(null, mappedStatementBuilder.build(), null, null, null, null);
+        handler.setFetchSize(statement);
+
+        verify(statement).setFetchSize(512); // apply a learned fetch size
+    }
+
+    @Test
+    void specifyMappedStatementFetchSizeWithAdaptiveFetchSize() throws SQLException {
+        mappedStatementBuilder.fetchSize(20);
+        configuration.getFetchSizeTuner().record("id", 300);
+
+        BaseStatementHandler handler = new SimpleStatementHandler(null, mappedStatementBuilder.build(), null, null, null, null);
+        handler.setFetchSize(statement);
+
+        verify(statement).setFetchSize(20); // apply a mapped statement fetch size
+    }
+
 }
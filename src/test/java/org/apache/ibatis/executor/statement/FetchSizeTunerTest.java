@@ -0,0 +1,75 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class FetchSizeTunerTest {
+
+  private final Configuration configuration = new Configuration();
+  private final FetchSizeTuner tuner = configuration.getFetchSizeTuner();
+
+  @Test
+  void shouldNotSuggestFetchSizeOfUnknownStatement() {
+    assertNull(tuner.getFetchSize("unknown"));
+  }
+
+  @Test
+  void shouldSuggestPowerOfTwoAboveRowCount() {
+    tuner.record("select", 100);
+    assertEquals(Integer.valueOf(128), tuner.getFetchSize("select"));
+    tuner.record("exact", 128);
+    assertEquals(Integer.valueOf(256), tuner.getFetchSize("exact"));
+  }
+
+  @Test
+  void shouldKeepFetchSizeWithinCaps() {
+    tuner.record("empty", 0);
+    tuner.record("export", 1000000);
+    assertEquals(Integer.valueOf(FetchSizeTuner.MIN_FETCH_SIZE), tuner.getFetchSize("empty"));
+    assertEquals(Integer.valueOf(FetchSizeTuner.DEFAULT_MAX_FETCH_SIZE), tuner.getFetchSize("export"));
+    configuration.setMaxAdaptiveFetchSize(5000);
+    assertEquals(Integer.valueOf(5000), tuner.getFetchSize("export"));
+  }
+
+  @Test
+  void shouldFollowRecentRowCounts() {
+    for (int i = 0; i < 20; i++) {
+      tuner.record("select", 10);
+    }
+    assertEquals(Integer.valueOf(16), tuner.getFetchSize("select"));
+    for (int i = 0; i < 20; i++) {
+      tuner.record("select", 700);
+    }
+    assertEquals(Integer.valueOf(1000), tuner.getFetchSize("select"));
+    // 旧的执行记录逐渐衰减
+    for (int i = 0; i < 30; i++) {
+      tuner.record("select", 10);
+    }
+    assertEquals(Integer.valueOf(16), tuner.getFetchSize("select"));
+  }
+
+  @Test
+  void shouldExposeLearnedFetchSizes() {
+    tuner.record("b", 30);
+    tuner.record("a", 3);
+    assertEquals("{a=10, b=32}", tuner.getFetchSizes().toString());
+  }
+
+}
@@ -91,6 +91,61 @@ class PooledDataSourceTest extends BaseDataTest {
     c.close();
   }
 
+  @Test
+  void shouldReusePreparedStatementsAcrossBorrowsOfSameConnection() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      runScript(ds, JPETSTORE_DDL);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolPreparedStatementCacheSize(2);
+      Connection c = ds.getConnection();
+      PreparedStatement st = c.prepareStatement("SELECT COUNT(*) FROM PRODUCT");
+      assertSame(c, st.getConnection());
+      PreparedStatement realStatement = st.unwrap(PreparedStatement.class);
+      st.close();
+      assertTrue(st.isClosed());
+      assertThrows(SQLException.class, st::executeQuery);
+      c.close();
+
+      c = ds.getConnection();
+      st = c.prepareStatement("SELECT COUNT(*) FROM PRODUCT");
+      assertSame(realStatement, st.unwrap(PreparedStatement.class));
+      try (ResultSet rs = st.executeQuery()) {
+        assertTrue(rs.next());
+      }
+      PreparedStatement other = c.prepareStatement("SELECT COUNT(*) FROM PRODUCT");
+      assertNotSame(realStatement, other.unwrap(PreparedStatement.class));
+      other.close();
+      st.close();
+      c.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldCloseEvictedAndInvalidatedPreparedStatements() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      runScript(ds, JPETSTORE_DDL);
+      ds.setPoolPreparedStatementCacheSize(1);
+      Connection c = ds.getConnection();
+      PreparedStatement first = c.prepareStatement("SELECT * FROM PRODUCT");
+      PreparedStatement realFirst = first.unwrap(PreparedStatement.class);
+      first.close();
+      PreparedStatement second = c.prepareStatement("SELECT * FROM ITEM");
+      PreparedStatement realSecond = second.unwrap(PreparedStatement.class);
+      second.close();
+      assertTrue(realFirst.isClosed());
+      assertFalse(realSecond.isClosed());
+      c.close();
+      ds.forceCloseAll();
+      assertTrue(realSecond.isClosed());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
   @Disabled("See the comments")
   @Test
   void shouldReconnectWhenServerKilledLeakedConnection() throws Exception {
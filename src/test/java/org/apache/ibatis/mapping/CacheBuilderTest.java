@@ -18,11 +18,24 @@ package org.apache.ibatis.mapping;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.copier.ReflectiveCopier;
+import org.apache.ibatis.cache.decorators.CopyingCache;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.SoftCache;
+import org.apache.ibatis.cache.decorators.StatisticsCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.ConcurrentLfuCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.invalidation.InJvmCacheInvalidationBus;
+import org.apache.ibatis.cache.weigher.ObjectSizeWeigher;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Field;
+import java.util.Properties;
 
 import static com.googlecode.catchexception.apis.BDDCatchException.*;
 import static org.assertj.core.api.BDDAssertions.then;
@@ -43,6 +56,118 @@ class CacheBuilderTest {
       .hasMessage("Failed cache initialization for 'test' on 'org.apache.ibatis.mapping.CacheBuilderTest$InitializingFailureCache'");
   }
 
+  @Test
+  void testConcurrentCacheIsNotSynchronized() {
+    Cache cache = new CacheBuilder("test").implementation(ConcurrentLfuCache.class)
+      .addDecorator(LruCache.class).size(10).build();
+
+    Assertions.assertThat(cache).isInstanceOf(LoggingCache.class);
+    ConcurrentLfuCache base = unwrap(cache);
+    for (int i = 0; i < 20; i++) {
+      base.putObject(i, i);
+    }
+    Assertions.assertThat(base.getSize()).isEqualTo(10);
+  }
+
+  @Test
+  void testSizeOfConcurrentCacheWithDependencyTracking() {
+    Cache cache = new CacheBuilder("test").implementation(ConcurrentLfuCache.class)
+      .size(10).dependencyTracking(true).build();
+
+    for (int i = 0; i < 20; i++) {
+      cache.putObject(i, i);
+    }
+    Assertions.assertThat(cache.getSize()).isEqualTo(10);
+  }
+
+  @Test
+  void testConcurrentCacheWithOtherDecoratorIsSynchronized() {
+    Cache cache = new CacheBuilder("test").implementation(ConcurrentLfuCache.class)
+      .addDecorator(SoftCache.class).build();
+
+    Assertions.assertThat(cache).isInstanceOf(SynchronizedCache.class);
+  }
+
+  @Test
+  void testOffHeapCacheProperties() {
+    Properties props = new Properties();
+    props.setProperty("maxBytes", "1048576");
+    props.setProperty("blockSize", "512");
+    OffHeapCache cache = unwrap(new CacheBuilder("test").implementation(OffHeapCache.class).properties(props).build());
+
+    Assertions.assertThat(cache.getMaxBytes()).isEqualTo(1048576L);
+    Assertions.assertThat(cache.getBlockSize()).isEqualTo(512);
+  }
+
+  @Test
+  void testCopierIsUsedForReadWriteCache() {
+    Cache cache = new CacheBuilder("test").readWrite(true).copier(ReflectiveCopier.class).build();
+
+    SynchronizedCache synchronizedCache = (SynchronizedCache) cache;
+    Cache loggingCache = unwrap(synchronizedCache);
+    CopyingCache copyingCache = unwrap(loggingCache);
+    Assertions.assertThat(copyingCache.getCopier()).isInstanceOf(ReflectiveCopier.class);
+  }
+
+  @Test
+  void testMaxBytesAddsWeightedCache() {
+    Cache cache = new CacheBuilder("test").implementation(ConcurrentLfuCache.class).maxBytes(1024L).build();
+
+    Assertions.assertThat(cache).isInstanceOf(SynchronizedCache.class);
+    Cache loggingCache = unwrap(cache);
+    WeightedCache weightedCache = unwrap(loggingCache);
+    Assertions.assertThat(weightedCache.getMaxBytes()).isEqualTo(1024L);
+    Assertions.assertThat(weightedCache.getWeigher()).isInstanceOf(ObjectSizeWeigher.class);
+  }
+
+  @Test
+  void testWeightedCacheIsBelowEvictionDecorator() {
+    Cache cache = new CacheBuilder("test").size(2).maxBytes(1024L * 1024).build();
+
+    LruCache lruCache = unwrap(unwrap(cache));
+    WeightedCache weightedCache = unwrap(lruCache);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, "value" + i);
+    }
+    ObjectSizeWeigher weigher = new ObjectSizeWeigher();
+    Assertions.assertThat(cache.getSize()).isEqualTo(2);
+    Assertions.assertThat(weightedCache.getWeightedSize())
+      .isEqualTo(weigher.weigh(3, "value3") + weigher.weigh(4, "value4"));
+  }
+
+  @Test
+  void testStatisticsCountsEvictionsOfConcurrentCache() {
+    Cache cache = new CacheBuilder("test").implementation(ConcurrentLfuCache.class).size(10).statistics(true).build();
+
+    Assertions.assertThat(cache).isInstanceOf(StatisticsCache.class);
+    for (int i = 0; i < 20; i++) {
+      cache.putObject(i, i);
+    }
+    StatisticsCache statisticsCache = (StatisticsCache) cache;
+    Assertions.assertThat(statisticsCache.getStatistics().getPutCount()).isEqualTo(20);
+    Assertions.assertThat(statisticsCache.getStatistics().getEvictionCount()).isEqualTo(10);
+  }
+
+  @Test
+  void testStatisticsCountsWaitsBelowBroadcastingCache() throws Exception {
+    InJvmCacheInvalidationBus bus = new InJvmCacheInvalidationBus("statistics");
+    try {
+      StatisticsCache cache = (StatisticsCache) new CacheBuilder("test").blocking(true).statistics(true)
+        .invalidationBus(bus).build();
+      Assertions.assertThat(cache.getObject("key")).isNull();
+      Thread waiter = new Thread(() -> cache.getObject("key"));
+      waiter.start();
+      while (waiter.getState() != Thread.State.WAITING && waiter.getState() != Thread.State.TIMED_WAITING) {
+        Thread.sleep(10);
+      }
+      cache.putObject("key", "value");
+      waiter.join();
+      Assertions.assertThat(cache.getStatistics().getWaitCount()).isEqualTo(1);
+    } finally {
+      bus.close();
+    }
+  }
+
   @SuppressWarnings("unchecked")
   private <T> T unwrap(Cache cache) {
     Field field;
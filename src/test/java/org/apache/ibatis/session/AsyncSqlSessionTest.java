@@ -0,0 +1,254 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.annotations.CacheNamespace;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.defaults.DefaultAsyncSqlSession;
+import org.apache.ibatis.session.defaults.VirtualThreadExecutor;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class AsyncSqlSessionTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+  private static ExecutorService executor;
+  private static final AtomicInteger tasks = new AtomicInteger();
+
+  @BeforeAll
+  static void setup() throws Exception {
+    DataSource dataSource = BaseDataTest.createBlogDataSource();
+    Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), dataSource));
+    configuration.addMapper(AsyncAuthorMapper.class);
+    configuration.addMapper(CachedAuthorMapper.class);
+    executor = Executors.newFixedThreadPool(4);
+    configuration.setAsyncExecutor(command -> {
+      tasks.incrementAndGet();
+      executor.execute(command);
+    });
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+  }
+
+  @AfterAll
+  static void tearDown() throws Exception {
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void shouldRunMapperMethodsOnConfiguredExecutor() {
+    int submitted = tasks.get();
+    try (AsyncSqlSession session = sqlSessionFactory.openAsyncSession()) {
+      AsyncAuthorMapper mapper = session.getMapper(AsyncAuthorMapper.class);
+      CompletableFuture<Author> author = mapper.selectAuthor(101);
+      CompletableFuture<List<Author>> authors = mapper.selectAuthors();
+      CompletableFuture<Thread> thread = session.execute(s -> Thread.currentThread());
+      assertEquals("jim", author.join().getUsername());
+      assertEquals(2, authors.join().size());
+      assertEquals(2, mapper.countAuthors());
+      assertNotSame(Thread.currentThread(), thread.join());
+    }
+    // 每个操作（包括关闭）是执行器的一个任务
+    assertEquals(5, tasks.get() - submitted);
+  }
+
+  @Test
+  void shouldServeMoreSessionsThanExecutorThreads() throws Exception {
+    ExecutorService singleThread = Executors.newSingleThreadExecutor();
+    try {
+      List<AsyncSqlSession> sessions = new ArrayList<>();
+      List<CompletableFuture<Author>> authors = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        sessions.add(new DefaultAsyncSqlSession(sqlSessionFactory.openSession(), singleThread));
+      }
+      for (AsyncSqlSession session : sessions) {
+        authors.add(session.getMapper(AsyncAuthorMapper.class).selectAuthor(101));
+      }
+      for (CompletableFuture<Author> author : authors) {
+        assertEquals("jim", author.get(5, TimeUnit.SECONDS).getUsername());
+      }
+      for (AsyncSqlSession session : sessions) {
+        session.closeAsync().get(5, TimeUnit.SECONDS);
+      }
+    } finally {
+      singleThread.shutdown();
+    }
+  }
+
+  @Test
+  void shouldKeepBlockingCacheLoadsOfSessionAcrossThreads() throws Exception {
+    String statement = CachedAuthorMapper.class.getName() + ".selectAuthors";
+    // 每个操作都在新的线程上执行
+    Executor threadPerTask = task -> new Thread(task).start();
+    try (AsyncSqlSession session = new DefaultAsyncSqlSession(sqlSessionFactory.openSession(), threadPerTask)) {
+      CompletableFuture<Thread> firstThread = session.execute(s -> {
+        s.selectList(statement);
+        return Thread.currentThread();
+      });
+      CompletableFuture<Thread> secondThread = session.execute(s -> {
+        s.selectList(statement);
+        return Thread.currentThread();
+      });
+      assertNotSame(firstThread.get(5, TimeUnit.SECONDS), secondThread.get(5, TimeUnit.SECONDS));
+      session.rollback().get(5, TimeUnit.SECONDS);
+    }
+    try (AsyncSqlSession session = new DefaultAsyncSqlSession(sqlSessionFactory.openSession(), threadPerTask)) {
+      assertEquals(2, session.<Author>selectList(statement).get(5, TimeUnit.SECONDS).size());
+    }
+  }
+
+  @Test
+  void shouldRejectWaitingMapperCallFromOperationOfSameSession() {
+    try (AsyncSqlSession session = sqlSessionFactory.openAsyncSession()) {
+      AsyncAuthorMapper mapper = session.getMapper(AsyncAuthorMapper.class);
+      CompletableFuture<Integer> count = session.execute(s -> mapper.countAuthors());
+      CompletionException e = assertThrows(CompletionException.class, count::join);
+      assertTrue(e.getCause() instanceof IllegalStateException);
+      assertEquals(2, session.execute(s -> s.getMapper(AsyncAuthorMapper.class).countAuthors()).join());
+    }
+  }
+
+  @Test
+  void shouldUseBlockingCacheFromAsyncSession() throws Exception {
+    String statement = CachedAuthorMapper.class.getName() + ".selectAuthors";
+    try (AsyncSqlSession session = sqlSessionFactory.openAsyncSession()) {
+      CompletableFuture<List<Author>> first = session.selectList(statement);
+      CompletableFuture<List<Author>> second = session.selectList(statement);
+      assertEquals(2, first.get(5, TimeUnit.SECONDS).size());
+      assertEquals(2, second.get(5, TimeUnit.SECONDS).size());
+      session.rollback().get(5, TimeUnit.SECONDS);
+    }
+    try (AsyncSqlSession session = sqlSessionFactory.openAsyncSession()) {
+      assertEquals(2, session.<Author>selectList(statement).get(5, TimeUnit.SECONDS).size());
+    }
+  }
+
+  @Test
+  void shouldRejectOperationsAfterClose() {
+    AsyncSqlSession session = sqlSessionFactory.openAsyncSession();
+    session.close();
+    session.close();
+    CompletionException e = assertThrows(CompletionException.class,
+        () -> session.selectOne(AsyncAuthorMapper.class.getName() + ".countAuthors").join());
+    assertTrue(e.getCause() instanceof IllegalStateException);
+  }
+
+  @Test
+  void shouldRunOperationsOfOneSessionInOrder() {
+    try (AsyncSqlSession session = sqlSessionFactory.openAsyncSession()) {
+      AsyncAuthorMapper mapper = session.getMapper(AsyncAuthorMapper.class);
+      CompletableFuture<Integer> inserted = mapper.insertAuthor(901, "async");
+      CompletableFuture<Integer> countInTransaction = session.selectOne(AsyncAuthorMapper.class.getName() + ".countAuthors");
+      CompletableFuture<Void> rollback = session.rollback(true);
+      CompletableFuture<Integer> countAfterRollback = session.selectOne(AsyncAuthorMapper.class.getName() + ".countAuthors");
+      assertEquals(1, inserted.join());
+      assertEquals(3, countInTransaction.join());
+      rollback.join();
+      assertEquals(2, countAfterRollback.join());
+    }
+  }
+
+  @Test
+  void shouldFanOutOverSeveralSessions() {
+    try (AsyncSqlSession first = sqlSessionFactory.openAsyncSession();
+         AsyncSqlSession second = sqlSessionFactory.openAsyncSession()) {
+      CompletableFuture<Author> jim = first.getMapper(AsyncAuthorMapper.class).selectAuthor(101);
+      CompletableFuture<Author> sally = second.getMapper(AsyncAuthorMapper.class).selectAuthor(102);
+      CompletableFuture.allOf(jim, sally).join();
+      assertEquals("jim", jim.join().getUsername());
+      assertEquals("sally", sally.join().getUsername());
+    }
+  }
+
+  @Test
+  void shouldKeepRunningAfterFailedOperation() {
+    try (AsyncSqlSession session = sqlSessionFactory.openAsyncSession()) {
+      CompletableFuture<Object> failed = session.selectOne("unknown.statement");
+      CompletableFuture<Author> author = session.getMapper(AsyncAuthorMapper.class).selectAuthor(102);
+      CompletionException e = assertThrows(CompletionException.class, failed::join);
+      assertTrue(e.getCause() instanceof PersistenceException);
+      assertEquals("sally", author.join().getUsername());
+    }
+  }
+
+  @Test
+  void shouldReturnCompletedFutureFromBlockingSession() {
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      CompletableFuture<Author> author = session.getMapper(AsyncAuthorMapper.class).selectAuthor(101);
+      assertTrue(author.isDone());
+      assertEquals("jim", author.join().getUsername());
+    }
+  }
+
+  @Test
+  void shouldRequireVirtualThreadsForVirtualThreadExecutor() throws Exception {
+    boolean available = Arrays.stream(Executors.class.getMethods())
+        .anyMatch(method -> method.getName().equals("newVirtualThreadPerTaskExecutor"));
+    if (!available) {
+      assertThrows(SqlSessionException.class, VirtualThreadExecutor::new);
+      return;
+    }
+    try (AsyncSqlSession session = new DefaultAsyncSqlSession(
+        sqlSessionFactory.openSession(), new VirtualThreadExecutor())) {
+      assertEquals(2, session.getMapper(AsyncAuthorMapper.class).countAuthors());
+    }
+  }
+
+  @CacheNamespace(blocking = true)
+  interface CachedAuthorMapper {
+    @Select("select * from author order by id")
+    List<Author> selectAuthors();
+  }
+
+  interface AsyncAuthorMapper {
+    @Select("select * from author where id = #{id}")
+    CompletableFuture<Author> selectAuthor(int id);
+
+    @Select("select * from author order by id")
+    CompletableFuture<List<Author>> selectAuthors();
+
+    @Select("select count(*) from author")
+    int countAuthors();
+
+    @Insert("insert into author (id, username, password, email) values (#{id}, #{username}, 'secret', 'async@ibatis.apache.org')")
+    CompletableFuture<Integer> insertAuthor(@Param("id") int id,
+        @Param("username") String username);
+  }
+
+}
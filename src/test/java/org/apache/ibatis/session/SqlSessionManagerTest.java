@@ -17,10 +17,12 @@ package org.apache.ibatis.session;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.Reader;
+import java.util.stream.Stream;
 
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.domain.blog.Author;
@@ -96,4 +98,18 @@ class SqlSessionManagerTest extends BaseDataTest {
     assertNull(actual);
   }
 
+  @Test
+  void shouldRequireManagedSessionForCursorsAndStreams() {
+    String statement = "org.apache.ibatis.domain.blog.mappers.AuthorMapper.selectAllAuthors";
+    SqlSessionException e = assertThrows(SqlSessionException.class, () -> manager.selectStream(statement));
+    assertTrue(e.getMessage().contains("No managed session is started"));
+    assertThrows(SqlSessionException.class, () -> manager.selectCursor(statement));
+    manager.startManagedSession();
+    try (Stream<Author> authors = manager.selectStream(statement)) {
+      assertTrue(authors.anyMatch(author -> author.getId() == 101));
+    } finally {
+      manager.close();
+    }
+  }
+
 }
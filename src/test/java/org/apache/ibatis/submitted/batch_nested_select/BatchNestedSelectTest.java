@@ -0,0 +1,133 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_nested_select;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchNestedSelectTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private final QueryCounter queryCounter = new QueryCounter();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_nested_select/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().addInterceptor(queryCounter);
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_nested_select/CreateDB.sql");
+  }
+
+  @Test
+  void shouldLoadCollectionsOfAllRowsWithOneQuery() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Department> departments = sqlSession.getMapper(Mapper.class).selectDepartments();
+      assertEquals(2, queryCounter.count.get());
+      assertEquals(3, departments.get(0).getEmployees().size());
+      assertEquals("Carl", departments.get(1).getEmployees().get(0).getName());
+      assertTrue(departments.get(2).getEmployees().isEmpty());
+    }
+  }
+
+  @Test
+  void shouldSplitKeysInBatches() {
+    sqlSessionFactory.getConfiguration().setNestedSelectBatchSize(2);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Department> departments = sqlSession.getMapper(Mapper.class).selectDepartments();
+      assertEquals(3, queryCounter.count.get());
+      assertEquals(2, departments.get(1).getEmployees().size());
+    }
+  }
+
+  @Test
+  void shouldLoadAssociationsOfAllRowsWithOneQuery() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Employee> employees = sqlSession.getMapper(Mapper.class).selectEmployees();
+      assertEquals(2, queryCounter.count.get());
+      assertEquals(5, employees.size());
+      assertEquals("Sales", employees.get(0).getDepartment().getName());
+      assertEquals("Support", employees.get(3).getDepartment().getName());
+      assertSame(employees.get(0).getDepartment(), employees.get(4).getDepartment());
+    }
+  }
+
+  @Test
+  void shouldLoadLazyCollectionsOfAllRowsOnFirstAccess() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Department> departments = sqlSession.getMapper(Mapper.class).selectLazyDepartments();
+      assertEquals(1, queryCounter.count.get());
+      assertEquals(2, departments.get(1).getEmployees().size());
+      assertEquals(2, queryCounter.count.get());
+      assertEquals(3, departments.get(0).getEmployees().size());
+      assertTrue(departments.get(2).getEmployees().isEmpty());
+      assertEquals(2, queryCounter.count.get());
+    }
+  }
+
+  @Test
+  void shouldLoadEachRowWhenResultsAreHandledOneByOne() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.select(Mapper.class.getName() + ".selectDepartments", (ResultHandler<Department>) context ->
+          assertNotNull(context.getResultObject().getEmployees()));
+      assertEquals(4, queryCounter.count.get());
+    }
+  }
+
+  @Intercepts(@Signature(type = StatementHandler.class, method = "query", args = { Statement.class, ResultHandler.class }))
+  public static class QueryCounter implements Interceptor {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      count.incrementAndGet();
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+}
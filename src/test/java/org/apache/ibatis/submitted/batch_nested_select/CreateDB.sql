@@ -0,0 +1,39 @@
+--
+--    Copyright 2009-2020 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table employees if exists;
+drop table departments if exists;
+
+create table departments (
+  id int,
+  name varchar(20)
+);
+
+create table employees (
+  id int,
+  name varchar(20),
+  department_id int
+);
+
+insert into departments (id, name) values (1, 'Sales');
+insert into departments (id, name) values (2, 'Support');
+insert into departments (id, name) values (3, 'Legal');
+
+insert into employees (id, name, department_id) values (1, 'Ann', 1);
+insert into employees (id, name, department_id) values (2, 'Bob', 1);
+insert into employees (id, name, department_id) values (3, 'Carl', 2);
+insert into employees (id, name, department_id) values (4, 'Dora', 2);
+insert into employees (id, name, department_id) values (5, 'Eve', 1);
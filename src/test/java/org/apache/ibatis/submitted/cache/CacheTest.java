@@ -17,21 +17,38 @@ package org.apache.ibatis.submitted.cache;
 
 import java.io.Reader;
 import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.annotations.CacheNamespace;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Property;
+import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.decorators.StatisticsCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.snapshot.CacheSnapshot;
 import org.apache.ibatis.annotations.CacheNamespaceRef;
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import static com.googlecode.catchexception.apis.BDDCatchException.*;
 import static org.assertj.core.api.BDDAssertions.then;
@@ -293,6 +310,221 @@ class CacheTest {
       .hasMessage("Should be specified either value() or name() attribute in the @CacheNamespaceRef");
   }
 
+  @Test
+  void shouldRefreshExpiringEntryInBackground() throws Exception {
+    sqlSessionFactory.getConfiguration().addMapper(RefreshAheadPersonMapper.class);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      Assertions.assertEquals(2, sqlSession.getMapper(RefreshAheadPersonMapper.class).findAll().size());
+    }
+    try (Connection conn = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+         Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("delete from person where id = 1");
+    }
+
+    // 命中时仍然返回旧值，同时在后台重新执行查询
+    int size;
+    long deadline = System.currentTimeMillis() + 5000;
+    do {
+      Thread.sleep(10);
+      try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+        size = sqlSession.getMapper(RefreshAheadPersonMapper.class).findAll().size();
+      }
+    } while (size == 2 && System.currentTimeMillis() < deadline);
+    Assertions.assertEquals(1, size);
+  }
+
+  @Test
+  void shouldAttachLoaderOnlyWhenCacheRefreshes() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.addMapper(ExpiringPersonMapper.class);
+    configuration.addMapper(RefreshAheadPersonMapper.class);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      sqlSession.getMapper(ExpiringPersonMapper.class).findAll();
+      sqlSession.getMapper(RefreshAheadPersonMapper.class).findAll();
+    }
+    Set<Object> keys = configuration.getCache(ExpiringPersonMapper.class.getName()).getKeys();
+    Assertions.assertFalse(keys.isEmpty());
+    for (Object key : keys) {
+      Assertions.assertNull(((CacheKey) key).getLoader());
+    }
+    keys = configuration.getCache(RefreshAheadPersonMapper.class.getName()).getKeys();
+    Assertions.assertFalse(keys.isEmpty());
+    for (Object key : keys) {
+      Assertions.assertNotNull(((CacheKey) key).getLoader());
+    }
+  }
+
+  @Test
+  void shouldServeFlushedEntryWhileReloading() throws Exception {
+    sqlSessionFactory.getConfiguration().addMapper(StaleWhileRevalidatePersonMapper.class);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      Assertions.assertEquals(2, sqlSession.getMapper(StaleWhileRevalidatePersonMapper.class).findAll().size());
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(StaleWhileRevalidatePersonMapper.class).delete(1);
+      sqlSession.commit();
+    }
+
+    // 提交后在宽限期内返回旧值，同时在后台重新执行查询
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      Assertions.assertEquals(2, sqlSession.getMapper(StaleWhileRevalidatePersonMapper.class).findAll().size());
+    }
+    int size;
+    long deadline = System.currentTimeMillis() + 5000;
+    do {
+      Thread.sleep(10);
+      try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+        size = sqlSession.getMapper(StaleWhileRevalidatePersonMapper.class).findAll().size();
+      }
+    } while (size == 2 && System.currentTimeMillis() < deadline);
+    Assertions.assertEquals(1, size);
+  }
+
+  @Test
+  void shouldReplaySpooledRowsToResultHandlerAndCursor() throws Exception {
+    sqlSessionFactory.getConfiguration().setCacheSpoolLimit(10);
+    sqlSessionFactory.getConfiguration().addMapper(SpooledPersonMapper.class);
+    String statement = SpooledPersonMapper.class.getName() + ".findAll";
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      List<Object> rows = new ArrayList<>();
+      sqlSession.select(statement, context -> rows.add(context.getResultObject()));
+      Assertions.assertEquals(2, rows.size());
+      try (Cursor<Person> cursor = sqlSession.getMapper(SpooledPersonMapper.class).findAllAsCursor()) {
+        Assertions.assertEquals(2, countItems(cursor));
+      }
+    }
+    try (Connection conn = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+         Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("delete from person where id = 1");
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      // 从缓存中重放捕获的两行，列表查询与 ResultHandler 共用同一个缓存项
+      List<Object> rows = new ArrayList<>();
+      sqlSession.select(statement, context -> rows.add(context.getResultObject()));
+      Assertions.assertEquals(2, rows.size());
+      Assertions.assertEquals(2, sqlSession.getMapper(SpooledPersonMapper.class).findAll().size());
+      try (Cursor<Person> cursor = sqlSession.getMapper(SpooledPersonMapper.class).findAllAsCursor()) {
+        Assertions.assertEquals(2, countItems(cursor));
+        Assertions.assertTrue(cursor.isConsumed());
+      }
+    }
+  }
+
+  @Test
+  void shouldNotCacheRowsBeyondSpoolLimit() throws Exception {
+    sqlSessionFactory.getConfiguration().setCacheSpoolLimit(1);
+    sqlSessionFactory.getConfiguration().addMapper(SpooledPersonMapper.class);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      try (Cursor<Person> cursor = sqlSession.getMapper(SpooledPersonMapper.class).findAllAsCursor()) {
+        Assertions.assertEquals(2, countItems(cursor));
+      }
+    }
+    try (Connection conn = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+         Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("delete from person where id = 1");
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      try (Cursor<Person> cursor = sqlSession.getMapper(SpooledPersonMapper.class).findAllAsCursor()) {
+        Assertions.assertEquals(1, countItems(cursor));
+      }
+    }
+  }
+
+  private int countItems(Cursor<?> cursor) {
+    int count = 0;
+    for (Object item : cursor) {
+      count++;
+    }
+    return count;
+  }
+
+  @Test
+  void shouldOnlyRemoveEntriesDependingOnWrittenTables() throws Exception {
+    sqlSessionFactory.getConfiguration().setCacheDependencyTracking(true);
+    sqlSessionFactory.getConfiguration().addMapper(TrackedPersonMapper.class);
+    try (Connection conn = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+         Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("drop table note if exists");
+      stmt.executeUpdate("create table note (id int)");
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      TrackedPersonMapper pm = sqlSession.getMapper(TrackedPersonMapper.class);
+      Assertions.assertEquals(2, pm.findAll().size());
+      Assertions.assertEquals(0, pm.countNotes());
+    }
+    try (Connection conn = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+         Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("delete from person where id = 1");
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      TrackedPersonMapper pm = sqlSession.getMapper(TrackedPersonMapper.class);
+      pm.createNote(1);
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      TrackedPersonMapper pm = sqlSession.getMapper(TrackedPersonMapper.class);
+      // 写入 note 表不会影响 person 表的缓存
+      Assertions.assertEquals(2, pm.findAll().size());
+      Assertions.assertEquals(1, pm.countNotes());
+      pm.delete(2);
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      TrackedPersonMapper pm = sqlSession.getMapper(TrackedPersonMapper.class);
+      Assertions.assertEquals(0, pm.findAll().size());
+      Assertions.assertEquals(1, pm.countNotes());
+    }
+  }
+
+  @Test
+  void shouldRestoreCacheSnapshot(@TempDir Path dir) throws Exception {
+    String file = dir.resolve("cache.snapshot").toString();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      Assertions.assertEquals(2, sqlSession.getMapper(PersonMapper.class).findAll().size());
+    }
+    Assertions.assertEquals(1, new CacheSnapshot(sqlSessionFactory.getConfiguration(), file).save());
+
+    try (Connection conn = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+         Statement stmt = conn.createStatement()) {
+      stmt.execute("delete from person where id = 1");
+    }
+    SqlSessionFactory restarted;
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache/mybatis-config.xml")) {
+      restarted = new SqlSessionFactoryBuilder().build(reader);
+    }
+    Assertions.assertEquals(1, new CacheSnapshot(restarted.getConfiguration(), file).load());
+    try (SqlSession sqlSession = restarted.openSession(true)) {
+      // served by the restored cache
+      Assertions.assertEquals(2, sqlSession.getMapper(PersonMapper.class).findAll().size());
+    }
+
+    // same cache, other statements
+    Configuration changed = new Configuration(restarted.getConfiguration().getEnvironment());
+    changed.addCache(new PerpetualCache(PersonMapper.class.getName()));
+    Assertions.assertEquals(0, new CacheSnapshot(changed, file).load());
+  }
+
+  @Test
+  void shouldSaveCacheSnapshotWithoutTouchingEntries(@TempDir Path dir) {
+    String file = dir.resolve("cache.snapshot").toString();
+    StatisticsCache cache = (StatisticsCache) new CacheBuilder("snapshot").statistics(true).timeToLive(60000L).build();
+    cache.putObject("key", "value");
+    Configuration configuration = new Configuration();
+    configuration.addCache(cache);
+    Assertions.assertEquals(1, new CacheSnapshot(configuration, file).save());
+    Assertions.assertEquals(0, cache.getStatistics().getHitCount());
+    Assertions.assertEquals(0, cache.getStatistics().getMissCount());
+
+    // the restored entry keeps the time it had left, not the time to live of the new cache
+    Cache restored = new CacheBuilder("snapshot").timeToLive(3600000L).build();
+    Configuration restarted = new Configuration();
+    restarted.addCache(restored);
+    Assertions.assertEquals(1, new CacheSnapshot(restarted, file).load());
+    Assertions.assertEquals("value", restored.getObject("key"));
+    long timeToLive = restored.getTimeToLive("key");
+    Assertions.assertTrue(timeToLive > 0 && timeToLive <= 60000, "time to live " + timeToLive);
+  }
+
   private CustomCache unwrap(Cache cache){
     Field field;
     try {
@@ -316,6 +548,53 @@ class CacheTest {
   private interface CustomCacheUnsupportedPropertyMapper {
   }
 
+  @CacheNamespace(timeToLive = 60000)
+  interface ExpiringPersonMapper {
+    @Select("select id, firstname, lastname from person")
+    List<Person> findAll();
+  }
+
+  @CacheNamespace(timeToLive = 60000, properties = {
+      @Property(name = "refreshAhead", value = "60000")
+  })
+  interface RefreshAheadPersonMapper {
+    @Select("select id, firstname, lastname from person")
+    List<Person> findAll();
+  }
+
+  @CacheNamespace(staleWhileRevalidate = 60000)
+  interface StaleWhileRevalidatePersonMapper {
+    @Select("select id, firstname, lastname from person")
+    List<Person> findAll();
+
+    @Delete("delete from person where id = #{id}")
+    void delete(int id);
+  }
+
+  @CacheNamespace
+  interface SpooledPersonMapper {
+    @Select("select id, firstname, lastname from person order by id")
+    List<Person> findAll();
+
+    @Select("select id, firstname, lastname from person order by id")
+    Cursor<Person> findAllAsCursor();
+  }
+
+  @CacheNamespace
+  interface TrackedPersonMapper {
+    @Select("select id, firstname, lastname from person")
+    List<Person> findAll();
+
+    @Select("select count(*) from note")
+    int countNotes();
+
+    @Insert("insert into note (id) values (#{id})")
+    void createNote(int id);
+
+    @Delete("delete from person where id = #{id}")
+    void delete(int id);
+  }
+
   @CacheNamespaceRef(value = PersonMapper.class, name = "org.apache.ibatis.submitted.cache.PersonMapper")
   private interface InvalidCacheNamespaceRefBothMapper {
   }
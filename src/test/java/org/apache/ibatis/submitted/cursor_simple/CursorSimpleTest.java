@@ -32,6 +32,9 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 class CursorSimpleTest {
 
@@ -387,4 +390,51 @@ class CursorSimpleTest {
 
   }
 
+  @Test
+  void shouldStreamAllUsers() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+        Stream<User> users = sqlSession.getMapper(Mapper.class).streamAllUsers()) {
+      List<String> names = users.map(User::getName).collect(Collectors.toList());
+      Assertions.assertEquals(5, names.size());
+      Assertions.assertEquals("User1", names.get(0));
+      Assertions.assertEquals("User5", names.get(4));
+    }
+  }
+
+  @Test
+  void shouldStreamWithRowBounds() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+        Stream<User> users = sqlSession.selectStream("getAllUsers", null, new RowBounds(1, 2))) {
+      List<Integer> ids = users.map(User::getId).collect(Collectors.toList());
+      Assertions.assertEquals(2, ids.size());
+      Assertions.assertEquals(Integer.valueOf(2), ids.get(0));
+      Assertions.assertEquals(Integer.valueOf(3), ids.get(1));
+    }
+  }
+
+  @Test
+  void shouldCloseCursorWhenStreamIsClosed() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> usersCursor = sqlSession.selectCursor("getAllUsers");
+      Stream<User> users = usersCursor.stream();
+      Assertions.assertEquals(2, users.limit(2).count());
+      Assertions.assertTrue(usersCursor.isOpen());
+
+      users.close();
+      Assertions.assertFalse(usersCursor.isOpen());
+      Assertions.assertFalse(usersCursor.isConsumed());
+    }
+  }
+
+  @Test
+  void shouldCreateOrderedSpliteratorOfUnknownSize() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> usersCursor = sqlSession.selectCursor("getAllUsers");
+      Spliterator<User> spliterator = usersCursor.spliterator();
+      Assertions.assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED | Spliterator.NONNULL));
+      Assertions.assertFalse(spliterator.hasCharacteristics(Spliterator.SIZED));
+      Assertions.assertEquals(Long.MAX_VALUE, spliterator.estimateSize());
+    }
+  }
+
 }
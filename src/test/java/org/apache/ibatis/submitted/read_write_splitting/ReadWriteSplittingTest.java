@@ -0,0 +1,162 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.read_write_splitting;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.routing.LeastInUseLoadBalancer;
+import org.apache.ibatis.transaction.routing.ReplicaPool;
+import org.apache.ibatis.transaction.routing.RoundRobinLoadBalancer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ReadWriteSplittingTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/read_write_splitting/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    Environment environment = sqlSessionFactory.getConfiguration().getEnvironment();
+    createDatabase(environment.getDataSource(), "primary");
+    List<DataSource> replicas = environment.getReplicaPool().getDataSources();
+    for (int i = 0; i < replicas.size(); i++) {
+      createDatabase(replicas.get(i), "replica" + (i + 1));
+    }
+  }
+
+  private void createDatabase(DataSource dataSource, String name) throws Exception {
+    BaseDataTest.runScript(dataSource, "org/apache/ibatis/submitted/read_write_splitting/CreateDB.sql");
+    try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+      statement.executeUpdate("insert into users (id, name) values (1, '" + name + "')");
+    }
+  }
+
+  @Test
+  void shouldParseReplicas() {
+    ReplicaPool replicaPool = sqlSessionFactory.getConfiguration().getEnvironment().getReplicaPool();
+    assertEquals(2, replicaPool.size());
+    assertTrue(replicaPool.getLoadBalancer() instanceof RoundRobinLoadBalancer);
+  }
+
+  @Test
+  void shouldReadFromReplicas() {
+    for (String expected : Arrays.asList("replica1", "replica2", "replica1")) {
+      try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+        assertEquals(expected, sqlSession.getMapper(Mapper.class).getName(1));
+      }
+    }
+  }
+
+  @Test
+  void shouldReadFromReplicaInTransactionsUntilFirstWrite() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("replica1", mapper.getName(1));
+      mapper.insertUser(2, "new");
+      assertEquals("primary", mapper.getName(1));
+      assertEquals("new", mapper.getName(2));
+      sqlSession.rollback();
+      assertEquals("primary", mapper.getName(1));
+    }
+  }
+
+  @Test
+  void shouldReadFromPrimaryInTransactionsWhenDisabled() {
+    sqlSessionFactory.getConfiguration().setReplicaReadsInTransactions(false);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("primary", sqlSession.getMapper(Mapper.class).getName(1));
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      assertEquals("replica1", sqlSession.getMapper(Mapper.class).getName(1));
+    }
+  }
+
+  @Test
+  void shouldReadFromPrimaryAfterWrite() {
+    shouldReadFromPrimaryAfterWrite(ExecutorType.SIMPLE);
+  }
+
+  @Test
+  void shouldReadFromPrimaryAfterWriteWithReusedStatements() {
+    shouldReadFromPrimaryAfterWrite(ExecutorType.REUSE);
+  }
+
+  private void shouldReadFromPrimaryAfterWrite(ExecutorType executorType) {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(executorType, true)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("replica1", mapper.getName(1));
+      mapper.insertUser(2, "new");
+      assertEquals("primary", mapper.getName(1));
+      assertEquals("new", mapper.getName(2));
+      sqlSession.commit();
+      assertEquals("new", mapper.getName(2));
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      assertNull(sqlSession.getMapper(Mapper.class).getName(2));
+    }
+  }
+
+  @Test
+  void shouldReadLockingAndFlushingSelectsFromPrimary() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("primary", mapper.getNameForUpdate(1));
+      assertEquals("primary", mapper.getNameFlushingCache(1));
+      assertEquals("replica1", mapper.getName(1));
+    }
+  }
+
+  @Test
+  void shouldReadFromPrimaryWhenStatementRequiresIt() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("primary", mapper.getNameFromPrimary(1));
+      assertEquals("primary", mapper.getNameFromPrimaryByXml(1));
+      assertEquals("replica1", mapper.getName(1));
+    }
+  }
+
+  @Test
+  void shouldSelectLeastInUseReplica() {
+    List<DataSource> dataSources = sqlSessionFactory.getConfiguration().getEnvironment().getReplicaPool().getDataSources();
+    ReplicaPool replicaPool = new ReplicaPool(dataSources, new LeastInUseLoadBalancer());
+    assertEquals(0, replicaPool.acquire());
+    assertEquals(1, replicaPool.acquire());
+    replicaPool.release(0);
+    assertEquals(0, replicaPool.acquire());
+    assertEquals(1, replicaPool.getInUse(0));
+    assertEquals(1, replicaPool.getInUse(1));
+  }
+
+}
@@ -0,0 +1,178 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.sequence_key;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SequenceKeyTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private final QueryCounter queryCounter = new QueryCounter();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/sequence_key/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().addInterceptor(queryCounter);
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/sequence_key/CreateDB.sql");
+  }
+
+  @Test
+  void shouldReserveBlocksOfKeys() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = new ArrayList<>();
+      for (int i = 0; i < 25; i++) {
+        User user = new User("User" + i);
+        mapper.insertUser(user);
+        users.add(user);
+      }
+      sqlSession.flushStatements();
+      assertEquals(3, queryCounter.count.get());
+      for (int i = 0; i < 25; i++) {
+        assertEquals(Integer.valueOf(i + 1), users.get(i).getId());
+      }
+      assertEquals(25, mapper.countUsers());
+    }
+  }
+
+  @Test
+  void shouldShareReservedKeysAcrossSessionsAndStatements() {
+    User first = new User("First");
+    User second = new User("Second");
+    User third = new User("Third");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).insertUser(first);
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertUser(second);
+      mapper.insertUserAnnotated(third);
+      sqlSession.commit();
+    }
+    assertEquals(1, queryCounter.count.get());
+    assertEquals(Integer.valueOf(1), first.getId());
+    assertEquals(Integer.valueOf(2), second.getId());
+    assertEquals(Integer.valueOf(3), third.getId());
+  }
+
+  @Test
+  void shouldNotShareReservedKeysBetweenAllocationSizes() {
+    User first = new User("First");
+    User second = new User("Second");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertUser(first);
+      mapper.insertUserWithSmallerBlocks(second);
+      sqlSession.commit();
+    }
+    assertEquals(2, queryCounter.count.get());
+    assertEquals(Integer.valueOf(1), first.getId());
+    assertEquals(Integer.valueOf(11), second.getId());
+  }
+
+  @Test
+  void shouldReserveKeysOutsideTheSessionTransaction() throws SQLException {
+    User first = new User("First");
+    User second = new User("Second");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).insertUser(first);
+      assertNotSame(sqlSession.getConnection(), queryCounter.connection);
+      assertTrue(queryCounter.autoCommit);
+      sqlSession.rollback();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).insertUser(second);
+      sqlSession.commit();
+    }
+    // 回滚不会让已分配的主键被再次使用
+    assertEquals(1, queryCounter.count.get());
+    assertEquals(Integer.valueOf(1), first.getId());
+    assertEquals(Integer.valueOf(2), second.getId());
+  }
+
+  @Test
+  void shouldUseEveryReturnedRowAsKey() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = new ArrayList<>();
+      for (int i = 0; i < 6; i++) {
+        User user = new User("User" + i);
+        mapper.insertUserWithKeyRows(user);
+        users.add(user);
+      }
+      assertEquals(2, queryCounter.count.get());
+      for (int i = 0; i < 6; i++) {
+        assertEquals(Integer.valueOf(100 + i), users.get(i).getId());
+      }
+    }
+  }
+
+  @Intercepts(@Signature(type = StatementHandler.class, method = "query", args = { Statement.class, ResultHandler.class }))
+  public static class QueryCounter implements Interceptor {
+
+    private final AtomicInteger count = new AtomicInteger();
+    private volatile Connection connection;
+    private volatile boolean autoCommit;
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      count.incrementAndGet();
+      connection = ((Statement) invocation.getArgs()[0]).getConnection();
+      autoCommit = connection.getAutoCommit();
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+}